@@ -0,0 +1,50 @@
+plugins {
+  id("com.android.library")
+}
+
+android {
+    compileSdk = Config.SdkVersions.compile
+    namespace = "com.firebase.ui.benchmark"
+
+    defaultConfig {
+        minSdk = Config.SdkVersions.min
+        targetSdk = Config.SdkVersions.target
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                it.maxHeapSize = "2g"
+                // Results are kept per release so they can be compared between versions
+                it.systemProperty("benchmark.results",
+                        file("results/${Config.version}.tsv").absolutePath)
+                project.findProperty("benchmarkBaseline")?.let { baseline ->
+                    it.systemProperty("benchmark.baseline",
+                            file("results/$baseline.tsv").absolutePath)
+                }
+                // Always measure, even if nothing changed since the last run
+                it.outputs.upToDateWhen { false }
+            }
+        }
+    }
+}
+
+dependencies {
+    testImplementation(platform(Config.Libs.Firebase.bom))
+    testImplementation(project(":database"))
+    testImplementation(project(":firestore"))
+    testImplementation(testFixtures(project(":database")))
+    testImplementation(testFixtures(project(":firestore")))
+    testImplementation(Config.Libs.Androidx.paging)
+
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.core)
+    testImplementation(Config.Libs.Test.mockito)
+    testImplementation(Config.Libs.Test.robolectric)
+}
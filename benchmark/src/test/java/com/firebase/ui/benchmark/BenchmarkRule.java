@@ -0,0 +1,187 @@
+package com.firebase.ui.benchmark;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs the body of a benchmark a fixed number of times after warming it up, in the style of
+ * {@code androidx.benchmark}:
+ *
+ * <pre>
+ * BenchmarkRule.State state = mBenchmarkRule.getState();
+ * while (state.keepRunning()) {
+ *     // Code to measure
+ * }
+ * </pre>
+ * <p>
+ * Once the test passes, its minimum and median iteration times are written to the file named by
+ * the {@code benchmark.results} system property, replacing the results of a previous run. If the
+ * {@code benchmark.baseline} property names the results of an earlier release, each benchmark is
+ * also compared against it.
+ */
+public final class BenchmarkRule implements TestRule {
+    private static final String RESULTS_PROPERTY = "benchmark.results";
+    private static final String BASELINE_PROPERTY = "benchmark.baseline";
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 15;
+
+    private final State mState = new State();
+
+    @NonNull
+    public State getState() {
+        return mState;
+    }
+
+    @NonNull
+    @Override
+    public Statement apply(@NonNull final Statement base, @NonNull final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                base.evaluate();
+
+                String name = description.getTestClass().getSimpleName() + "."
+                        + description.getMethodName();
+                if (mState.mIteration <= WARMUP_ITERATIONS) {
+                    throw new IllegalStateException(name + " never called State.keepRunning()");
+                }
+                report(name, mState.getMinNanos(), mState.getMedianNanos());
+            }
+        };
+    }
+
+    private static void report(@NonNull String name, long minNanos, long medianNanos)
+            throws IOException {
+        StringBuilder line = new StringBuilder(String.format(Locale.US,
+                "%s: min=%s, median=%s", name, format(minNanos), format(medianNanos)));
+
+        String baselinePath = System.getProperty(BASELINE_PROPERTY);
+        if (baselinePath != null) {
+            long[] baseline = read(new File(baselinePath)).get(name);
+            if (baseline != null) {
+                line.append(String.format(Locale.US, " (baseline median=%s, %+.1f%%)",
+                        format(baseline[1]), (medianNanos - baseline[1]) * 100.0 / baseline[1]));
+            }
+        }
+        System.out.println(line);
+
+        String resultsPath = System.getProperty(RESULTS_PROPERTY);
+        if (resultsPath != null) {
+            File results = new File(resultsPath);
+            Map<String, long[]> entries = read(results);
+            entries.put(name, new long[]{minNanos, medianNanos});
+            write(results, entries);
+        }
+    }
+
+    private static String format(long nanos) {
+        return String.format(Locale.US, "%.1fus", nanos / 1000.0);
+    }
+
+    /**
+     * Reads results stored as one {@code name, min nanos, median nanos} line per benchmark.
+     */
+    @NonNull
+    private static synchronized Map<String, long[]> read(@NonNull File file) throws IOException {
+        Map<String, long[]> entries = new TreeMap<>();
+        if (!file.exists()) { return entries; }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t");
+                if (columns.length != 3 || line.startsWith("#")) { continue; }
+                entries.put(columns[0],
+                        new long[]{Long.parseLong(columns[1]), Long.parseLong(columns[2])});
+            }
+        }
+        return entries;
+    }
+
+    private static synchronized void write(@NonNull File file,
+                                           @NonNull Map<String, long[]> entries)
+            throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println("# benchmark\tmin nanos\tmedian nanos");
+            for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+                writer.println(entry.getKey() + "\t" + entry.getValue()[0] + "\t"
+                        + entry.getValue()[1]);
+            }
+        }
+    }
+
+    /**
+     * Controls the iterations of a single benchmark.
+     */
+    public static final class State {
+        private final List<Long> mDurations = new ArrayList<>();
+        private int mIteration;
+        private long mIterationStart;
+        private long mPausedAt;
+        private long mPausedNanos;
+
+        /**
+         * @return true if the benchmark body should run (again).
+         */
+        public boolean keepRunning() {
+            long now = System.nanoTime();
+            if (mIteration > WARMUP_ITERATIONS) {
+                mDurations.add(now - mIterationStart - mPausedNanos);
+            }
+            mPausedNanos = 0;
+
+            if (mIteration++ == WARMUP_ITERATIONS + MEASURED_ITERATIONS) {
+                return false;
+            }
+            mIterationStart = System.nanoTime();
+            return true;
+        }
+
+        /**
+         * Stop the clock, for example while setting up data for the next iteration.
+         */
+        public void pauseTiming() {
+            mPausedAt = System.nanoTime();
+        }
+
+        public void resumeTiming() {
+            mPausedNanos += System.nanoTime() - mPausedAt;
+        }
+
+        long getMinNanos() {
+            return Collections.min(mDurations);
+        }
+
+        long getMedianNanos() {
+            long[] sorted = new long[mDurations.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = mDurations.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted[sorted.length / 2];
+        }
+    }
+}
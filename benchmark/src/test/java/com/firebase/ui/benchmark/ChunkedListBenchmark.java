@@ -0,0 +1,127 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.common.ChunkedList;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays the positional updates a snapshot array makes for a large live query, an initial load
+ * followed by a stream of inserts, removals and moves, into the {@link ChunkedList} backing the
+ * arrays and into the {@link ArrayList} they used to keep snapshots in.
+ */
+public class ChunkedListBenchmark {
+    private static final int INITIAL_LOAD = 50000;
+    private static final int CHANGE_COUNT = 50000;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final List<Change> mChanges = new ArrayList<>();
+    private final List<Object> mSnapshots = new ArrayList<>();
+    private List<Object> mExpected;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        int size = INITIAL_LOAD;
+        int nextSnapshot = INITIAL_LOAD;
+
+        // Removals carry the old index, additions the new one, and moves both
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            int roll = random.nextInt(10);
+            if (roll < 3) {
+                mChanges.add(new Change(-1, random.nextInt(size + 1), nextSnapshot++));
+                size++;
+            } else if (roll < 6) {
+                mChanges.add(new Change(random.nextInt(size), -1, -1));
+                size--;
+            } else {
+                mChanges.add(new Change(random.nextInt(size), random.nextInt(size), -1));
+            }
+        }
+
+        for (int i = 0; i < nextSnapshot; i++) {
+            mSnapshots.add(new Object());
+        }
+        mExpected = replay(new ArrayList<>());
+    }
+
+    @Test
+    public void replayIntoArrayList() {
+        List<Object> list = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            list = replay(new ArrayList<>());
+        }
+        assertEquals(mExpected, list);
+    }
+
+    @Test
+    public void replayIntoChunkedList() {
+        List<Object> list = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            list = replay(new ChunkedList<>());
+        }
+        assertEquals(mExpected, list);
+    }
+
+    @Test
+    public void replayIntoIndexedChunkedList() {
+        ChunkedList<Object> list = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            list = new ChunkedList<>(ChunkedList.DEFAULT_CHUNK_SIZE, true);
+            replay(list);
+        }
+        assertEquals(mExpected, list);
+        int last = mExpected.size() - 1;
+        assertEquals(last, list.identityIndexOf(mExpected.get(last)));
+    }
+
+    @NonNull
+    private List<Object> replay(@NonNull List<Object> list) {
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            list.add(mSnapshots.get(i));
+        }
+
+        for (Change change : mChanges) {
+            if (change.mOldIndex == -1) {
+                list.add(change.mNewIndex, mSnapshots.get(change.mSnapshot));
+            } else if (change.mNewIndex == -1) {
+                list.remove(change.mOldIndex);
+            } else {
+                list.add(change.mNewIndex, list.remove(change.mOldIndex));
+            }
+
+            // Adapters rebind the rows around each change
+            int position = Math.max(change.mOldIndex, change.mNewIndex);
+            if (position < list.size()) {
+                list.get(position);
+            }
+        }
+        return list;
+    }
+
+    private static final class Change {
+        final int mOldIndex;
+        final int mNewIndex;
+        final int mSnapshot;
+
+        Change(int oldIndex, int newIndex, int snapshot) {
+            mOldIndex = oldIndex;
+            mNewIndex = newIndex;
+            mSnapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.benchmark.SyntheticSnapshots.Message;
+import com.firebase.ui.firestore.paging.DefaultSnapshotDiffCallback;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import static com.firebase.ui.benchmark.SyntheticSnapshots.child;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.document;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.fields;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.key;
+
+/**
+ * Diffs a refreshed page of documents or children against the previous one with the default diff
+ * callbacks, comparing contents by parsing both items, by a version field or, for Realtime
+ * Database children, by their raw values. Every item in the new list is a new snapshot, as after a
+ * real refresh.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DiffBenchmark {
+    private static final int ITEM_COUNT = 2000;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final List<DocumentSnapshot> mOld = new ArrayList<>();
+    private final List<DocumentSnapshot> mNew = new ArrayList<>();
+    private final List<DataSnapshot> mOldChildren = new ArrayList<>();
+    private final List<DataSnapshot> mNewChildren = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        int nextId = 0;
+        for (; nextId < ITEM_COUNT; nextId++) {
+            mOld.add(document(key(nextId), fields(nextId, 1)));
+        }
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 10) {
+                // Half of these are removed, the other half get a new item inserted before them
+                if (roll < 5) { continue; }
+                mNew.add(document(key(nextId), fields(nextId++, 1)));
+            }
+
+            mNew.add(document(key(i), fields(i, roll < 25 ? 2 : 1)));
+        }
+
+        // A handful of moves
+        for (int i = 0; i < ITEM_COUNT / 100; i++) {
+            mNew.add(random.nextInt(mNew.size()), mNew.remove(random.nextInt(mNew.size())));
+        }
+
+        for (DocumentSnapshot document : mOld) {
+            mOldChildren.add(child(document.getId(), document.getData()));
+        }
+        for (DocumentSnapshot document : mNew) {
+            mNewChildren.add(child(document.getId(), document.getData()));
+        }
+    }
+
+    @Test
+    public void diffByParsing() {
+        diff(mOld, mNew, new DefaultSnapshotDiffCallback<Message>(
+                snapshot -> new Message(snapshot.getData())));
+    }
+
+    @Test
+    public void diffByVersion() {
+        diff(mOld, mNew, new DefaultSnapshotDiffCallback<Message>(
+                snapshot -> new Message(snapshot.getData()), "version"));
+    }
+
+    @Test
+    public void diffChildrenByParsing() {
+        // What the database callback did before it compared raw values
+        diff(mOldChildren, mNewChildren, new DiffUtil.ItemCallback<DataSnapshot>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull DataSnapshot oldItem,
+                                           @NonNull DataSnapshot newItem) {
+                return oldItem.getKey().equals(newItem.getKey());
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull DataSnapshot oldItem,
+                                              @NonNull DataSnapshot newItem) {
+                return parseChild(oldItem).equals(parseChild(newItem));
+            }
+        });
+    }
+
+    @Test
+    public void diffChildrenByValue() {
+        diff(mOldChildren, mNewChildren,
+                new com.firebase.ui.database.paging.DefaultSnapshotDiffCallback<>(
+                        DiffBenchmark::parseChild));
+    }
+
+    @Test
+    public void diffChildrenByVersion() {
+        diff(mOldChildren, mNewChildren,
+                new com.firebase.ui.database.paging.DefaultSnapshotDiffCallback<>(
+                        DiffBenchmark::parseChild, "version"));
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Message parseChild(@NonNull DataSnapshot snapshot) {
+        return new Message((Map<String, Object>) snapshot.getValue());
+    }
+
+    private <S> void diff(@NonNull List<S> oldItems,
+                          @NonNull List<S> newItems,
+                          @NonNull DiffUtil.ItemCallback<S> callback) {
+        DiffUtil.Callback lists = new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return callback.areItemsTheSame(
+                        oldItems.get(oldPosition), newItems.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return callback.areContentsTheSame(
+                        oldItems.get(oldPosition), newItems.get(newPosition));
+            }
+        };
+
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            DiffUtil.calculateDiff(lists);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.benchmark.SyntheticSnapshots.Message;
+import com.firebase.ui.database.FirebaseIndexArray;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.firebase.ui.benchmark.SyntheticSnapshots.child;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.fields;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.key;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Joins keys with their data in a {@link FirebaseIndexArray}: the keys load in order, their data
+ * arrives out of order with one in ten keys missing, then keys churn while data keeps changing.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IndexArrayBenchmark {
+    private static final int KEY_COUNT = 10000;
+    private static final int CHURN_COUNT = 5000;
+    private static final int NULL_PERCENT = 10;
+
+    private static final int KEY_ADDED = 0;
+    private static final int KEY_MOVED = 1;
+    private static final int KEY_REMOVED = 2;
+    private static final int KEYS_LOADED = 3;
+    private static final int DATA = 4;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Map<String, DataSnapshot> mKeySnapshots = new HashMap<>();
+    private final Map<String, DataSnapshot> mDataSnapshots = new HashMap<>();
+    private final Map<String, DataSnapshot> mNullSnapshots = new HashMap<>();
+    private final Map<String, DatabaseReference> mRefs = new HashMap<>();
+    private final Map<String, ValueEventListener> mDataListeners = new HashMap<>();
+
+    private final List<Event> mEvents = new ArrayList<>();
+    private final List<String> mExpectedKeys = new ArrayList<>();
+    private final Map<String, Boolean> mExpectedNulls = new HashMap<>();
+
+    private ChildEventListener mKeyListener;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        int nextId = 0;
+
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String key = newKey(nextId++);
+            String previous = i == 0 ? null : mExpectedKeys.get(i - 1);
+            mExpectedKeys.add(key);
+            mEvents.add(new Event(KEY_ADDED, key, previous, false));
+        }
+        mEvents.add(new Event(KEYS_LOADED, null, null, false));
+
+        List<String> arrival = new ArrayList<>(mExpectedKeys);
+        Collections.shuffle(arrival, random);
+        for (String key : arrival) {
+            mEvents.add(newDataEvent(key, random));
+        }
+
+        for (int i = 0; i < CHURN_COUNT; i++) {
+            int roll = random.nextInt(10);
+            int position = random.nextInt(mExpectedKeys.size());
+            if (roll < 5) {
+                mEvents.add(newDataEvent(mExpectedKeys.get(position), random));
+            } else if (roll < 6) {
+                String key = mExpectedKeys.remove(position);
+                mExpectedNulls.remove(key);
+                mEvents.add(new Event(KEY_REMOVED, key, null, false));
+            } else if (roll < 7) {
+                String key = newKey(nextId++);
+                String previous = position == 0 ? null : mExpectedKeys.get(position - 1);
+                mExpectedKeys.add(position, key);
+                mEvents.add(new Event(KEY_ADDED, key, previous, false));
+                mEvents.add(newDataEvent(key, random));
+            } else {
+                String key = mExpectedKeys.remove(position);
+                int newPosition = random.nextInt(mExpectedKeys.size() + 1);
+                String previous = newPosition == 0 ? null : mExpectedKeys.get(newPosition - 1);
+                mExpectedKeys.add(newPosition, key);
+                mEvents.add(new Event(KEY_MOVED, key, previous, false));
+            }
+        }
+    }
+
+    @Test
+    public void replayJoin() {
+        DatabaseReference dataRef = mock(DatabaseReference.class, invocation -> {
+            String name = invocation.getMethod().getName();
+            if ("child".equals(name)) {
+                return mRefs.get(invocation.<String>getArgument(0));
+            } else if ("getRef".equals(name)) {
+                return invocation.getMock();
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        });
+        Query keyQuery = mock(Query.class, invocation -> {
+            if ("addChildEventListener".equals(invocation.getMethod().getName())) {
+                mKeyListener = invocation.getArgument(0);
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        });
+
+        FirebaseIndexArray<Message> array = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            mDataListeners.clear();
+            array = new FirebaseIndexArray<>(keyQuery, dataRef,
+                    snapshot -> new Message(SnapshotArrayBenchmark.getFields(snapshot)));
+            array.addChangeEventListener(new SnapshotArrayBenchmark.NoOpListener());
+            state.resumeTiming();
+
+            replay();
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (String key : mExpectedKeys) {
+            if (!mExpectedNulls.get(key)) { expected.add(key); }
+        }
+        assertEquals(expected.size(), array.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), array.getSnapshot(i).getKey());
+        }
+    }
+
+    private void replay() {
+        for (Event event : mEvents) {
+            switch (event.mType) {
+                case KEY_ADDED:
+                    mKeyListener.onChildAdded(mKeySnapshots.get(event.mKey), event.mPreviousKey);
+                    break;
+                case KEY_MOVED:
+                    mKeyListener.onChildMoved(mKeySnapshots.get(event.mKey), event.mPreviousKey);
+                    break;
+                case KEY_REMOVED:
+                    mKeyListener.onChildRemoved(mKeySnapshots.get(event.mKey));
+                    break;
+                case KEYS_LOADED:
+                    ((ValueEventListener) mKeyListener).onDataChange(mock(DataSnapshot.class));
+                    break;
+                case DATA:
+                    mDataListeners.get(event.mKey).onDataChange(event.mIsNull ?
+                            mNullSnapshots.get(event.mKey) : mDataSnapshots.get(event.mKey));
+                    break;
+            }
+        }
+    }
+
+    private Event newDataEvent(String key, Random random) {
+        boolean isNull = random.nextInt(100) < NULL_PERCENT;
+        mExpectedNulls.put(key, isNull);
+        return new Event(DATA, key, null, isNull);
+    }
+
+    private String newKey(int id) {
+        String key = key(id);
+        mKeySnapshots.put(key, child(key, null));
+        mDataSnapshots.put(key, child(key, fields(id, 1)));
+        mNullSnapshots.put(key, child(key, null));
+        mRefs.put(key, mock(DatabaseReference.class, invocation -> {
+            String name = invocation.getMethod().getName();
+            if ("addValueEventListener".equals(name)
+                    || "addListenerForSingleValueEvent".equals(name)) {
+                mDataListeners.put(key, invocation.getArgument(0));
+                return invocation.getArgument(0);
+            } else if ("removeEventListener".equals(name)) {
+                mDataListeners.remove(key);
+                return null;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        }));
+        return key;
+    }
+
+    private static final class Event {
+        final int mType;
+        final String mKey;
+        final String mPreviousKey;
+        final boolean mIsNull;
+
+        Event(int type, String key, String previousKey, boolean isNull) {
+            mType = type;
+            mKey = key;
+            mPreviousKey = previousKey;
+            mIsNull = isNull;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.benchmark.SyntheticSnapshots.Message;
+import com.firebase.ui.common.BaseSnapshotParser;
+import com.firebase.ui.database.CachingSnapshotParser;
+import com.firebase.ui.database.SnapshotParser;
+import com.google.firebase.database.DataSnapshot;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.firebase.ui.benchmark.SyntheticSnapshots.child;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.fields;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.key;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parses a screenful of snapshots the way adapters do on every bind: without a cache, through a
+ * cold {@link CachingSnapshotParser} and through a warm one.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ParserBenchmark {
+    private static final int SNAPSHOT_COUNT = 100;
+    private static final int BIND_PASSES = 100;
+
+    private static final SnapshotParser<Message> PARSER =
+            snapshot -> new Message(SnapshotArrayBenchmark.getFields(snapshot));
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final List<DataSnapshot> mSnapshots = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < SNAPSHOT_COUNT; i++) {
+            mSnapshots.add(child(key(i), fields(i, 1)));
+        }
+    }
+
+    @Test
+    public void parseUncached() {
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            bind(PARSER);
+        }
+    }
+
+    @Test
+    public void parseCachedCold() {
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            CachingSnapshotParser<Message> parser = new CachingSnapshotParser<>(PARSER);
+            state.resumeTiming();
+
+            bind(parser);
+        }
+    }
+
+    @Test
+    public void parseCachedWarm() {
+        CachingSnapshotParser<Message> parser = new CachingSnapshotParser<>(PARSER);
+        bind(parser);
+
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            bind(parser);
+        }
+        assertEquals(SNAPSHOT_COUNT, parser.getStats().getMissCount());
+    }
+
+    private void bind(BaseSnapshotParser<DataSnapshot, Message> parser) {
+        for (int pass = 0; pass < BIND_PASSES; pass++) {
+            for (DataSnapshot snapshot : mSnapshots) {
+                parser.parseSnapshot(snapshot);
+            }
+        }
+    }
+}
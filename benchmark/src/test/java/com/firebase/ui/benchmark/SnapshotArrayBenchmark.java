@@ -0,0 +1,266 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.benchmark.SyntheticSnapshots.Message;
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.ChangeEventListener;
+import com.firebase.ui.database.FirebaseArray;
+import com.firebase.ui.firestore.FirestoreArray;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static com.firebase.ui.benchmark.SyntheticSnapshots.change;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.child;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.document;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.fields;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.key;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays an initial load followed by a stream of live updates into {@link FirebaseArray} and
+ * {@link FirestoreArray}, with a listener attached so every event is dispatched.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SnapshotArrayBenchmark {
+    private static final int INITIAL_LOAD = 20000;
+    private static final int UPDATE_COUNT = 20000;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void replayChildEvents() {
+        Random random = new Random(42);
+        List<DataSnapshot> expected = new ArrayList<>();
+        List<ChildEvent> events = new ArrayList<>();
+        int nextId = 0;
+
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            DataSnapshot snapshot = child(key(nextId), fields(nextId++, 1));
+            events.add(new ChildEvent(ChangeEventType.ADDED, snapshot, previousKey(expected, i)));
+            expected.add(snapshot);
+        }
+        for (int i = 0; i < UPDATE_COUNT; i++) {
+            int roll = random.nextInt(10);
+            int position = random.nextInt(expected.size());
+            if (roll < 6) {
+                events.add(new ChildEvent(ChangeEventType.CHANGED, expected.get(position), null));
+            } else if (roll < 7) {
+                DataSnapshot snapshot = expected.remove(position);
+                events.add(new ChildEvent(ChangeEventType.REMOVED, snapshot, null));
+            } else if (roll < 8) {
+                DataSnapshot snapshot = child(key(nextId), fields(nextId++, 1));
+                events.add(new ChildEvent(
+                        ChangeEventType.ADDED, snapshot, previousKey(expected, position)));
+                expected.add(position, snapshot);
+            } else {
+                DataSnapshot snapshot = expected.remove(position);
+                int newPosition = random.nextInt(expected.size() + 1);
+                events.add(new ChildEvent(
+                        ChangeEventType.MOVED, snapshot, previousKey(expected, newPosition)));
+                expected.add(newPosition, snapshot);
+            }
+        }
+
+        FirebaseArray<Message> array = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            array = new FirebaseArray<>(
+                    mock(Query.class), snapshot -> new Message(getFields(snapshot)));
+            array.addChangeEventListener(new NoOpListener());
+            state.resumeTiming();
+
+            for (ChildEvent event : events) {
+                switch (event.mType) {
+                    case ADDED:
+                        array.onChildAdded(event.mSnapshot, event.mPreviousKey);
+                        break;
+                    case CHANGED:
+                        array.onChildChanged(event.mSnapshot, event.mPreviousKey);
+                        break;
+                    case REMOVED:
+                        array.onChildRemoved(event.mSnapshot);
+                        break;
+                    case MOVED:
+                        array.onChildMoved(event.mSnapshot, event.mPreviousKey);
+                        break;
+                }
+            }
+            array.onDataChange(mock(DataSnapshot.class));
+        }
+
+        assertEquals(expected.size(), array.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), array.getSnapshot(i).getKey());
+        }
+    }
+
+    @Test
+    public void prependAndRemoveChildren() {
+        // A chat scrolled back through its history: older messages are added at the front, then
+        // the oldest ones are dropped again
+        List<DataSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            snapshots.add(child(key(i), fields(i, 1)));
+        }
+
+        FirebaseArray<Message> array = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            array = new FirebaseArray<>(
+                    mock(Query.class), snapshot -> new Message(getFields(snapshot)));
+            array.addChangeEventListener(new NoOpListener());
+            state.resumeTiming();
+
+            for (int i = INITIAL_LOAD - 1; i >= 0; i--) {
+                array.onChildAdded(snapshots.get(i), null);
+            }
+            for (int i = 0; i < INITIAL_LOAD / 2; i++) {
+                array.onChildRemoved(snapshots.get(i));
+            }
+            array.onDataChange(mock(DataSnapshot.class));
+        }
+
+        assertEquals(INITIAL_LOAD - INITIAL_LOAD / 2, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(snapshots.get(INITIAL_LOAD / 2 + i).getKey(),
+                    array.getSnapshot(i).getKey());
+        }
+    }
+
+    @Test
+    public void replayDocumentChanges() {
+        Random random = new Random(42);
+        List<QueryDocumentSnapshot> expected = new ArrayList<>();
+        List<QuerySnapshot> snapshots = new ArrayList<>();
+        int nextId = 0;
+
+        List<DocumentChange> initial = new ArrayList<>();
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            QueryDocumentSnapshot document = document(key(nextId), fields(nextId++, 1));
+            initial.add(change(DocumentChange.Type.ADDED, document, -1, i));
+            expected.add(document);
+        }
+        snapshots.add(querySnapshot(initial));
+
+        for (int i = 0; i < UPDATE_COUNT; i++) {
+            int roll = random.nextInt(10);
+            int position = random.nextInt(expected.size());
+            DocumentChange change;
+            if (roll < 6) {
+                QueryDocumentSnapshot document = expected.get(position);
+                change = change(DocumentChange.Type.MODIFIED, document, position, position);
+            } else if (roll < 7) {
+                QueryDocumentSnapshot document = expected.remove(position);
+                change = change(DocumentChange.Type.REMOVED, document, position, -1);
+            } else if (roll < 8) {
+                QueryDocumentSnapshot document = document(key(nextId), fields(nextId++, 1));
+                expected.add(position, document);
+                change = change(DocumentChange.Type.ADDED, document, -1, position);
+            } else {
+                QueryDocumentSnapshot document = expected.remove(position);
+                int newPosition = random.nextInt(expected.size() + 1);
+                expected.add(newPosition, document);
+                change = change(DocumentChange.Type.MODIFIED, document, position, newPosition);
+            }
+            snapshots.add(querySnapshot(Collections.singletonList(change)));
+        }
+
+        FirestoreArray<Message> array = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            array = new FirestoreArray<>(mock(com.google.firebase.firestore.Query.class),
+                    snapshot -> new Message(snapshot.getData()));
+            array.addChangeEventListener(new NoOpFirestoreListener());
+            state.resumeTiming();
+
+            for (QuerySnapshot snapshot : snapshots) {
+                array.onEvent(snapshot, null);
+            }
+        }
+
+        assertEquals(expected.size(), array.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), array.getSnapshot(i).getId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> getFields(@NonNull DataSnapshot snapshot) {
+        return (Map<String, Object>) snapshot.getValue();
+    }
+
+    private static String previousKey(@NonNull List<DataSnapshot> snapshots, int position) {
+        return position == 0 ? null : snapshots.get(position - 1).getKey();
+    }
+
+    private static QuerySnapshot querySnapshot(@NonNull List<DocumentChange> changes) {
+        return mock(QuerySnapshot.class, invocation ->
+                "getDocumentChanges".equals(invocation.getMethod().getName()) ?
+                        changes : Mockito.RETURNS_DEFAULTS.answer(invocation));
+    }
+
+    private static final class ChildEvent {
+        final ChangeEventType mType;
+        final DataSnapshot mSnapshot;
+        final String mPreviousKey;
+
+        ChildEvent(ChangeEventType type, DataSnapshot snapshot, String previousKey) {
+            mType = type;
+            mSnapshot = snapshot;
+            mPreviousKey = previousKey;
+        }
+    }
+
+    static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+
+    static final class NoOpFirestoreListener
+            implements com.firebase.ui.firestore.ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DocumentSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull FirebaseFirestoreException e) {}
+    }
+}
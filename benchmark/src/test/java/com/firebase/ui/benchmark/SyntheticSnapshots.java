@@ -0,0 +1,108 @@
+package com.firebase.ui.benchmark;
+
+import com.firebase.ui.database.testing.FakeDataSnapshots;
+import com.firebase.ui.firestore.testing.FakeDocumentSnapshots;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Generates realistic looking snapshots without a database, using the fakes from the database and
+ * firestore test fixtures. Their cost is a small constant shared by every release being compared.
+ */
+public final class SyntheticSnapshots {
+    private SyntheticSnapshots() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return a key which sorts in the same order as {@code id}.
+     */
+    @NonNull
+    public static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    /**
+     * @return the fields of a typical chat message, the same for the same {@code id} and {@code
+     * version}.
+     */
+    @NonNull
+    public static Map<String, Object> fields(int id, long version) {
+        Random random = new Random(id * 31L + version);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("name", "User " + random.nextInt(100));
+        fields.put("text",
+                "Message " + id + " v" + version + " " + Long.toHexString(random.nextLong()));
+        fields.put("timestamp", 1600000000000L + id * 1000L);
+        fields.put("version", version);
+        return fields;
+    }
+
+    /**
+     * @return a Realtime Database child with the given key and value, or no value if null.
+     */
+    @NonNull
+    public static DataSnapshot child(@NonNull String key, @Nullable Map<String, Object> value) {
+        return FakeDataSnapshots.create(key, value);
+    }
+
+    /**
+     * @return a Firestore document with the given id and fields.
+     */
+    @NonNull
+    public static QueryDocumentSnapshot document(@NonNull String id,
+                                                 @NonNull Map<String, Object> fields) {
+        return FakeDocumentSnapshots.create(id, fields);
+    }
+
+    /**
+     * @return a document change as reported in a query snapshot.
+     */
+    @NonNull
+    public static DocumentChange change(@NonNull DocumentChange.Type type,
+                                        @NonNull QueryDocumentSnapshot document,
+                                        int oldIndex,
+                                        int newIndex) {
+        return FakeDocumentSnapshots.createChange(type, document, oldIndex, newIndex);
+    }
+
+    /**
+     * A chat message parsed from either database.
+     */
+    public static final class Message {
+        final String mName;
+        final String mText;
+        final long mTimestamp;
+
+        public Message(@NonNull Map<String, Object> fields) {
+            mName = (String) fields.get("name");
+            mText = (String) fields.get("text");
+            mTimestamp = (Long) fields.get("timestamp");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Message message = (Message) o;
+            return mTimestamp == message.mTimestamp
+                    && mName.equals(message.mName)
+                    && mText.equals(message.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * mName.hashCode() + mText.hashCode();
+            return 31 * result + (int) (mTimestamp ^ (mTimestamp >>> 32));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.firebase.ui.firestore.paging;
+
+import com.firebase.ui.benchmark.BenchmarkRule;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.paging.PagingSource.LoadResult;
+
+import static com.firebase.ui.benchmark.SyntheticSnapshots.document;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.fields;
+import static com.firebase.ui.benchmark.SyntheticSnapshots.key;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Builds the keys and queries of every page while scrolling through a long query, then looks them
+ * up the way Paging does when tracking loaded pages. Lives in the paging package to reach {@link
+ * FirestorePages}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PagingKeyBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGE_COUNT = 500;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final List<List<DocumentSnapshot>> mPages = new ArrayList<>();
+    private final Query mQuery = mock(Query.class, RETURNS_SELF);
+
+    @Before
+    public void setUp() {
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            List<DocumentSnapshot> documents = new ArrayList<>(PAGE_SIZE);
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                int id = page * PAGE_SIZE + i;
+                documents.add(document(key(id), fields(id, 1)));
+            }
+            mPages.add(documents);
+        }
+    }
+
+    @Test
+    public void buildPageKeys() {
+        Map<PageKey, Integer> pages = null;
+        BenchmarkRule.State state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            pages = new HashMap<>();
+            PageKey key = null;
+            for (int i = 0; i < PAGE_COUNT; i++) {
+                FirestorePages.getPageQuery(mQuery, key, PAGE_SIZE);
+                LoadResult.Page<PageKey, DocumentSnapshot> page =
+                        FirestorePages.toPage(key, mPages.get(i), PAGE_SIZE);
+                if (key != null) { pages.put(key, i); }
+
+                PageKey prevKey = page.getPrevKey();
+                if (prevKey != null) {
+                    prevKey.getPageQuery(mQuery, PAGE_SIZE);
+                    pages.containsKey(prevKey);
+                }
+                key = page.getNextKey();
+            }
+        }
+        assertEquals(PAGE_COUNT - 1, pages.size());
+    }
+}
@@ -22,6 +22,8 @@ object Config {
     object Libs {
         object Kotlin {
             const val jvm = "org.jetbrains.kotlin:kotlin-stdlib-jdk8:$kotlinVersion"
+            const val coroutinesPlayServices =
+                    "org.jetbrains.kotlinx:kotlinx-coroutines-play-services:1.7.3"
         }
 
         object Androidx {
@@ -38,6 +40,7 @@ object Config {
             const val legacySupportv4 = "androidx.legacy:legacy-support-v4:1.0.0"
             const val multidex = "androidx.multidex:multidex:2.0.1"
             const val paging = "androidx.paging:paging-runtime:3.0.0"
+            const val pagingCommon = "androidx.paging:paging-common:3.0.0"
             const val pagingRxJava = "androidx.paging:paging-rxjava3:3.0.0"
             const val recyclerView = "androidx.recyclerview:recyclerview:1.2.1"
 
@@ -48,5 +48,10 @@ dependencies {
     api(Config.Libs.Androidx.lifecycleRuntime)
     api(Config.Libs.Androidx.lifecycleViewModel)
     implementation(Config.Libs.Androidx.annotations)
+    implementation(Config.Libs.Androidx.recyclerView)
     annotationProcessor(Config.Libs.Androidx.lifecycleCompiler)
+
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.core)
+    testImplementation(Config.Libs.Test.robolectric)
 }
@@ -0,0 +1,28 @@
+package com.firebase.ui.common;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A {@link BaseChangeEventListener} that receives all child events belonging to a single update
+ * (for example one Firestore query snapshot) at once instead of one at a time.
+ * <p>
+ * Child events that are part of a batch are delivered through {@link #onBatchChanged(List)} and
+ * <b>not</b> through {@link #onChildChanged(ChangeEventType, Object, int, int)}. Events emitted
+ * outside of a batch, such as the initial catch-up when the listener is attached, still use {@link
+ * #onChildChanged(ChangeEventType, Object, int, int)} unless the listener is also a {@link
+ * BaseInitialDataListener}.
+ */
+public interface BaseBatchChangeEventListener<S, E> extends BaseChangeEventListener<S, E> {
+
+    /**
+     * A callback for when a batch of child events has been applied to the array. The batch is
+     * always delivered right before {@link #onDataChanged()}.
+     *
+     * @param events the child events in the order they were applied, each with the indices that
+     *               were valid at the time it was applied.
+     */
+    void onBatchChanged(@NonNull List<ChangeEvent<S>> events);
+
+}
@@ -2,7 +2,12 @@ package com.firebase.ui.common;
 
 import android.util.LruCache;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 /**
@@ -12,13 +17,79 @@ import androidx.annotation.RestrictTo;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public abstract class BaseCachingSnapshotParser<S, T> implements BaseSnapshotParser<S, T> {
 
-    private static final int MAX_CACHE_SIZE = 100;
-
-    private final LruCache<String, T> mObjectCache = new LruCache<>(MAX_CACHE_SIZE);
     private final BaseSnapshotParser<S, T> mParser;
+    private volatile LruCache<String, T> mObjectCache;
+    /**
+     * Models parsed ahead of time on a parse executor. They are kept outside of the LRU cache until
+     * they are first used, so a large load can't evict them before they are ever bound.
+     */
+    private final Map<String, T> mPrefetched = new ConcurrentHashMap<>();
+
+    /**
+     * Lookups are counted by the cache itself, which is safe when parsing from a background
+     * thread. These hold the counts of caches replaced by {@link #setCachePolicy(CachePolicy)}
+     * and of lookups served from {@link #mPrefetched}.
+     */
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+    /**
+     * Models dropped by {@link #clear()}, which the cache counts as evictions although they
+     * weren't made to make room for others.
+     */
+    private final AtomicLong mClearedCount = new AtomicLong();
+
+    private MetricsListener mMetricsListener;
 
     public BaseCachingSnapshotParser(@NonNull BaseSnapshotParser<S, T> parser) {
+        this(parser, CachePolicy.<T>maxEntries(CachePolicy.DEFAULT_MAX_ENTRIES));
+    }
+
+    public BaseCachingSnapshotParser(@NonNull BaseSnapshotParser<S, T> parser,
+                                     @NonNull CachePolicy<T> policy) {
         mParser = parser;
+        setCachePolicy(policy);
+    }
+
+    /**
+     * Replace the cache with one following {@code policy}. Models cached so far are discarded.
+     */
+    public void setCachePolicy(@NonNull CachePolicy<T> policy) {
+        final CachePolicy.Sizer<T> sizer = policy.getSizer();
+        LruCache<String, T> old = mObjectCache;
+        mObjectCache = new LruCache<String, T>(policy.getMaxSize()) {
+            @Override
+            protected int sizeOf(String key, T value) {
+                return sizer.sizeOf(value);
+            }
+        };
+
+        if (old != null) {
+            mHitCount.addAndGet(old.hitCount());
+            mMissCount.addAndGet(old.missCount());
+            mEvictionCount.addAndGet(old.evictionCount());
+        }
+    }
+
+    /**
+     * Set the listener reporting parse times and cache lookups, or {@code null} to fall back to
+     * the {@link Metrics#getGlobalListener() global listener}.
+     */
+    public void setMetricsListener(@Nullable MetricsListener listener) {
+        mMetricsListener = listener;
+    }
+
+    /**
+     * @return the current counters of the model cache.
+     */
+    @NonNull
+    public CacheStats getStats() {
+        LruCache<String, T> cache = mObjectCache;
+        return new CacheStats(mHitCount.get() + cache.hitCount(),
+                mMissCount.get() + cache.missCount(),
+                mEvictionCount.get() + cache.evictionCount() - mClearedCount.get(),
+                cache.size(),
+                cache.maxSize());
     }
 
     /**
@@ -30,28 +101,90 @@ public abstract class BaseCachingSnapshotParser<S, T> implements BaseSnapshotPar
     @NonNull
     @Override
     public T parseSnapshot(@NonNull S snapshot) {
+        MetricsListener metrics = Metrics.resolve(mMetricsListener);
         String id = getId(snapshot);
-        T result = mObjectCache.get(id);
+        T result = lookup(id);
+        if (metrics != null) { metrics.onCacheLookup(result != null); }
         if (result == null) {
-            T object = mParser.parseSnapshot(snapshot);
-            mObjectCache.put(id, object);
-            result = object;
+            result = parse(snapshot, metrics);
+            mObjectCache.put(id, result);
         }
         return result;
     }
 
+    /**
+     * Parse a snapshot which may be older than the one the cache was last filled from. The cached
+     * model is returned if there is one, otherwise the snapshot is parsed without being cached so
+     * a stale model never shadows a newer one.
+     */
+    @NonNull
+    T parseDetached(@NonNull S snapshot) {
+        MetricsListener metrics = Metrics.resolve(mMetricsListener);
+        T result = lookup(getId(snapshot));
+        if (metrics != null) { metrics.onCacheLookup(result != null); }
+        return result == null ? parse(snapshot, metrics) : result;
+    }
+
+    /**
+     * Parse a snapshot without consulting or updating the cache. Safe to call from any thread as
+     * long as the wrapped parser is.
+     */
+    @NonNull
+    T parseUncached(@NonNull S snapshot) {
+        return parse(snapshot, Metrics.resolve(mMetricsListener));
+    }
+
+    /**
+     * @return the cached model for {@code id}, moving a prefetched one into the LRU cache.
+     */
+    @Nullable
+    private T lookup(@NonNull String id) {
+        T prefetched = mPrefetched.remove(id);
+        if (prefetched == null) { return mObjectCache.get(id); }
+
+        mHitCount.incrementAndGet();
+        mObjectCache.put(id, prefetched);
+        return prefetched;
+    }
+
+    @NonNull
+    private T parse(@NonNull S snapshot, @Nullable MetricsListener metrics) {
+        if (metrics == null) { return mParser.parseSnapshot(snapshot); }
+
+        long start = System.nanoTime();
+        T model = mParser.parseSnapshot(snapshot);
+        metrics.onSnapshotParsed(System.nanoTime() - start);
+        return model;
+    }
+
+    /**
+     * Store a model parsed ahead of time for a snapshot. It is kept until the snapshot is first
+     * parsed, changed or removed, and only then subject to the cache policy.
+     */
+    void prefetch(@NonNull S snapshot, @NonNull T model) {
+        String id = getId(snapshot);
+        mObjectCache.remove(id);
+        mPrefetched.put(id, model);
+    }
+
     /**
      * Clear all data in the cache.
      */
     public void clear() {
-        mObjectCache.evictAll();
+        LruCache<String, T> cache = mObjectCache;
+        int evictions = cache.evictionCount();
+        cache.evictAll();
+        mClearedCount.addAndGet(cache.evictionCount() - evictions);
+        mPrefetched.clear();
     }
 
     /**
      * Invalidate the cache for a certain document.
      */
     public void invalidate(@NonNull S snapshot) {
-        mObjectCache.remove(getId(snapshot));
+        String id = getId(snapshot);
+        mObjectCache.remove(id);
+        mPrefetched.remove(id);
     }
 
 }
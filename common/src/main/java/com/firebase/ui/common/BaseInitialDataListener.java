@@ -0,0 +1,22 @@
+package com.firebase.ui.common;
+
+/**
+ * A {@link BaseChangeEventListener} which can be caught up with the items already in an array in a
+ * single call, instead of receiving one {@link ChangeEventType#ADDED} child event per item.
+ * <p>
+ * This makes attaching to a large array that is already listening, for example after a
+ * configuration change, independent of its size. It is also the only way to attach a second
+ * listener to an array that does not {@link BaseObservableSnapshotArray#setRetainSnapshots(boolean)
+ * retain its snapshots}.
+ */
+public interface BaseInitialDataListener<S, E> extends BaseChangeEventListener<S, E> {
+
+    /**
+     * A callback for when the listener is attached to an array which already holds items. It is
+     * called in place of the catch-up child events, and only if {@code count} is not zero.
+     *
+     * @param count the number of items in the array, at indices {@code 0} to {@code count - 1}.
+     */
+    void onInitialData(int count);
+
+}
@@ -1,11 +1,24 @@
 package com.firebase.ui.common;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * Exposes a collection of {@link S} items in a database as a {@link List} of {@link T} objects. To
@@ -19,6 +32,9 @@ import androidx.annotation.NonNull;
 public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEventListener<S, E>, T>
         extends AbstractList<T> {
 
+    private static final String ERR_RELEASED = "Snapshots are not retained by this array. " +
+            "See setRetainSnapshots";
+
     private final List<L> mListeners = new CopyOnWriteArrayList<>();
     private final BaseCachingSnapshotParser<S, T> mCachingParser;
 
@@ -28,6 +44,56 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
      */
     private boolean mHasDataChanged = false;
 
+    /**
+     * Child events buffered for {@link BaseBatchChangeEventListener}s while a batch is open, or null
+     * if there is no batch in progress.
+     */
+    private List<ChangeEvent<S>> mPendingBatch;
+
+    /**
+     * Executor used to parse snapshots before they are applied, or null to parse lazily.
+     */
+    private Executor mParseExecutor;
+    private Handler mMainHandler;
+    /**
+     * Updates waiting for their snapshots to be parsed, in the order they were received.
+     */
+    private final Queue<PendingUpdate> mPendingUpdates = new ArrayDeque<>();
+    /**
+     * Whether {@link #mDrain} is posted to the main thread. Parses finishing in the meantime are
+     * all applied by that one drain, as a single batch.
+     */
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+    private final Runnable mDrain = () -> {
+        mDrainScheduled.set(false);
+        drainPendingUpdates();
+    };
+
+    /**
+     * Whether lists from {@link #newSnapshotList(List)} keep full snapshots, see {@link
+     * #setRetainSnapshots(boolean)}.
+     */
+    private boolean mRetainSnapshots = true;
+    /**
+     * Models parsed ahead of the update currently being applied, by snapshot identity.
+     */
+    private Map<S, T> mParsedModels;
+
+    /**
+     * How long to keep listening after the last listener is removed, see {@link
+     * #setLingerTimeout(long)}.
+     */
+    private long mLingerMillis;
+    /**
+     * The delayed {@link #onDestroy()} while the array lingers without listeners, or null.
+     */
+    private Runnable mPendingDestroy;
+    private long mColdStartCount;
+    private long mWarmResumeCount;
+    private long mExpiredCount;
+
+    private MetricsListener mMetricsListener;
+
     /**
      * Create an BaseObservableSnapshotArray with a custom {@link BaseSnapshotParser}.
      *
@@ -46,12 +112,42 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
     @NonNull
     protected abstract List<S> getSnapshots();
 
+    /**
+     * Create a list suitable to be returned from {@link #getSnapshots()} which supports {@link
+     * #setRetainSnapshots(boolean) releasing snapshots}.
+     *
+     * @param items the positional list to store the items in, owned by the returned list.
+     */
+    @NonNull
+    protected final List<S> newSnapshotList(@NonNull List<Object> items) {
+        return new SnapshotList(items);
+    }
+
     @Override
     @NonNull
+    @SuppressWarnings("unchecked")
     public T get(int index) {
+        List<S> snapshots = getSnapshots();
+        if (snapshots instanceof BaseObservableSnapshotArray.SnapshotList) {
+            return ((SnapshotList) snapshots).getModel(index);
+        }
         return mCachingParser.parseSnapshot(getSnapshot(index));
     }
 
+    /**
+     * Returns the key of the item at the specified position, which is available even if the
+     * array does not {@link #setRetainSnapshots(boolean) retain snapshots}.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public String getKey(int index) {
+        List<S> snapshots = getSnapshots();
+        if (snapshots instanceof BaseObservableSnapshotArray.SnapshotList) {
+            return ((SnapshotList) snapshots).getKey(index);
+        }
+        return mCachingParser.getId(getSnapshot(index));
+    }
+
     @Override
     public int size() {
         return getSnapshots().size();
@@ -64,31 +160,197 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
      * @return the snapshot at the specified position in this list
      * @throws IndexOutOfBoundsException if the index is out of range (<tt>index &lt; 0 || index
      *                                   &gt;= size()</tt>)
+     * @throws IllegalStateException     if the array does not {@link #setRetainSnapshots(boolean)
+     *                                   retain snapshots}.
      */
     @NonNull
     public S getSnapshot(int index) {
         return getSnapshots().get(index);
     }
 
+    /**
+     * Parse a snapshot which was copied out of this array, for example to be diffed off the main
+     * thread, using the array's parser and model cache. If the item has changed since, the model
+     * of its latest version may be returned.
+     */
+    @NonNull
+    public T parseSnapshot(@NonNull S snapshot) {
+        return mCachingParser.parseDetached(snapshot);
+    }
+
+    /**
+     * Set an {@link Executor} on which incoming snapshots are parsed before they are applied to
+     * the array. Listeners are only notified of a change once its models are ready, so calls to
+     * {@link #get(int)} from the UI thread are reduced to a cache lookup.
+     * <p>
+     * By default ({@code null}) snapshots are parsed lazily on first access. Models parsed ahead
+     * of time are kept until they are first accessed, and only then become subject to the {@link
+     * #setCachePolicy(CachePolicy) cache policy}. Updates whose parsing finishes before the main
+     * thread gets to them are applied together, as a single batch.
+     *
+     * @param executor the executor to parse snapshots on, or {@code null} to parse lazily.
+     */
+    public void setParseExecutor(@Nullable Executor executor) {
+        mParseExecutor = executor;
+    }
+
+    /**
+     * Set whether the full snapshot of every item is kept for as long as the array is listening.
+     * <p>
+     * Snapshots hold on to the SDK's internal representation of their data, which for large lists
+     * takes up many times the memory of the parsed models. With {@code false}, each snapshot is
+     * parsed as soon as it is added to the array and only its key and model are kept, outside of
+     * the model cache. {@link #getSnapshot(int)} then throws, and since new listeners are caught up
+     * with the existing snapshots, only {@link BaseInitialDataListener}s can be added while the
+     * array holds items. Parsing happens on the main thread unless a {@link
+     * #setParseExecutor(Executor) parse executor} is set.
+     * <p>
+     * Snapshots are retained by default. Can only be changed while the array is not listening.
+     *
+     * @throws UnsupportedOperationException if {@code retain} is false and the array keeps its
+     *                                       snapshots in a list not created by {@link
+     *                                       #newSnapshotList(List)}.
+     */
+    public void setRetainSnapshots(boolean retain) {
+        if (isActive()) {
+            throw new IllegalStateException("Cannot change snapshot retention while listening");
+        }
+        if (!retain && !(getSnapshots() instanceof BaseObservableSnapshotArray.SnapshotList)) {
+            throw new UnsupportedOperationException(
+                    getClass().getSimpleName() + " cannot release its snapshots");
+        }
+        mRetainSnapshots = retain;
+    }
+
+    /**
+     * @return whether the full snapshot of every item is kept, see {@link
+     * #setRetainSnapshots(boolean)}.
+     */
+    public boolean isRetainingSnapshots() {
+        return mRetainSnapshots;
+    }
+
+    /**
+     * Keep the array listening to the database for {@code millis} after its last listener is
+     * removed, instead of tearing it down right away. If a listener is added in the meantime, it is
+     * caught up with the data that is already loaded and parsed rather than waiting for the whole
+     * query to be downloaded again.
+     * <p>
+     * Adapters stop listening when their lifecycle owner is stopped, so a grace period of a few
+     * seconds keeps lists warm across configuration changes and short trips to the background.
+     * <p>
+     * Defaults to 0, which calls {@link #onDestroy()} as soon as the last listener is removed.
+     *
+     * @see #getLingerStats()
+     */
+    public void setLingerTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Linger timeout cannot be negative");
+        }
+        mLingerMillis = millis;
+    }
+
+    /**
+     * @return how often listeners were served from a lingering array, see {@link
+     * #setLingerTimeout(long)}.
+     */
+    @NonNull
+    public LingerStats getLingerStats() {
+        return new LingerStats(mColdStartCount, mWarmResumeCount, mExpiredCount);
+    }
+
+    /**
+     * Set the {@link CachePolicy} of the parsed model cache. Models cached so far are discarded.
+     * <p>
+     * By default, the {@link CachePolicy#DEFAULT_MAX_ENTRIES} most recently used models are kept.
+     */
+    public void setCachePolicy(@NonNull CachePolicy<T> policy) {
+        mCachingParser.setCachePolicy(Preconditions.checkNotNull(policy));
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of the parsed model cache.
+     */
+    @NonNull
+    public CacheStats getCacheStats() {
+        return mCachingParser.getStats();
+    }
+
+    /**
+     * Set the listener receiving this array's metrics, or {@code null} to fall back to the {@link
+     * Metrics#getGlobalListener() global listener}.
+     */
+    public void setMetricsListener(@Nullable MetricsListener listener) {
+        mMetricsListener = listener;
+        mCachingParser.setMetricsListener(listener);
+    }
+
+    /**
+     * @return the listener receiving this array's metrics, or {@code null} if metrics are disabled.
+     */
+    @Nullable
+    public MetricsListener getMetricsListener() {
+        return Metrics.resolve(mMetricsListener);
+    }
+
+    /**
+     * Report that subclasses attached {@code delta} database listeners, or detached them if
+     * negative.
+     */
+    protected final void reportDatabaseListeners(int delta) {
+        Metrics.updateActiveListenerCount(delta, getMetricsListener());
+    }
+
+    /**
+     * Called by adapters when the item at {@code index} is bound to a view. Arrays can use this to
+     * prioritize work for the items the user is currently looking at.
+     */
+    public void onItemBound(int index) {}
+
     /**
      * Attach a {@link BaseChangeEventListener} to this array. The listener will receive one {@link
      * ChangeEventType#ADDED} event for each item that already exists in the array at the time of
-     * attachment, a {@link BaseChangeEventListener#onDataChanged()} event if one has occurred, and
-     * then receive all future child events.
+     * attachment (or a single {@link BaseInitialDataListener#onInitialData(int)} call), a {@link
+     * BaseChangeEventListener#onDataChanged()} event if one has occurred, and then receive all
+     * future child events.
      * <p>
      * If this is the first listener, {@link #onCreate()} will be called.
      */
     @CallSuper
     @NonNull
+    @SuppressWarnings("unchecked")
     public L addChangeEventListener(@NonNull L listener) {
         Preconditions.checkNotNull(listener);
-        boolean wasListening = isListening();
+        boolean wasListening = isActive();
+        if (mPendingDestroy != null) {
+            getMainHandler().removeCallbacks(mPendingDestroy);
+            mPendingDestroy = null;
+            mWarmResumeCount++;
+        } else if (!wasListening) {
+            mColdStartCount++;
+        }
 
+        if (mPendingBatch != null) {
+            // The catch-up below already reflects the pending events, so make sure the new
+            // listener won't receive them a second time.
+            endBatch();
+            beginBatch();
+        }
+        boolean catchUpInBulk = listener instanceof BaseInitialDataListener;
+        if (!catchUpInBulk && !mRetainSnapshots && size() > 0) {
+            throw new IllegalStateException(ERR_RELEASED);
+        }
         mListeners.add(listener);
 
         // Catch up new listener to existing state
-        for (int i = 0; i < size(); i++) {
-            listener.onChildChanged(ChangeEventType.ADDED, getSnapshot(i), i, -1);
+        if (catchUpInBulk) {
+            if (size() > 0) {
+                ((BaseInitialDataListener<S, E>) listener).onInitialData(size());
+            }
+        } else {
+            for (int i = 0; i < size(); i++) {
+                listener.onChildChanged(ChangeEventType.ADDED, getSnapshot(i), i, -1);
+            }
         }
         if (mHasDataChanged) {
             listener.onDataChanged();
@@ -102,7 +364,8 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
     /**
      * Remove a listener from the array.
      * <p>
-     * If no listeners remain, {@link #onDestroy()} will be called.
+     * If no listeners remain, {@link #onDestroy()} will be called, after the {@link
+     * #setLingerTimeout(long) linger timeout} if there is one.
      */
     @CallSuper
     public void removeChangeEventListener(@NonNull L listener) {
@@ -112,17 +375,33 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
 
         mListeners.remove(listener);
 
-        if (!isListening() && wasListening) { onDestroy(); }
+        if (!isListening() && wasListening) {
+            if (mLingerMillis > 0) {
+                mPendingDestroy = () -> {
+                    mPendingDestroy = null;
+                    mExpiredCount++;
+                    onDestroy();
+                };
+                getMainHandler().postDelayed(mPendingDestroy, mLingerMillis);
+            } else {
+                onDestroy();
+            }
+        }
     }
 
     /**
-     * Remove all listeners from the array and reset its state.
+     * Remove all listeners from the array and reset its state, without lingering.
      */
     @CallSuper
     public void removeAllListeners() {
         for (L listener : mListeners) {
             removeChangeEventListener(listener);
         }
+        if (mPendingDestroy != null) {
+            getMainHandler().removeCallbacks(mPendingDestroy);
+            mPendingDestroy = null;
+            onDestroy();
+        }
     }
 
     /**
@@ -141,6 +420,8 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
     @CallSuper
     protected void onDestroy() {
         mHasDataChanged = false;
+        mPendingBatch = null;
+        mPendingUpdates.clear();
         getSnapshots().clear();
         mCachingParser.clear();
     }
@@ -153,6 +434,14 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
         return !mListeners.isEmpty();
     }
 
+    /**
+     * @return true if the array is listening to the database, either for its listeners or because
+     * it is lingering after the last one was removed.
+     */
+    private boolean isActive() {
+        return isListening() || mPendingDestroy != null;
+    }
+
     /**
      * @return true if the provided listener is listening for changes
      */
@@ -168,6 +457,113 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
         notifyOnDataChanged();
     }
 
+    /**
+     * Run an update to the array once {@code snapshots} have been parsed on the {@link
+     * #setParseExecutor(Executor) parse executor}. Updates always run on the main thread in the
+     * order they were submitted. Without a parse executor, the update runs immediately.
+     *
+     * @param snapshots the snapshots the update will add or change, to be parsed ahead of time.
+     * @param update    the update which modifies the array and notifies listeners.
+     */
+    protected final void runWhenParsed(@NonNull final List<S> snapshots,
+                                       @NonNull Runnable update) {
+        final Executor executor = mParseExecutor;
+        if (executor == null && mPendingUpdates.isEmpty()) {
+            update.run();
+            return;
+        }
+
+        final PendingUpdate pending = new PendingUpdate(snapshots, update);
+        mPendingUpdates.add(pending);
+        if (executor == null || snapshots.isEmpty()) {
+            pending.mModels = Collections.emptyList();
+            drainPendingUpdates();
+            return;
+        }
+
+        final Handler mainHandler = getMainHandler();
+        executor.execute(() -> {
+            List<T> models = new ArrayList<>(snapshots.size());
+            for (S snapshot : snapshots) {
+                models.add(mCachingParser.parseUncached(snapshot));
+            }
+            pending.mModels = models;
+            if (mDrainScheduled.compareAndSet(false, true)) {
+                mainHandler.post(mDrain);
+            }
+        });
+    }
+
+    @NonNull
+    private Handler getMainHandler() {
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mMainHandler;
+    }
+
+    /**
+     * Apply every update at the head of the queue whose snapshots are parsed, in order, and then
+     * close the batch they were applied in.
+     */
+    private void drainPendingUpdates() {
+        while (!mPendingUpdates.isEmpty() && mPendingUpdates.peek().mModels != null) {
+            PendingUpdate pending = mPendingUpdates.remove();
+            List<T> models = pending.mModels;
+            if (!mRetainSnapshots) {
+                // Released snapshots keep their model directly, skip the cache
+                mParsedModels = new IdentityHashMap<>();
+                for (int i = 0; i < models.size(); i++) {
+                    mParsedModels.put(pending.mSnapshots.get(i), models.get(i));
+                }
+                pending.mUpdate.run();
+                mParsedModels = null;
+                continue;
+            }
+            pending.mUpdate.run();
+
+            // Changes invalidate the cache, so the fresh models go in after the update
+            for (int i = 0; i < models.size(); i++) {
+                mCachingParser.prefetch(pending.mSnapshots.get(i), models.get(i));
+            }
+        }
+
+        // The next update might not be parsed before we return to the looper
+        endBatch();
+    }
+
+    /**
+     * Start buffering child events for {@link BaseBatchChangeEventListener}s until {@link
+     * #endBatch()} or {@link #notifyOnDataChanged()} is called. Other listeners keep receiving
+     * child events immediately.
+     * <p>
+     * Subclasses should only open a batch when they are guaranteed to close it before control
+     * returns to the main looper, otherwise batch listeners would be out of sync with the array.
+     */
+    protected final void beginBatch() {
+        if (mPendingBatch == null) {
+            mPendingBatch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Deliver all buffered child events to {@link BaseBatchChangeEventListener}s and close the
+     * current batch, if any.
+     */
+    @SuppressWarnings("unchecked")
+    protected final void endBatch() {
+        List<ChangeEvent<S>> events = mPendingBatch;
+        mPendingBatch = null;
+        if (events == null || events.isEmpty()) { return; }
+
+        events = Collections.unmodifiableList(events);
+        for (L listener : mListeners) {
+            if (listener instanceof BaseBatchChangeEventListener) {
+                ((BaseBatchChangeEventListener<S, E>) listener).onBatchChanged(events);
+            }
+        }
+    }
+
     protected final void notifyOnChildChanged(@NonNull ChangeEventType type,
                                               @NonNull S snapshot,
                                               int newIndex,
@@ -175,13 +571,22 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
         if (type == ChangeEventType.CHANGED || type == ChangeEventType.REMOVED) {
             mCachingParser.invalidate(snapshot);
         }
+        MetricsListener metrics = getMetricsListener();
+        if (metrics != null) { metrics.onChangeEvent(type); }
+
+        boolean batching = mPendingBatch != null;
+        if (batching) {
+            mPendingBatch.add(new ChangeEvent<>(type, snapshot, newIndex, oldIndex));
+        }
 
         for (L listener : mListeners) {
+            if (batching && listener instanceof BaseBatchChangeEventListener) { continue; }
             listener.onChildChanged(type, snapshot, newIndex, oldIndex);
         }
     }
 
     protected final void notifyOnDataChanged() {
+        endBatch();
         mHasDataChanged = true;
 
         for (L listener : mListeners) {
@@ -190,8 +595,118 @@ public abstract class BaseObservableSnapshotArray<S, E, L extends BaseChangeEven
     }
 
     protected final void notifyOnError(@NonNull E e) {
+        endBatch();
         for (L listener : mListeners) {
             listener.onError(e);
         }
     }
+
+    /**
+     * Stores snapshots as is while they are retained, otherwise replaces each one by its key and
+     * parsed model as soon as it is added.
+     */
+    private final class SnapshotList extends AbstractList<S> implements RandomAccess {
+        private final List<Object> mItems;
+
+        SnapshotList(List<Object> items) {
+            mItems = items;
+        }
+
+        @Override
+        public int size() {
+            return mItems.size();
+        }
+
+        @Override
+        public S get(int index) {
+            Object item = mItems.get(index);
+            if (item instanceof ReleasedSnapshot) {
+                throw new IllegalStateException(ERR_RELEASED);
+            }
+            return asSnapshot(item);
+        }
+
+        @Override
+        public S set(int index, S snapshot) {
+            return asSnapshot(mItems.set(index, toItem(snapshot)));
+        }
+
+        @Override
+        public void add(int index, S snapshot) {
+            mItems.add(index, toItem(snapshot));
+            modCount++;
+        }
+
+        @Override
+        public S remove(int index) {
+            modCount++;
+            return asSnapshot(mItems.remove(index));
+        }
+
+        @Override
+        public void clear() {
+            mItems.clear();
+            modCount++;
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        String getKey(int index) {
+            Object item = mItems.get(index);
+            if (item instanceof ReleasedSnapshot) {
+                return ((ReleasedSnapshot<T>) item).mKey;
+            }
+            return mCachingParser.getId(asSnapshot(item));
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        T getModel(int index) {
+            Object item = mItems.get(index);
+            if (item instanceof ReleasedSnapshot) {
+                return ((ReleasedSnapshot<T>) item).mModel;
+            }
+            return mCachingParser.parseSnapshot(asSnapshot(item));
+        }
+
+        private Object toItem(S snapshot) {
+            if (mRetainSnapshots) { return snapshot; }
+
+            T model = mParsedModels == null ? null : mParsedModels.get(snapshot);
+            if (model == null) {
+                model = mCachingParser.parseUncached(snapshot);
+            }
+            return new ReleasedSnapshot<>(mCachingParser.getId(snapshot), model);
+        }
+
+        /**
+         * @return the snapshot stored in {@code item}, or null if it has been released.
+         */
+        @SuppressWarnings("unchecked")
+        private S asSnapshot(Object item) {
+            return item instanceof ReleasedSnapshot ? null : (S) item;
+        }
+    }
+
+    private static final class ReleasedSnapshot<T> {
+        final String mKey;
+        final T mModel;
+
+        ReleasedSnapshot(String key, T model) {
+            mKey = key;
+            mModel = model;
+        }
+    }
+
+    private final class PendingUpdate {
+        final List<S> mSnapshots;
+        final Runnable mUpdate;
+        /** Parsed models matching {@link #mSnapshots}, or null if still parsing. */
+        volatile List<T> mModels;
+
+        PendingUpdate(List<S> snapshots, Runnable update) {
+            mSnapshots = snapshots;
+            mUpdate = update;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+/**
+ * Describes how many parsed model objects an observable snapshot array keeps in memory.
+ * <p>
+ * Models are cached by snapshot key/id and dropped when the array stops listening, regardless of
+ * the policy.
+ *
+ * @param <T> the model object class.
+ */
+public final class CachePolicy<T> {
+
+    /**
+     * The number of entries cached when no policy is specified.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100;
+
+    private final int mMaxSize;
+    private final Sizer<T> mSizer;
+
+    private CachePolicy(int maxSize, @NonNull Sizer<T> sizer) {
+        mMaxSize = maxSize;
+        mSizer = sizer;
+    }
+
+    /**
+     * Keep at most {@code count} models, evicting the least recently used ones first.
+     */
+    @NonNull
+    public static <T> CachePolicy<T> maxEntries(@IntRange(from = 1) int count) {
+        return maxSize(count, model -> 1);
+    }
+
+    /**
+     * Keep models until their combined size, as estimated by {@code sizer}, reaches {@code
+     * maxSize}, evicting the least recently used ones first. The unit of the size (bytes,
+     * kilobytes, ...) is up to the {@link Sizer}.
+     */
+    @NonNull
+    public static <T> CachePolicy<T> maxSize(@IntRange(from = 1) int maxSize,
+                                             @NonNull Sizer<T> sizer) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        return new CachePolicy<>(maxSize, Preconditions.checkNotNull(sizer));
+    }
+
+    /**
+     * Keep every parsed model for as long as the array is listening. Use this when the whole list
+     * is scrolled through regularly and memory is not a concern.
+     */
+    @NonNull
+    public static <T> CachePolicy<T> cacheAll() {
+        return maxSize(Integer.MAX_VALUE, model -> 1);
+    }
+
+    /**
+     * @return the maximum size of the cache, in units of the {@link #getSizer() sizer}.
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return the sizer used to measure cached models.
+     */
+    @NonNull
+    public Sizer<T> getSizer() {
+        return mSizer;
+    }
+
+    /**
+     * Estimates the size of a model object in the cache.
+     *
+     * @param <T> the model object class.
+     */
+    public interface Sizer<T> {
+
+        /**
+         * @return the size of {@code model}, must not be negative.
+         */
+        int sizeOf(@NonNull T model);
+
+    }
+}
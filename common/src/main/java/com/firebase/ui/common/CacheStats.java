@@ -0,0 +1,82 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A point-in-time snapshot of the counters of a model cache. Counters accumulate over the lifetime
+ * of the cache and are not reset when it is cleared.
+ *
+ * @see CachePolicy
+ */
+public final class CacheStats {
+
+    private final long mHitCount;
+    private final long mMissCount;
+    private final long mEvictionCount;
+    private final int mSize;
+    private final int mMaxSize;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, int size, int maxSize) {
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mEvictionCount = evictionCount;
+        mSize = size;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the number of lookups that returned a cached model.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of lookups that had to parse the snapshot.
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return the number of models dropped to make room for others. Models dropped when the
+     * cache is cleared, for example when an adapter restarts, are not counted.
+     */
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * @return the ratio of hits to total lookups, or 0 if there haven't been any lookups.
+     */
+    public double getHitRatio() {
+        long total = mHitCount + mMissCount;
+        return total == 0 ? 0 : (double) mHitCount / total;
+    }
+
+    /**
+     * @return the current size of the cache, in units of the {@link CachePolicy.Sizer}.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return the maximum size of the cache, in units of the {@link CachePolicy.Sizer}.
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + mHitCount +
+                ", misses=" + mMissCount +
+                ", evictions=" + mEvictionCount +
+                ", size=" + mSize +
+                ", maxSize=" + mMaxSize +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A single child event emitted by a {@link BaseObservableSnapshotArray}, as delivered to a {@link
+ * BaseBatchChangeEventListener}.
+ *
+ * @param <S> the snapshot class.
+ * @see BaseChangeEventListener#onChildChanged(ChangeEventType, Object, int, int)
+ */
+public final class ChangeEvent<S> {
+
+    private final ChangeEventType mType;
+    private final S mSnapshot;
+    private final int mNewIndex;
+    private final int mOldIndex;
+
+    public ChangeEvent(@NonNull ChangeEventType type,
+                       @NonNull S snapshot,
+                       int newIndex,
+                       int oldIndex) {
+        mType = type;
+        mSnapshot = snapshot;
+        mNewIndex = newIndex;
+        mOldIndex = oldIndex;
+    }
+
+    /**
+     * @return the type of the event.
+     */
+    @NonNull
+    public ChangeEventType getType() {
+        return mType;
+    }
+
+    /**
+     * @return the snapshot of the changed child.
+     */
+    @NonNull
+    public S getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * @return the new index of the element, or -1 if it is no longer present.
+     */
+    public int getNewIndex() {
+        return mNewIndex;
+    }
+
+    /**
+     * @return the previous index of the element, or -1 if it was not previously tracked.
+     */
+    public int getOldIndex() {
+        return mOldIndex;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "ChangeEvent{" +
+                "type=" + mType +
+                ", newIndex=" + mNewIndex +
+                ", oldIndex=" + mOldIndex +
+                '}';
+    }
+}
@@ -0,0 +1,289 @@
+package com.firebase.ui.common;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * A positional list which stores its elements in a sequence of bounded chunks, with a Fenwick tree
+ * over the chunk sizes to find the chunk holding a given position.
+ * <p>
+ * Inserting or removing at an arbitrary position only shifts the elements of a single chunk, so it
+ * costs O(log n) plus the chunk size instead of moving every element after it as {@link
+ * ArrayList} does. Random access is O(log n), and consecutive accesses within the same chunk, as
+ * when iterating or binding adjacent rows, are O(1).
+ * <p>
+ * Lists created with an identity index can also find the position of an element in O(log n) plus
+ * the chunk size through {@link #identityIndexOf(Object)}, at the cost of a map update for every
+ * change. Elements of such lists must be distinct instances.
+ * <p>
+ * Not thread safe.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * Default maximum number of elements per chunk. Large enough that the chunk index stays small,
+     * small enough that shifting a chunk is a cheap, cache friendly copy.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final int mMaxChunkSize;
+    private final List<Chunk<E>> mChunks = new ArrayList<>();
+    /**
+     * The chunk holding each element, or null if the list has no identity index.
+     */
+    @Nullable
+    private final Map<Object, Chunk<E>> mChunkOf;
+
+    /**
+     * 1-based Fenwick tree of chunk sizes, rebuilt whenever chunks are added or removed.
+     */
+    private int[] mTree = new int[1];
+    private int mSize;
+
+    /**
+     * The last chunk located and the position of its first element, or -1 if it is stale.
+     */
+    private int mCachedChunk = -1;
+    private int mCachedChunkStart;
+
+    public ChunkedList() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedList(int maxChunkSize) {
+        this(maxChunkSize, false);
+    }
+
+    /**
+     * @param identityIndexed true to support {@link #identityIndexOf(Object)}.
+     */
+    public ChunkedList(int maxChunkSize, boolean identityIndexed) {
+        if (maxChunkSize < 2) {
+            throw new IllegalArgumentException("Chunks must hold at least 2 elements");
+        }
+        mMaxChunkSize = maxChunkSize;
+        mChunkOf = identityIndexed ? new IdentityHashMap<Object, Chunk<E>>() : null;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public E get(int index) {
+        checkElementIndex(index);
+        int chunk = locate(index);
+        return mChunks.get(chunk).get(index - mCachedChunkStart);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        Chunk<E> chunk = mChunks.get(locate(index));
+        E previous = chunk.set(index - mCachedChunkStart, element);
+        if (mChunkOf != null) {
+            mChunkOf.remove(previous);
+            mChunkOf.put(element, chunk);
+        }
+        return previous;
+    }
+
+    /**
+     * Find the position of {@code element} by identity rather than equality.
+     *
+     * @return the position of the element, or -1 if it isn't part of the list.
+     * @throws UnsupportedOperationException if the list was created without an identity index.
+     */
+    public int identityIndexOf(@Nullable Object element) {
+        if (mChunkOf == null) {
+            throw new UnsupportedOperationException("List has no identity index");
+        }
+
+        Chunk<E> chunk = mChunkOf.get(element);
+        if (chunk == null) { return -1; }
+
+        int start = 0;
+        for (int i = chunk.mIndex; i > 0; i -= i & -i) {
+            start += mTree[i];
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i) == element) { return start + i; }
+        }
+        throw new IllegalStateException("Identity index out of sync");
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+
+        int chunkIndex;
+        int offset;
+        if (index == mSize) {
+            // Appending is the common case during an initial load, keep filling the last chunk
+            chunkIndex = mChunks.size() - 1;
+            if (chunkIndex == -1 || mChunks.get(chunkIndex).size() >= mMaxChunkSize) {
+                mChunks.add(new Chunk<E>(mMaxChunkSize));
+                chunkIndex++;
+                rebuildTree();
+            }
+            offset = mChunks.get(chunkIndex).size();
+        } else {
+            chunkIndex = locate(index);
+            offset = index - mCachedChunkStart;
+        }
+
+        Chunk<E> chunk = mChunks.get(chunkIndex);
+        chunk.add(offset, element);
+        if (mChunkOf != null) { mChunkOf.put(element, chunk); }
+        mSize++;
+        modCount++;
+
+        if (chunk.size() > mMaxChunkSize) {
+            List<E> tail = chunk.subList(chunk.size() / 2, chunk.size());
+            Chunk<E> next = new Chunk<>(mMaxChunkSize);
+            next.addAll(tail);
+            tail.clear();
+            moveToChunk(next, 0);
+            mChunks.add(chunkIndex + 1, next);
+            rebuildTree();
+        } else {
+            addToTree(chunkIndex, 1);
+        }
+        mCachedChunk = -1;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkElementIndex(index);
+        int chunkIndex = locate(index);
+
+        Chunk<E> chunk = mChunks.get(chunkIndex);
+        E removed = chunk.remove(index - mCachedChunkStart);
+        if (mChunkOf != null) { mChunkOf.remove(removed); }
+        mSize--;
+        modCount++;
+
+        if (chunk.isEmpty()) {
+            mChunks.remove(chunkIndex);
+            rebuildTree();
+        } else if (!mergeWithNext(chunkIndex) && !mergeWithNext(chunkIndex - 1)) {
+            addToTree(chunkIndex, -1);
+        }
+        mCachedChunk = -1;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        mChunks.clear();
+        if (mChunkOf != null) { mChunkOf.clear(); }
+        mTree = new int[1];
+        mSize = 0;
+        modCount++;
+        mCachedChunk = -1;
+    }
+
+    /**
+     * Merge the chunk at {@code chunkIndex} with the one after it if both have shrunk enough, so
+     * heavy removals don't leave behind a long tail of tiny chunks.
+     *
+     * @return true if the chunks were merged and the tree rebuilt.
+     */
+    private boolean mergeWithNext(int chunkIndex) {
+        if (chunkIndex < 0 || chunkIndex + 1 >= mChunks.size()) { return false; }
+
+        Chunk<E> chunk = mChunks.get(chunkIndex);
+        Chunk<E> next = mChunks.get(chunkIndex + 1);
+        if (chunk.size() + next.size() > mMaxChunkSize / 2) { return false; }
+
+        int start = chunk.size();
+        chunk.addAll(next);
+        moveToChunk(chunk, start);
+        mChunks.remove(chunkIndex + 1);
+        rebuildTree();
+        return true;
+    }
+
+    /**
+     * Find the chunk holding {@code index} and cache it along with the position of its first
+     * element in {@link #mCachedChunkStart}.
+     */
+    private int locate(int index) {
+        if (mCachedChunk != -1 && index >= mCachedChunkStart
+                && index < mCachedChunkStart + mChunks.get(mCachedChunk).size()) {
+            return mCachedChunk;
+        }
+
+        // Descend the tree for the last chunk whose preceding elements don't exceed index
+        int chunk = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(mChunks.size()); step > 0; step >>= 1) {
+            int next = chunk + step;
+            if (next < mTree.length && mTree[next] <= remaining) {
+                chunk = next;
+                remaining -= mTree[next];
+            }
+        }
+
+        mCachedChunk = chunk;
+        mCachedChunkStart = index - remaining;
+        return chunk;
+    }
+
+    /**
+     * Update the identity index for the elements of {@code chunk} from {@code start} on, which
+     * were just moved there from another chunk.
+     */
+    private void moveToChunk(Chunk<E> chunk, int start) {
+        if (mChunkOf == null) { return; }
+        for (int i = start; i < chunk.size(); i++) {
+            mChunkOf.put(chunk.get(i), chunk);
+        }
+    }
+
+    private void addToTree(int chunkIndex, int delta) {
+        for (int i = chunkIndex + 1; i < mTree.length; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    private void rebuildTree() {
+        int count = mChunks.size();
+        mTree = new int[count + 1];
+        for (int i = 1; i <= count; i++) {
+            Chunk<E> chunk = mChunks.get(i - 1);
+            chunk.mIndex = i - 1;
+            mTree[i] += chunk.size();
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private static final class Chunk<E> extends ArrayList<E> {
+        /** Position of this chunk in the list of chunks, updated whenever the tree is rebuilt */
+        int mIndex;
+
+        Chunk(int capacity) {
+            super(capacity);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.firebase.ui.common;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate snapshot parsers for a model class at compile time, so that snapshots are parsed
+ * without the reflection used by the SDKs' class mappers.
+ * <p>
+ * With the {@code firebase-ui-processor} annotation processor enabled, a parser is generated for
+ * each FirebaseUI module on the classpath: {@code Chat_DatabaseSnapshotParser} and {@code
+ * Chat_FirestoreSnapshotParser} for a {@code Chat} model. The options builders use them
+ * automatically wherever a model class is passed in instead of a parser.
+ * <p>
+ * Models follow the same rules as for the SDKs' class mappers: they need a non-private no-argument
+ * constructor, and properties are set through public setters or fields, or package-private ones
+ * declared in the model's package. {@code PropertyName}, {@code Exclude} and Firestore's {@code
+ * DocumentId} annotations are honored. Properties missing from a snapshot keep their default
+ * value. Properties the processor can't convert without reflection, like lists of numbers, are
+ * reported as compile errors.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateSnapshotParser {}
@@ -0,0 +1,70 @@
+package com.firebase.ui.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Finds the parsers generated for models annotated with {@link GenerateSnapshotParser}.
+ * <p>
+ * A generated parser is named after its model, with nested class names joined by underscores and
+ * a per-module suffix: {@code Outer.Chat} in {@code com.example} gets {@code
+ * com.example.Outer_Chat_DatabaseSnapshotParser}. Lookups are cached, so a model class is only
+ * resolved once per process.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class GeneratedParsers {
+    public static final String DATABASE_SUFFIX = "_DatabaseSnapshotParser";
+    public static final String FIRESTORE_SUFFIX = "_FirestoreSnapshotParser";
+
+    private static final Object MISSING = new Object();
+    private static final Map<String, Object> PARSERS = new HashMap<>();
+
+    private GeneratedParsers() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return the shared instance of the parser generated for {@code modelClass} with the given
+     * suffix, or null if none was generated.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <P> P find(@NonNull Class<?> modelClass, @NonNull String suffix) {
+        String name = getParserName(modelClass, suffix);
+        synchronized (PARSERS) {
+            Object parser = PARSERS.get(name);
+            if (parser == null) {
+                parser = load(modelClass, name);
+                PARSERS.put(name, parser);
+            }
+            return parser == MISSING ? null : (P) parser;
+        }
+    }
+
+    @NonNull
+    static String getParserName(@NonNull Class<?> modelClass, @NonNull String suffix) {
+        String name = modelClass.getName();
+        int start = name.lastIndexOf('.') + 1;
+        return name.substring(0, start) + name.substring(start).replace('$', '_') + suffix;
+    }
+
+    @NonNull
+    private static Object load(@NonNull Class<?> modelClass, @NonNull String name) {
+        Class<?> parserClass;
+        try {
+            parserClass = Class.forName(name, true, modelClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return MISSING;
+        }
+
+        try {
+            return parserClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create generated parser " + name, e);
+        }
+    }
+}
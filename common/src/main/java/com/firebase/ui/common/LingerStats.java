@@ -0,0 +1,62 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A point-in-time snapshot of how often an array was resumed while it was still warm. Counters
+ * accumulate over the lifetime of the array.
+ *
+ * @see BaseObservableSnapshotArray#setLingerTimeout(long)
+ */
+public final class LingerStats {
+
+    private final long mColdStartCount;
+    private final long mWarmResumeCount;
+    private final long mExpiredCount;
+
+    public LingerStats(long coldStartCount, long warmResumeCount, long expiredCount) {
+        mColdStartCount = coldStartCount;
+        mWarmResumeCount = warmResumeCount;
+        mExpiredCount = expiredCount;
+    }
+
+    /**
+     * @return the number of times the array started listening to the database from scratch.
+     */
+    public long getColdStartCount() {
+        return mColdStartCount;
+    }
+
+    /**
+     * @return the number of times a listener was added while the array was lingering, and was
+     * served the data that was already loaded.
+     */
+    public long getWarmResumeCount() {
+        return mWarmResumeCount;
+    }
+
+    /**
+     * @return the number of times the linger timeout ran out and the array was torn down.
+     */
+    public long getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    /**
+     * @return the ratio of warm resumes to all starts, or 0 if the array never started.
+     */
+    public double getWarmResumeRatio() {
+        long total = mColdStartCount + mWarmResumeCount;
+        return total == 0 ? 0 : (double) mWarmResumeCount / total;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "LingerStats{" +
+                "coldStarts=" + mColdStartCount +
+                ", warmResumes=" + mWarmResumeCount +
+                ", expired=" + mExpiredCount +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.firebase.ui.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Process-wide entry point for {@link MetricsListener}s.
+ * <p>
+ * Without a listener, the only cost metrics add is a null check at each measuring point.
+ */
+public final class Metrics {
+    private static final AtomicInteger sActiveListenerCount = new AtomicInteger();
+    private static volatile MetricsListener sGlobalListener;
+
+    private Metrics() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * Set the listener receiving the metrics of every array and adapter that has no listener of
+     * its own, or {@code null} to stop collecting them.
+     */
+    public static void setGlobalListener(@Nullable MetricsListener listener) {
+        sGlobalListener = listener;
+    }
+
+    @Nullable
+    public static MetricsListener getGlobalListener() {
+        return sGlobalListener;
+    }
+
+    /**
+     * @return the number of database listeners attached by all arrays in the process.
+     */
+    public static int getActiveListenerCount() {
+        return sActiveListenerCount.get();
+    }
+
+    /**
+     * @return {@code listener} if it isn't null, the global listener otherwise.
+     */
+    @Nullable
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public static MetricsListener resolve(@Nullable MetricsListener listener) {
+        return listener != null ? listener : sGlobalListener;
+    }
+
+    /**
+     * Record that {@code delta} database listeners were attached, or detached if negative.
+     */
+    static void updateActiveListenerCount(int delta, @Nullable MetricsListener listener) {
+        int count = sActiveListenerCount.addAndGet(delta);
+        if (listener != null) {
+            listener.onActiveListenersChanged(count);
+        }
+    }
+}
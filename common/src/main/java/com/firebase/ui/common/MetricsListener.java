@@ -0,0 +1,68 @@
+package com.firebase.ui.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives performance metrics from snapshot arrays, adapters and paging adapters, for example to
+ * forward them to a telemetry system. Override the callbacks of interest, the others do nothing.
+ * <p>
+ * Register a listener for everything with {@link Metrics#setGlobalListener(MetricsListener)}, or
+ * for a single adapter through its options builder, which takes precedence over the global one.
+ * Callbacks are made inline with the measured work, so implementations should only record values
+ * and never block. Unless noted otherwise they are made on the main thread.
+ */
+public abstract class MetricsListener {
+
+    /**
+     * Called for every child event an array dispatches to its listeners.
+     */
+    public void onChangeEvent(@NonNull ChangeEventType type) {
+    }
+
+    /**
+     * Called when a snapshot was parsed into a model object. May be called on the thread of an
+     * array's parse executor.
+     *
+     * @param nanos the time spent in the {@code SnapshotParser}.
+     */
+    public void onSnapshotParsed(long nanos) {
+    }
+
+    /**
+     * Called when an array looks up the parsed model of a snapshot in its cache.
+     *
+     * @param hit true if the model was cached, false if the snapshot had to be parsed.
+     * @see CacheStats
+     */
+    public void onCacheLookup(boolean hit) {
+    }
+
+    /**
+     * Called when an adapter has bound an item to a view holder.
+     *
+     * @param nanos the time spent parsing the item, if needed, and binding it.
+     */
+    public void onItemBound(long nanos) {
+    }
+
+    /**
+     * Called when a paging adapter has loaded a page.
+     *
+     * @param nanos          the time from the start of the load until the page was presented.
+     * @param itemCountDelta how much the adapter's item count changed over the load, or its item
+     *                       count after a refresh. This is not the size of the loaded page when
+     *                       the load also dropped items, for example pages evicted to stay under
+     *                       the {@code PagingConfig}'s maximum size, in which case it can be
+     *                       negative.
+     */
+    public void onPageLoaded(long nanos, int itemCountDelta) {
+    }
+
+    /**
+     * Called when an array attaches or detaches database listeners.
+     *
+     * @param count the number of database listeners attached by all arrays in the process.
+     */
+    public void onActiveListenersChanged(int count) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.firebase.ui.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Converts model objects to and from a compact binary form, so they can be persisted by a {@link
+ * ModelSnapshotStore}.
+ * <p>
+ * Writing happens on a background thread, so models must not be mutated once they are in an array.
+ *
+ * @param <T> the model object class.
+ */
+public interface ModelCodec<T> {
+
+    /**
+     * Write {@code model} to {@code out}.
+     */
+    void write(@NonNull T model, @NonNull DataOutput out) throws IOException;
+
+    /**
+     * Read a model written by {@link #write(Object, DataOutput)}.
+     */
+    @NonNull
+    T read(@NonNull DataInput in) throws IOException;
+
+}
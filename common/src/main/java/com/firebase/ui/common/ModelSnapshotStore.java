@@ -0,0 +1,315 @@
+package com.firebase.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Persists the ordered keys and parsed models last shown by an adapter, so that the next cold start
+ * can render them before the first event arrives from the server.
+ * <p>
+ * The file starts with a magic number, the format version and the caller's model version, followed
+ * by the entry count and, for each entry, its key and the length prefixed bytes written by the
+ * {@link ModelCodec}. A file with any other magic, format or model version is ignored and deleted,
+ * as is a file that fails to decode. Files are written to a temporary sibling and renamed over the
+ * previous one, so a crash mid-write never leaves a torn file behind.
+ * <p>
+ * Reads and writes run one at a time on a shared background thread, so a read always sees the
+ * writes requested before it.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class ModelSnapshotStore<T> {
+    private static final String TAG = "ModelSnapshotStore";
+
+    /**
+     * Default maximum number of entries persisted, enough to fill the first screens of a list
+     * without making the write on stop expensive.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 200;
+
+    private static final int MAGIC = 0x46554D53;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final Executor IO_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final File mFile;
+    private final int mModelVersion;
+    private final ModelCodec<T> mCodec;
+    private final int mMaxEntries;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /** A read started by {@link #prefetch()} which hasn't been handed over yet, guarded by this. */
+    private FutureTask<Contents<T>> mPrefetch;
+
+    /**
+     * @param file         the file to persist entries to.
+     * @param modelVersion the version of the model layout, bump it whenever the codec changes.
+     * @param codec        the codec used to read and write models.
+     * @param maxEntries   the maximum number of entries persisted.
+     */
+    public ModelSnapshotStore(@NonNull File file,
+                              int modelVersion,
+                              @NonNull ModelCodec<T> codec,
+                              int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        mFile = Preconditions.checkNotNull(file);
+        mModelVersion = modelVersion;
+        mCodec = Preconditions.checkNotNull(codec);
+        mMaxEntries = maxEntries;
+    }
+
+    public int getMaxEntries() {
+        return mMaxEntries;
+    }
+
+    /**
+     * Start reading the persisted entries on a background thread, so that they are ready by the
+     * time {@link #readAsync(ReadCallback)} is called.
+     */
+    public synchronized void prefetch() {
+        if (mPrefetch == null) {
+            mPrefetch = new FutureTask<>(this::read);
+            IO_EXECUTOR.execute(mPrefetch);
+        }
+    }
+
+    /**
+     * Read the persisted entries on a background thread, reusing a pending {@link #prefetch()},
+     * and pass them to {@code callback} on the main thread.
+     */
+    @MainThread
+    public void readAsync(@NonNull final ReadCallback<T> callback) {
+        final FutureTask<Contents<T>> read;
+        synchronized (this) {
+            read = mPrefetch == null ? new FutureTask<>(this::read) : mPrefetch;
+            mPrefetch = null;
+        }
+
+        // Queued behind the read, which has completed by the time this runs
+        IO_EXECUTOR.execute(() -> {
+            read.run();
+            final Contents<T> contents = getResult(read);
+            mMainHandler.post(() -> callback.onRead(contents));
+        });
+    }
+
+    @Nullable
+    private Contents<T> getResult(@NonNull FutureTask<Contents<T>> read) {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to read snapshot " + mFile, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Memory map and decode the persisted entries.
+     *
+     * @return the entries, or {@code null} if there are none or they could not be read.
+     */
+    @Nullable
+    @WorkerThread
+    public Contents<T> read() {
+        if (!mFile.exists()) { return null; }
+
+        try (FileInputStream stream = new FileInputStream(mFile);
+             FileChannel channel = stream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable snapshot " + mFile, e);
+            delete();
+            return null;
+        }
+    }
+
+    @Nullable
+    private Contents<T> decode(@NonNull ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC
+                || buffer.getInt() != FORMAT_VERSION
+                || buffer.getInt() != mModelVersion) {
+            delete();
+            return null;
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || count > mMaxEntries) {
+            throw new IOException("Invalid entry count " + count);
+        }
+
+        List<String> keys = new ArrayList<>(count);
+        List<T> models = new ArrayList<>(count);
+        DataInputStream in = new DataInputStream(new BufferInputStream(buffer));
+        for (int i = 0; i < count; i++) {
+            keys.add(in.readUTF());
+
+            int length = buffer.getInt();
+            ByteBuffer entry = buffer.slice();
+            entry.limit(length);
+            buffer.position(buffer.position() + length);
+
+            models.add(mCodec.read(new DataInputStream(new BufferInputStream(entry))));
+        }
+        return new Contents<>(keys, models);
+    }
+
+    /**
+     * Persist at most {@link #getMaxEntries()} of the given entries on a background thread. The
+     * models must not be mutated afterwards.
+     */
+    public void writeAsync(@NonNull List<String> keys, @NonNull List<T> models) {
+        int count = Math.min(keys.size(), mMaxEntries);
+        final Contents<T> contents = new Contents<>(
+                new ArrayList<>(keys.subList(0, count)),
+                new ArrayList<>(models.subList(0, count)));
+        synchronized (this) {
+            // A prefetched read would miss this write
+            mPrefetch = null;
+        }
+        IO_EXECUTOR.execute(() -> write(contents));
+    }
+
+    @WorkerThread
+    private void write(@NonNull Contents<T> contents) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(mModelVersion);
+            out.writeInt(contents.size());
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream entry = new DataOutputStream(bytes);
+            for (int i = 0; i < contents.size(); i++) {
+                bytes.reset();
+                mCodec.write(contents.getModel(i), entry);
+                entry.flush();
+
+                out.writeUTF(contents.getKey(i));
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to write snapshot " + mFile, e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(mFile)) {
+            Log.w(TAG, "Failed to replace snapshot " + mFile);
+            temp.delete();
+        }
+    }
+
+    private void delete() {
+        if (mFile.exists() && !mFile.delete()) {
+            Log.w(TAG, "Failed to delete snapshot " + mFile);
+        }
+    }
+
+    /**
+     * Receives the entries read by {@link #readAsync(ReadCallback)}.
+     */
+    public interface ReadCallback<T> {
+        /**
+         * @param contents the entries, or {@code null} if there are none or they could not be
+         *                 read.
+         */
+        @MainThread
+        void onRead(@Nullable Contents<T> contents);
+    }
+
+    /**
+     * The ordered keys and models read from, or written to, a store.
+     */
+    public static final class Contents<T> {
+        private final List<String> mKeys;
+        private final List<T> mModels;
+
+        Contents(@NonNull List<String> keys, @NonNull List<T> models) {
+            if (keys.size() != models.size()) {
+                throw new IllegalArgumentException("Keys and models must be the same size");
+            }
+            mKeys = Collections.unmodifiableList(keys);
+            mModels = Collections.unmodifiableList(models);
+        }
+
+        public int size() {
+            return mKeys.size();
+        }
+
+        @NonNull
+        public String getKey(int index) {
+            return mKeys.get(index);
+        }
+
+        @NonNull
+        public T getModel(int index) {
+            return mModels.get(index);
+        }
+    }
+
+    /**
+     * Reads from a {@link ByteBuffer}, advancing its position.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] bytes, int offset, int length) {
+            if (length == 0) { return 0; }
+            if (!mBuffer.hasRemaining()) { return -1; }
+
+            int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.firebase.ui.common;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Copies the contents of a {@link BaseObservableSnapshotArray} at most once per frame and diffs
+ * them against what an adapter currently displays on a background thread.
+ * <p>
+ * Each displayed item keeps the model parsed for it, so an item is parsed at most once for as
+ * long as its snapshot stays the same, whatever the array's cache policy.
+ *
+ * @param <S> the snapshot class.
+ * @param <T> the model class.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class SnapshotListDiffer<S, T> {
+    private final AsyncListDiffer<Item<S, T>> mDiffer;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> submit();
+
+    private BaseObservableSnapshotArray<S, ?, ?, T> mSnapshots;
+    private boolean mDiffScheduled;
+
+    /**
+     * @param diffExecutor the executor to compute diffs on, or {@code null} to use the default.
+     */
+    public SnapshotListDiffer(@NonNull RecyclerView.Adapter<?> adapter,
+                              @NonNull DiffUtil.ItemCallback<S> callback,
+                              @Nullable Executor diffExecutor) {
+        AsyncDifferConfig.Builder<Item<S, T>> config =
+                new AsyncDifferConfig.Builder<>(new ItemCallback<S, T>(callback));
+        if (diffExecutor != null) {
+            config.setBackgroundThreadExecutor(diffExecutor);
+        }
+        mDiffer = new AsyncListDiffer<>(new AdapterListUpdateCallback(adapter), config.build());
+    }
+
+    /**
+     * Make sure {@code snapshots} can be diffed, which needs the snapshot of every item.
+     *
+     * @throws IllegalArgumentException if the array does not {@link
+     *                                  BaseObservableSnapshotArray#setRetainSnapshots(boolean)
+     *                                  retain its snapshots}.
+     */
+    public static void checkRetainsSnapshots(
+            @NonNull BaseObservableSnapshotArray<?, ?, ?, ?> snapshots) {
+        if (!snapshots.isRetainingSnapshots()) {
+            throw new IllegalArgumentException(
+                    "Diffing adapters need an array which retains its snapshots");
+        }
+    }
+
+    /**
+     * Diff the contents of {@code snapshots} on the next frame, unless a diff is already pending.
+     * The array must still retain its snapshots by then, see {@link
+     * #checkRetainsSnapshots(BaseObservableSnapshotArray)}.
+     */
+    public void scheduleDiff(@NonNull BaseObservableSnapshotArray<S, ?, ?, T> snapshots) {
+        mSnapshots = snapshots;
+        if (!mDiffScheduled) {
+            mDiffScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Cancel any pending diff and remove every displayed item.
+     */
+    public void clear() {
+        if (mDiffScheduled) {
+            mDiffScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        mDiffer.submitList(null);
+    }
+
+    public int size() {
+        return mDiffer.getCurrentList().size();
+    }
+
+    @NonNull
+    public S getSnapshot(int position) {
+        return mDiffer.getCurrentList().get(position).mSnapshot;
+    }
+
+    @NonNull
+    public T getModel(int position) {
+        Item<S, T> item = mDiffer.getCurrentList().get(position);
+        if (item.mModel == null) {
+            item.mModel = mSnapshots.parseSnapshot(item.mSnapshot);
+        }
+        return item.mModel;
+    }
+
+    private void submit() {
+        mDiffScheduled = false;
+
+        // Carry over the models of items whose snapshot hasn't changed
+        List<Item<S, T>> current = mDiffer.getCurrentList();
+        Map<S, Item<S, T>> displayed = new IdentityHashMap<>(current.size());
+        for (Item<S, T> item : current) {
+            displayed.put(item.mSnapshot, item);
+        }
+
+        List<Item<S, T>> items = new ArrayList<>(mSnapshots.size());
+        for (int i = 0; i < mSnapshots.size(); i++) {
+            S snapshot = mSnapshots.getSnapshot(i);
+            Item<S, T> item = displayed.get(snapshot);
+            items.add(item == null ? new Item<S, T>(snapshot) : item);
+        }
+        mDiffer.submitList(items);
+    }
+
+    private static final class Item<S, T> {
+        final S mSnapshot;
+        // Only touched on the main thread
+        T mModel;
+
+        Item(@NonNull S snapshot) {
+            mSnapshot = snapshot;
+        }
+    }
+
+    private static final class ItemCallback<S, T> extends DiffUtil.ItemCallback<Item<S, T>> {
+        private final DiffUtil.ItemCallback<S> mCallback;
+
+        ItemCallback(@NonNull DiffUtil.ItemCallback<S> callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public boolean areItemsTheSame(@NonNull Item<S, T> oldItem, @NonNull Item<S, T> newItem) {
+            return mCallback.areItemsTheSame(oldItem.mSnapshot, newItem.mSnapshot);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item<S, T> oldItem,
+                                          @NonNull Item<S, T> newItem) {
+            return oldItem == newItem
+                    || mCallback.areContentsTheSame(oldItem.mSnapshot, newItem.mSnapshot);
+        }
+    }
+}
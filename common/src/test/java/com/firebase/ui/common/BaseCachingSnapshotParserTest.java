@@ -0,0 +1,49 @@
+package com.firebase.ui.common;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class BaseCachingSnapshotParserTest {
+    @Test
+    public void testClearIsNotCountedAsEvictions() {
+        TestParser parser = new TestParser(CachePolicy.<String>maxEntries(2));
+        parser.parseSnapshot("a");
+        parser.parseSnapshot("b");
+        parser.parseSnapshot("c");
+        assertEquals(1, parser.getStats().getEvictionCount());
+
+        parser.clear();
+        CacheStats stats = parser.getStats();
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(0, stats.getSize());
+
+        // Evictions after a clear, and across policy changes, are still counted
+        parser.parseSnapshot("a");
+        parser.parseSnapshot("b");
+        parser.parseSnapshot("c");
+        parser.setCachePolicy(CachePolicy.<String>maxEntries(1));
+        parser.parseSnapshot("a");
+        parser.parseSnapshot("b");
+        parser.clear();
+        assertEquals(3, parser.getStats().getEvictionCount());
+        assertEquals(8, parser.getStats().getMissCount());
+    }
+
+    private static final class TestParser extends BaseCachingSnapshotParser<String, String> {
+        TestParser(@NonNull CachePolicy<String> policy) {
+            super(snapshot -> "Model " + snapshot, policy);
+        }
+
+        @NonNull
+        @Override
+        public String getId(@NonNull String snapshot) {
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.firebase.ui.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkedListTest {
+    private static final int CHUNK_SIZE = 4;
+
+    @Test
+    public void testAppend() {
+        ChunkedList<Integer> list = new ChunkedList<>(CHUNK_SIZE);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void testInsertAtFrontSplitsChunks() {
+        ChunkedList<Integer> list = new ChunkedList<>(CHUNK_SIZE);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(0, i);
+            expected.add(0, i);
+        }
+
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void testRemoveMergesChunks() {
+        ChunkedList<Integer> list = new ChunkedList<>(CHUNK_SIZE);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+
+        // Leave every chunk nearly empty, then keep removing from the front
+        for (int i = expected.size() - 1; i >= 0; i -= 2) {
+            list.remove(i);
+            expected.remove(i);
+        }
+        assertEquals(expected, list);
+
+        while (!expected.isEmpty()) {
+            assertEquals(expected.remove(0), list.remove(0));
+            assertEquals(expected, list);
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        ChunkedList<Object> list = new ChunkedList<>(CHUNK_SIZE, true);
+        List<Object> expected = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            int roll = random.nextInt(10);
+            if (roll < 4 || expected.isEmpty()) {
+                Object element = new Object();
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, element);
+                expected.add(index, element);
+            } else if (roll < 7) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else if (roll < 9) {
+                Object element = new Object();
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, element), list.set(index, element));
+            } else {
+                list.clear();
+                expected.clear();
+            }
+
+            assertEquals(expected.size(), list.size());
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.get(index), list.get(index));
+                assertEquals(index, list.identityIndexOf(expected.get(index)));
+            }
+        }
+
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, list.identityIndexOf(expected.get(i)));
+        }
+    }
+
+    @Test
+    public void testIdentityIndexOfMissingElement() {
+        ChunkedList<Object> list = new ChunkedList<>(CHUNK_SIZE, true);
+        Object removed = new Object();
+        list.add(removed);
+        list.add(new Object());
+        list.remove(0);
+
+        assertEquals(-1, list.identityIndexOf(removed));
+        assertEquals(-1, list.identityIndexOf(new Object()));
+    }
+
+    @Test
+    public void testIdentityIndexOfRequiresIndex() {
+        ChunkedList<Object> list = new ChunkedList<>(CHUNK_SIZE);
+        try {
+            list.identityIndexOf(new Object());
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(list.isEmpty());
+        }
+    }
+
+    @Test
+    public void testOutOfBounds() {
+        ChunkedList<Integer> list = new ChunkedList<>(CHUNK_SIZE);
+        list.add(1);
+        try {
+            list.get(1);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(1, list.size());
+        }
+    }
+}
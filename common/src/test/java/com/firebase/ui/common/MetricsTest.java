@@ -0,0 +1,64 @@
+package com.firebase.ui.common;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MetricsTest {
+    @After
+    public void tearDown() {
+        Metrics.setGlobalListener(null);
+    }
+
+    @Test
+    public void testResolvePrefersOwnListener() {
+        MetricsListener own = new MetricsListener() {};
+        MetricsListener global = new MetricsListener() {};
+
+        assertNull(Metrics.resolve(null));
+        assertSame(own, Metrics.resolve(own));
+
+        Metrics.setGlobalListener(global);
+        assertSame(global, Metrics.getGlobalListener());
+        assertSame(global, Metrics.resolve(null));
+        assertSame(own, Metrics.resolve(own));
+
+        Metrics.setGlobalListener(null);
+        assertNull(Metrics.resolve(null));
+    }
+
+    @Test
+    public void testActiveListenerCount() {
+        int initial = Metrics.getActiveListenerCount();
+        RecordingListener listener = new RecordingListener();
+
+        Metrics.updateActiveListenerCount(2, listener);
+        Metrics.updateActiveListenerCount(1, null);
+        Metrics.updateActiveListenerCount(-2, listener);
+        assertEquals(initial + 1, Metrics.getActiveListenerCount());
+
+        // Listeners are told the process-wide count, including changes they weren't told about
+        List<Integer> expected = new ArrayList<>();
+        expected.add(initial + 2);
+        expected.add(initial + 1);
+        assertEquals(expected, listener.mCounts);
+
+        Metrics.updateActiveListenerCount(-1, null);
+        assertEquals(initial, Metrics.getActiveListenerCount());
+    }
+
+    private static final class RecordingListener extends MetricsListener {
+        final List<Integer> mCounts = new ArrayList<>();
+
+        @Override
+        public void onActiveListenersChanged(int count) {
+            mCounts.add(count);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.firebase.ui.common;
+
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class ModelSnapshotStoreTest {
+    private static final int MODEL_VERSION = 1;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static final ModelCodec<String> CODEC = new ModelCodec<String>() {
+        @Override
+        public void write(@NonNull String model, @NonNull DataOutput out) throws IOException {
+            out.writeUTF(model);
+        }
+
+        @NonNull
+        @Override
+        public String read(@NonNull DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "snapshot.bin");
+    }
+
+    @Test
+    public void testRoundTrip() throws InterruptedException {
+        ModelSnapshotStore<String> store = newStore(MODEL_VERSION, 10);
+        store.writeAsync(keys(3), models(3));
+
+        ModelSnapshotStore.Contents<String> contents = read(store);
+        assertEquals(3, contents.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("key" + i, contents.getKey(i));
+            assertEquals("Model " + i, contents.getModel(i));
+        }
+    }
+
+    @Test
+    public void testMissingFile() throws InterruptedException {
+        assertNull(read(newStore(MODEL_VERSION, 10)));
+    }
+
+    @Test
+    public void testModelVersionMismatch() throws InterruptedException {
+        ModelSnapshotStore<String> store = newStore(MODEL_VERSION, 10);
+        store.writeAsync(keys(3), models(3));
+        read(store);
+
+        // Files written for another model layout are discarded
+        assertNull(read(newStore(MODEL_VERSION + 1, 10)));
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException, InterruptedException {
+        ModelSnapshotStore<String> store = newStore(MODEL_VERSION, 10);
+        store.writeAsync(keys(3), models(3));
+        read(store);
+
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(file.length() - 4);
+        }
+        assertNull(read(store));
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void testMaxEntries() throws InterruptedException {
+        ModelSnapshotStore<String> store = newStore(MODEL_VERSION, 3);
+        store.writeAsync(keys(5), models(5));
+
+        ModelSnapshotStore.Contents<String> contents = read(store);
+        assertEquals(3, contents.size());
+        assertEquals("key2", contents.getKey(2));
+
+        // A store allowing fewer entries than the file holds treats it as corrupt
+        newStore(MODEL_VERSION, 5).writeAsync(keys(5), models(5));
+        assertNull(read(store));
+        assertFalse(mFile.exists());
+
+        try {
+            newStore(MODEL_VERSION, 0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(3, store.getMaxEntries());
+        }
+    }
+
+    @Test
+    public void testPrefetchSeesLaterWrites() throws InterruptedException {
+        ModelSnapshotStore<String> store = newStore(MODEL_VERSION, 10);
+        store.writeAsync(keys(1), models(1));
+        store.prefetch();
+        store.writeAsync(keys(2), models(2));
+
+        assertEquals(2, read(store).size());
+    }
+
+    private ModelSnapshotStore<String> newStore(int modelVersion, int maxEntries) {
+        return new ModelSnapshotStore<>(mFile, modelVersion, CODEC, maxEntries);
+    }
+
+    /**
+     * Read the store asynchronously, idling the main looper until the entries are handed over.
+     */
+    @Nullable
+    private static ModelSnapshotStore.Contents<String> read(
+            @NonNull ModelSnapshotStore<String> store) throws InterruptedException {
+        final List<ModelSnapshotStore.Contents<String>> result = new ArrayList<>();
+        store.readAsync(result::add);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (result.isEmpty()) {
+            assertTrue("Timed out reading the store", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        return result.get(0);
+    }
+
+    private static List<String> keys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "key" + i;
+        }
+        return Arrays.asList(keys);
+    }
+
+    private static List<String> models(int count) {
+        String[] models = new String[count];
+        for (int i = 0; i < count; i++) {
+            models[i] = "Model " + i;
+        }
+        return Arrays.asList(models);
+    }
+}
@@ -1,6 +1,7 @@
 plugins {
   id("com.android.library")
   id("com.vanniktech.maven.publish")
+  id("org.jetbrains.kotlin.android")
 }
 
 android {
@@ -38,6 +39,17 @@ android {
         baseline = file("$rootDir/library/quality/lint-baseline.xml")
     }
 
+    testFixtures {
+        // In-memory fake event sources for offline load tests, see the testing package
+        enable = true
+    }
+
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+        }
+    }
+
     buildTypes {
         named("release").configure {
             isMinifyEnabled = false
@@ -49,6 +61,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+
+    kotlinOptions {
+        jvmTarget = "1.8"
+    }
 }
 
 dependencies {
@@ -60,11 +76,23 @@ dependencies {
     api(Config.Libs.Androidx.recyclerView)
 
     compileOnly(Config.Libs.Androidx.paging)
-    api(Config.Libs.Androidx.pagingRxJava)
+    api(Config.Libs.Androidx.pagingCommon)
+    implementation(Config.Libs.Kotlin.coroutinesPlayServices)
+    // Only used by the deprecated RxJava paging sources. Apps using them depend on paging-rxjava3
+    // themselves, everyone else doesn't pull in RxJava.
+    compileOnly(Config.Libs.Androidx.pagingRxJava)
     annotationProcessor(Config.Libs.Androidx.lifecycleCompiler)
 
+    testFixturesImplementation(Config.Libs.Test.mockito)
+
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.core)
+    testImplementation(Config.Libs.Test.robolectric)
+    testImplementation(Config.Libs.Test.mockito)
+
     androidTestImplementation(Config.Libs.Test.junit)
     androidTestImplementation(Config.Libs.Test.junitExt)
     androidTestImplementation(Config.Libs.Test.runner)
     androidTestImplementation(Config.Libs.Test.rules)
+    androidTestImplementation(Config.Libs.Test.mockito)
 }
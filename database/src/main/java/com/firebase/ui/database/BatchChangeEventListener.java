@@ -0,0 +1,12 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.BaseBatchChangeEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+/**
+ * Listener for batched changes to {@link FirebaseArray}. A batch covers all child events raised
+ * before a single value event.
+ */
+public interface BatchChangeEventListener extends ChangeEventListener,
+        BaseBatchChangeEventListener<DataSnapshot, DatabaseError> {}
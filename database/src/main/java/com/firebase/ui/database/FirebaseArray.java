@@ -15,14 +15,18 @@
 package com.firebase.ui.database;
 
 import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.ChunkedList;
 import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -33,7 +37,16 @@ import androidx.annotation.Nullable;
 public class FirebaseArray<T> extends ObservableSnapshotArray<T>
         implements ChildEventListener, ValueEventListener {
     private Query mQuery;
-    private final List<DataSnapshot> mSnapshots = new ArrayList<>();
+    private final ChunkedList<Object> mItems =
+            new ChunkedList<>(ChunkedList.DEFAULT_CHUNK_SIZE, true);
+    private final List<DataSnapshot> mSnapshots = newSnapshotList(mItems);
+
+    /**
+     * Maps each child key to the item stored for it in {@link #mItems}, whose position is then
+     * found through the list's identity index. Children can be added, moved and removed anywhere
+     * in O(log n) instead of scanning or re-indexing the whole list for every child event.
+     */
+    private final Map<String, Object> mKeyItems = new HashMap<>();
 
     /**
      * Create a new FirebaseArray with a custom {@link SnapshotParser}.
@@ -48,11 +61,25 @@ public class FirebaseArray<T> extends ObservableSnapshotArray<T>
         mQuery = query;
     }
 
+    @NonNull
+    @Override
+    public DatabaseReference getRef(int index) {
+        if (isRetainingSnapshots()) { return super.getRef(index); }
+        return getChildRef(getKey(index));
+    }
+
+    @NonNull
+    @Override
+    DatabaseReference getChildRef(@NonNull String key) {
+        return mQuery.getRef().child(key);
+    }
+
     @Override
     protected void onCreate() {
         super.onCreate();
         mQuery.addChildEventListener(this);
         mQuery.addValueEventListener(this);
+        reportDatabaseListeners(2);
     }
 
     @Override
@@ -60,66 +87,103 @@ public class FirebaseArray<T> extends ObservableSnapshotArray<T>
         super.onDestroy();
         mQuery.removeEventListener((ValueEventListener) this);
         mQuery.removeEventListener((ChildEventListener) this);
+        reportDatabaseListeners(-2);
+        mKeyItems.clear();
     }
 
     @Override
     public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildKey) {
+        runWhenParsed(Collections.singletonList(snapshot),
+                () -> applyChildAdded(snapshot, previousChildKey));
+    }
+
+    @Override
+    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildKey) {
+        runWhenParsed(Collections.singletonList(snapshot), () -> applyChildChanged(snapshot));
+    }
+
+    @Override
+    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+        runWhenParsed(Collections.emptyList(), () -> applyChildRemoved(snapshot));
+    }
+
+    @Override
+    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildKey) {
+        // Content changes are reported separately through onChildChanged
+        runWhenParsed(Collections.emptyList(), () -> applyChildMoved(snapshot, previousChildKey));
+    }
+
+    @Override
+    public void onDataChange(@NonNull DataSnapshot snapshot) {
+        // Child events are always raised before the value event for the same update
+        runWhenParsed(Collections.emptyList(), this::notifyOnDataChanged);
+    }
+
+    @Override
+    public void onCancelled(@NonNull DatabaseError error) {
+        runWhenParsed(Collections.emptyList(), () -> notifyOnError(error));
+    }
+
+    private void applyChildAdded(@NonNull DataSnapshot snapshot,
+                                 @Nullable String previousChildKey) {
+        beginBatch();
         int index = 0;
         if (previousChildKey != null) {
             index = getIndexForKey(previousChildKey) + 1;
         }
 
         mSnapshots.add(index, snapshot);
+        mKeyItems.put(snapshot.getKey(), mItems.get(index));
         notifyOnChildChanged(ChangeEventType.ADDED, snapshot, index, -1);
     }
 
-    @Override
-    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildKey) {
+    private void applyChildChanged(@NonNull DataSnapshot snapshot) {
+        beginBatch();
         int index = getIndexForKey(snapshot.getKey());
 
         mSnapshots.set(index, snapshot);
+        mKeyItems.put(snapshot.getKey(), mItems.get(index));
         notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, index, -1);
     }
 
-    @Override
-    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+    private void applyChildRemoved(@NonNull DataSnapshot snapshot) {
+        beginBatch();
         int index = getIndexForKey(snapshot.getKey());
 
         mSnapshots.remove(index);
+        mKeyItems.remove(snapshot.getKey());
         notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, index, -1);
     }
 
-    @Override
-    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildKey) {
+    private void applyChildMoved(@NonNull DataSnapshot snapshot,
+                                 @Nullable String previousChildKey) {
+        beginBatch();
         int oldIndex = getIndexForKey(snapshot.getKey());
         mSnapshots.remove(oldIndex);
+        mKeyItems.remove(snapshot.getKey());
 
         int newIndex = previousChildKey == null ? 0 : getIndexForKey(previousChildKey) + 1;
         mSnapshots.add(newIndex, snapshot);
+        mKeyItems.put(snapshot.getKey(), mItems.get(newIndex));
 
         notifyOnChildChanged(ChangeEventType.MOVED, snapshot, newIndex, oldIndex);
     }
 
-    @Override
-    public void onDataChange(@NonNull DataSnapshot snapshot) {
-        notifyOnDataChanged();
-    }
-
-    @Override
-    public void onCancelled(@NonNull DatabaseError error) {
-        notifyOnError(error);
-    }
-
     private int getIndexForKey(@NonNull String key) {
-        int index = 0;
-        for (DataSnapshot snapshot : mSnapshots) {
-            if (snapshot.getKey().equals(key)) {
-                return index;
-            } else {
-                index++;
-            }
+        int index = indexOfKey(key);
+        if (index == -1) {
+            throw new IllegalArgumentException("Key not found");
         }
-        throw new IllegalArgumentException("Key not found");
+        return index;
+    }
+
+    /**
+     * @return the position of the child with the given key, or -1 if there is no such child.
+     */
+    int indexOfKey(@NonNull String key) {
+        // Items left behind by clear() are no longer part of the list and map to -1
+        Object item = mKeyItems.get(key);
+        return item == null ? -1 : mItems.identityIndexOf(item);
     }
 
     @NonNull
@@ -0,0 +1,184 @@
+package com.firebase.ui.database;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Process-wide registry of {@link FirebaseArray}s shared between adapters and screens.
+ * <p>
+ * Asking for the same query and model twice returns the same array, so two screens showing the
+ * same data share a single set of database listeners and parse every child once. The array's
+ * listeners act as its reference count: once the last one is removed, the array lingers for the
+ * {@link #setLingerTimeout(long) linger timeout} and is then torn down and forgotten. A quick
+ * back and forth navigation therefore picks up the warm array instead of downloading the query
+ * again.
+ * <p>
+ * Arrays handed out by the registry are shared, so a setting changed on one (parse executor,
+ * cache policy, snapshot retention) applies to every screen using it. Change settings on the
+ * array itself before it first starts listening. {@code FirebaseRecyclerOptions} refuses to change
+ * them, since that would silently reconfigure the array under every other adapter.
+ */
+@MainThread
+public final class FirebaseArrayRegistry {
+
+    /**
+     * Default time an array is kept alive after its last listener is removed.
+     */
+    public static final long DEFAULT_LINGER_MILLIS = 5000;
+
+    private static final FirebaseArrayRegistry INSTANCE = new FirebaseArrayRegistry();
+
+    private final Map<Key, ObservableSnapshotArray<?>> mArrays = new HashMap<>();
+    private Handler mHandler;
+    private long mLingerMillis = DEFAULT_LINGER_MILLIS;
+
+    private FirebaseArrayRegistry() {}
+
+    @NonNull
+    public static FirebaseArrayRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set how long arrays created from now on keep listening after their last listener is
+     * removed. Defaults to {@link #DEFAULT_LINGER_MILLIS}.
+     *
+     * @see ObservableSnapshotArray#setLingerTimeout(long)
+     */
+    public void setLingerTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Linger timeout cannot be negative");
+        }
+        mLingerMillis = millis;
+    }
+
+    /**
+     * Get the shared array for a query whose children are parsed into {@code modelClass}.
+     */
+    @NonNull
+    public <T> ObservableSnapshotArray<T> getArray(@NonNull Query query,
+                                                   @NonNull Class<T> modelClass) {
+        return getArray(new Key(query, modelClass), SnapshotParsers.forClass(modelClass));
+    }
+
+    /**
+     * Get the shared array for a query whose children are parsed by {@code parser}. Arrays are
+     * only shared between callers passing the same (or an equal) parser.
+     */
+    @NonNull
+    public <T> ObservableSnapshotArray<T> getArray(@NonNull Query query,
+                                                   @NonNull SnapshotParser<T> parser) {
+        return getArray(new Key(query, parser), parser);
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private <T> ObservableSnapshotArray<T> getArray(@NonNull final Key key,
+                                                    @NonNull SnapshotParser<T> parser) {
+        ObservableSnapshotArray<T> existing = (ObservableSnapshotArray<T>) mArrays.get(key);
+        if (existing != null) { return existing; }
+
+        final SharedArray<T> array = new SharedArray<>(key, parser);
+        array.setLingerTimeout(mLingerMillis);
+        mArrays.put(key, array);
+
+        // Don't hold on to arrays that are never listened to
+        getHandler().postDelayed(() -> {
+            if (!array.mCreated) { forget(key, array); }
+        }, Math.max(mLingerMillis, DEFAULT_LINGER_MILLIS));
+
+        return array;
+    }
+
+    /**
+     * @return whether {@code array} was handed out by the registry.
+     */
+    static boolean isShared(@NonNull ObservableSnapshotArray<?> array) {
+        return array instanceof FirebaseArrayRegistry.SharedArray;
+    }
+
+    private void forget(@NonNull Key key, @NonNull ObservableSnapshotArray<?> array) {
+        if (mArrays.get(key) == array) {
+            mArrays.remove(key);
+        }
+    }
+
+    @NonNull
+    private Handler getHandler() {
+        if (mHandler == null) {
+            mHandler = new Handler(Looper.getMainLooper());
+        }
+        return mHandler;
+    }
+
+    private final class SharedArray<T> extends FirebaseArray<T> {
+        private final Key mKey;
+        boolean mCreated;
+
+        SharedArray(Key key, SnapshotParser<T> parser) {
+            super(key.mQuery, parser);
+            mKey = key;
+        }
+
+        @Override
+        protected void onCreate() {
+            super.onCreate();
+            mCreated = true;
+            // Listened to again after being torn down, share it again unless it was replaced
+            if (!mArrays.containsKey(mKey)) {
+                mArrays.put(mKey, this);
+            }
+        }
+
+        @Override
+        protected void onDestroy() {
+            super.onDestroy();
+            forget(mKey, this);
+        }
+    }
+
+    private static final class Key {
+        final Query mQuery;
+        final Object mParser;
+        // Query instances don't implement equality, and their spec (path and params) leaves out
+        // the database: the URL names the database instance, and the FirebaseDatabase the app
+        // connected to it.
+        final String mUrl;
+        final Object mDatabase;
+
+        Key(Query query, Object parser) {
+            mQuery = query;
+            mParser = parser;
+
+            DatabaseReference ref = query.getRef();
+            mUrl = ref.toString();
+            mDatabase = ref.getDatabase();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return mUrl.equals(key.mUrl)
+                    && Objects.equals(mDatabase, key.mDatabase)
+                    && Objects.equals(mQuery.getSpec(), key.mQuery.getSpec())
+                    && mParser.equals(key.mParser);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mUrl, mQuery.getSpec(), mParser);
+        }
+    }
+}
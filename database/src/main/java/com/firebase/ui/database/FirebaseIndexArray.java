@@ -17,16 +17,20 @@ package com.firebase.ui.database;
 import android.util.Log;
 
 import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.ChunkedList;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 
@@ -38,14 +42,18 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
     private final Map<DatabaseReference, ValueEventListener> mRefs = new HashMap<>();
 
     private final FirebaseArray<String> mKeySnapshots;
-    private final List<DataSnapshot> mDataSnapshots = new ArrayList<>();
+    /**
+     * Loaded data in key order. Chunked so that data can be inserted and removed anywhere without
+     * shifting the whole list; positions are found by {@link #findDataIndex(int, KeyPositions)}.
+     */
+    private final List<DataSnapshot> mDataSnapshots = new ChunkedList<>();
 
     /**
-     * When keys are added in {@link FirebaseArray}, we need to fetch the data async. This list
+     * When keys are added in {@link FirebaseArray}, we need to fetch the data async. This set
      * contains keys that exist in the backing {@link FirebaseArray}, but their data hasn't been
      * downloaded yet in this array.
      */
-    private final List<String> mKeysWithPendingUpdate = new ArrayList<>();
+    private final Set<String> mKeysWithPendingUpdate = new HashSet<>();
     /**
      * Moves or deletions don't need to fetch new data so they can be performed instantly once the
      * backing {@link FirebaseArray} is done updating. This will be true if the backing {@link
@@ -53,6 +61,24 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
      */
     private boolean mHasPendingMoveOrDelete;
 
+    /**
+     * Maximum number of keys with a permanent listener on their data, or 0 for no limit. Data for
+     * keys outside of the live window is only fetched once.
+     */
+    private int mLiveWindowSize;
+    /**
+     * Key position around which the live window is centered, driven by {@link #onItemBound(int)}.
+     */
+    private int mLiveWindowCenter;
+    /**
+     * Permanent data listeners by key, only tracked when the live window is limited.
+     */
+    private final Map<String, DataRefListener> mLiveListeners = new HashMap<>();
+    /**
+     * Number of data listeners last passed to {@link #reportDatabaseListeners(int)}.
+     */
+    private int mReportedRefCount;
+
     /**
      * Create a new FirebaseIndexArray with a custom {@link SnapshotParser}.
      *
@@ -71,6 +97,42 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
         mKeySnapshots = new FirebaseArray<>(keyQuery, snapshot -> snapshot.getKey());
     }
 
+    /**
+     * Limit the number of permanent listeners attached to joined data. Only keys within {@code
+     * size} positions around the most recently bound item are kept up to date in real time, the
+     * data of all other keys is fetched once and refreshed when it gets close to the visible range
+     * again.
+     * <p>
+     * Must be called before the array starts listening.
+     *
+     * @param size the maximum number of live data listeners, or 0 to keep every key live (the
+     *             default).
+     */
+    public void setLiveWindowSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Window size cannot be negative: " + size);
+        }
+        if (isListening()) {
+            throw new IllegalStateException("Cannot change the live window while listening.");
+        }
+
+        mLiveWindowSize = size;
+        mLiveWindowCenter = size / 2;
+    }
+
+    @Override
+    public void onItemBound(int index) {
+        if (mLiveWindowSize == 0 || index < 0 || index >= mDataSnapshots.size()) { return; }
+
+        int keyIndex = mKeySnapshots.indexOfKey(mDataSnapshots.get(index).getKey());
+        // Don't shuffle listeners around on every bind while scrolling slowly
+        if (keyIndex == -1 || Math.abs(keyIndex - mLiveWindowCenter) < mLiveWindowSize / 4) {
+            return;
+        }
+
+        moveLiveWindow(keyIndex);
+    }
+
     @Override
     protected void onCreate() {
         super.onCreate();
@@ -86,6 +148,9 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
             ref.removeEventListener(mRefs.get(ref));
         }
         mRefs.clear();
+        reportRefCount();
+        mLiveListeners.clear();
+        mLiveWindowCenter = mLiveWindowSize / 2;
     }
 
     @Override
@@ -93,6 +158,8 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
                                @NonNull DataSnapshot snapshot,
                                int newIndex,
                                int oldIndex) {
+        // Key events are applied right away so that data positions are always derived from the
+        // current key order, data updates which are still being parsed catch up on their own.
         switch (type) {
             case ADDED:
                 onKeyAdded(snapshot, newIndex);
@@ -112,6 +179,10 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
 
     @Override
     public void onDataChanged() {
+        runWhenParsed(Collections.emptyList(), this::onKeysChanged);
+    }
+
+    private void onKeysChanged() {
         if (mHasPendingMoveOrDelete || mKeySnapshots.isEmpty()) {
             notifyOnDataChanged();
             mHasPendingMoveOrDelete = false;
@@ -129,32 +200,43 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
         return mDataSnapshots;
     }
 
-    private int returnOrFindIndexForKey(int index, String key) {
-        int realIndex;
-        if (isKeyAtIndex(key, index)) {
-            // To optimize this query, if the expected item position is accurate, we simply return
-            // it instead of searching for it in our keys all over again. This ensures developers
-            // correctly indexing their data (i.e. no null values) don't take a performance hit.
-            realIndex = index;
-        } else {
-            int dataCount = size();
-            int dataIndex = 0;
-            int keyIndex = 0;
-
-            while (dataIndex < dataCount && keyIndex < mKeySnapshots.size()) {
-                String superKey = mKeySnapshots.get(keyIndex);
-                if (key.equals(superKey)) {
-                    break;
-                } else if (mDataSnapshots.get(dataIndex).getKey().equals(superKey)) {
-                    // Only increment the data index if we aren't passing over a null value snapshot.
-                    dataIndex++;
-                }
-                keyIndex++;
+    /**
+     * Find the position in {@link #mDataSnapshots} at which the data for the key at {@code
+     * keyIndex} is, or would be, stored. Data is always kept in key order, so this is a binary
+     * search over the key position of each loaded snapshot rather than a walk over both lists.
+     *
+     * @param positions the key order to search in, which is the current one unless a key is being
+     *                  moved or removed.
+     * @return the data index, or -1 if the data isn't aligned with the given key order.
+     */
+    private int findDataIndex(int keyIndex, KeyPositions positions) {
+        int low = 0;
+        int high = mDataSnapshots.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int position = positions.indexOf(mDataSnapshots.get(mid).getKey());
+            if (position == -1) { return -1; }
+
+            if (position < keyIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
+        }
+        return low;
+    }
 
-            realIndex = dataIndex;
+    /**
+     * @return the position a key had before the key at {@code oldIndex} was moved to {@code
+     * newIndex}, given its current position.
+     */
+    private static int positionBeforeMove(int position, int newIndex, int oldIndex) {
+        if (oldIndex < newIndex && position >= oldIndex && position < newIndex) {
+            return position + 1;
+        } else if (oldIndex > newIndex && position > newIndex && position <= oldIndex) {
+            return position - 1;
         }
-        return realIndex;
+        return position;
     }
 
     /**
@@ -166,26 +248,93 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
 
     private void onKeyAdded(DataSnapshot data, int newIndex) {
         String key = data.getKey();
-        DatabaseReference ref = mDataRef.child(key);
 
         mKeysWithPendingUpdate.add(key);
-        // Start listening
-        mRefs.put(ref, ref.addValueEventListener(new DataRefListener(newIndex)));
+        listen(key, mLiveWindowSize == 0 ||
+                mLiveListeners.size() < mLiveWindowSize && isInLiveWindow(newIndex), false);
+    }
+
+    /**
+     * Start fetching the data for a key.
+     *
+     * @param live    true to keep listening for updates, false to only fetch the data once.
+     * @param refresh true if the key's data may already be loaded, see {@link
+     *                DataRefListener#mRefresh}.
+     */
+    private void listen(String key, boolean live, boolean refresh) {
+        DatabaseReference ref = mDataRef.child(key);
+        DataRefListener listener = new DataRefListener(ref, live, refresh);
+
+        mRefs.put(ref, listener);
+        if (live) {
+            ref.addValueEventListener(listener);
+            if (mLiveWindowSize != 0) { mLiveListeners.put(key, listener); }
+        } else {
+            ref.addListenerForSingleValueEvent(listener);
+        }
+        reportRefCount();
+    }
+
+    private void reportRefCount() {
+        int delta = mRefs.size() - mReportedRefCount;
+        if (delta != 0) {
+            mReportedRefCount = mRefs.size();
+            reportDatabaseListeners(delta);
+        }
+    }
+
+    private boolean isInLiveWindow(int keyIndex) {
+        int start = mLiveWindowCenter - mLiveWindowSize / 2;
+        return keyIndex >= 0 && keyIndex >= start && keyIndex < start + mLiveWindowSize;
+    }
+
+    private void moveLiveWindow(int center) {
+        mLiveWindowCenter = center;
+
+        // Stop listening to keys that have left the window, their data stays as is
+        Iterator<Map.Entry<String, DataRefListener>> iterator =
+                mLiveListeners.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, DataRefListener> entry = iterator.next();
+            if (!isInLiveWindow(mKeySnapshots.indexOfKey(entry.getKey()))) {
+                DataRefListener listener = entry.getValue();
+                listener.mRef.removeEventListener(listener);
+                mRefs.remove(listener.mRef);
+                iterator.remove();
+            }
+        }
+        reportRefCount();
+
+        // Start listening to keys that have entered the window
+        int start = Math.max(0, mLiveWindowCenter - mLiveWindowSize / 2);
+        int end = Math.min(mKeySnapshots.size(), start + mLiveWindowSize);
+        for (int i = start; i < end && mLiveListeners.size() < mLiveWindowSize; i++) {
+            String key = mKeySnapshots.getSnapshot(i).getKey();
+            if (mLiveListeners.containsKey(key)) { continue; }
+
+            // Replace a one-shot fetch that is still in flight
+            DatabaseReference ref = mDataRef.child(key);
+            ValueEventListener pending = mRefs.remove(ref);
+            if (pending != null) { ref.removeEventListener(pending); }
+
+            listen(key, true, true);
+        }
     }
 
     private void onKeyMoved(DataSnapshot data, int index, int oldIndex) {
         String key = data.getKey();
 
-        // We can't use `returnOrFindIndexForKey(...)` for `oldIndex` or it might find the updated
-        // index instead of the old one. Unfortunately, this does mean move events will be
-        // incorrectly ignored if our list is a subset of the key list e.g. a key has null data.
-        if (isKeyAtIndex(key, oldIndex)) {
-            DataSnapshot snapshot = mDataSnapshots.remove(oldIndex);
-            int realIndex = returnOrFindIndexForKey(index, key);
+        // The data is still in the old key order, look it up as if the move hadn't happened yet
+        int oldDataIndex = findDataIndex(oldIndex, k -> key.equals(k) ?
+                oldIndex : positionBeforeMove(mKeySnapshots.indexOfKey(k), index, oldIndex));
+        if (isKeyAtIndex(key, oldDataIndex)) {
+            DataSnapshot snapshot = mDataSnapshots.remove(oldDataIndex);
+            int newDataIndex = findDataIndex(index, mKeySnapshots::indexOfKey);
+            if (newDataIndex == -1) { newDataIndex = oldDataIndex; }
             mHasPendingMoveOrDelete = true;
 
-            mDataSnapshots.add(realIndex, snapshot);
-            notifyOnChildChanged(ChangeEventType.MOVED, snapshot, realIndex, oldIndex);
+            mDataSnapshots.add(newDataIndex, snapshot);
+            notifyOnChildChanged(ChangeEventType.MOVED, snapshot, newDataIndex, oldDataIndex);
         }
     }
 
@@ -193,32 +342,75 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
         String key = data.getKey();
         ValueEventListener listener = mRefs.remove(mDataRef.getRef().child(key));
         if (listener != null) mDataRef.child(key).removeEventListener(listener);
+        reportRefCount();
+        mLiveListeners.remove(key);
+        if (mKeysWithPendingUpdate.remove(key) && mKeysWithPendingUpdate.isEmpty()) {
+            // This was the last key we were waiting on, don't leave the data change hanging
+            mHasPendingMoveOrDelete = true;
+        }
 
-        int realIndex = returnOrFindIndexForKey(index, key);
-        if (isKeyAtIndex(key, realIndex)) {
-            DataSnapshot snapshot = mDataSnapshots.remove(realIndex);
+        // The key is already gone from the key list, but its data still sits at the same place
+        int dataIndex = findDataIndex(index,
+                k -> key.equals(k) ? index : mKeySnapshots.indexOfKey(k));
+        if (isKeyAtIndex(key, dataIndex)) {
+            DataSnapshot snapshot = mDataSnapshots.remove(dataIndex);
             mHasPendingMoveOrDelete = true;
-            notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, realIndex, -1);
+            notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, dataIndex, -1);
         }
     }
 
+    /**
+     * Maps a key to its position in some version of the key list.
+     */
+    private interface KeyPositions {
+        /**
+         * @return the position of the key, or -1 if it isn't part of the list.
+         */
+        int indexOf(String key);
+    }
+
     /**
      * A ValueEventListener attached to the joined child data.
      */
     private final class DataRefListener implements ValueEventListener {
-        /** Cached index to skip searching for the current index on each update */
-        private int currentIndex;
-
-        public DataRefListener(int index) {
-            currentIndex = index;
+        final DatabaseReference mRef;
+        /** False if this listener only fetches the data once */
+        final boolean mLive;
+        /**
+         * True if this listener was attached when its key entered the live window. Its updates
+         * only report a data change if they complete the initial load of the array.
+         */
+        final boolean mRefresh;
+
+        public DataRefListener(DatabaseReference ref, boolean live, boolean refresh) {
+            mRef = ref;
+            mLive = live;
+            mRefresh = refresh;
         }
 
         @Override
         public void onDataChange(DataSnapshot snapshot) {
-            String key = snapshot.getKey();
-            int index = currentIndex = returnOrFindIndexForKey(currentIndex, key);
+            if (!mLive && mRefs.get(mRef) == this) {
+                mRefs.remove(mRef);
+                reportRefCount();
+            }
+
+            runWhenParsed(snapshot.getValue() != null ?
+                            Collections.singletonList(snapshot) :
+                            Collections.<DataSnapshot>emptyList(),
+                    () -> applyData(snapshot));
+        }
 
-            if (snapshot.getValue() != null) {
+        private void applyData(DataSnapshot snapshot) {
+            String key = snapshot.getKey();
+            int keyIndex = mKeySnapshots.indexOfKey(key);
+            int index = keyIndex == -1 ? -1 : findDataIndex(keyIndex, mKeySnapshots::indexOfKey);
+
+            if (index == -1) {
+                // The key was removed while this update was being parsed
+                Log.w(TAG, "Dropping data for a key that is no longer indexed: " + key);
+                return;
+            } else if (snapshot.getValue() != null) {
                 if (isKeyAtIndex(key, index)) {
                     // We already know about this data, just update it
                     mDataSnapshots.set(index, snapshot);
@@ -244,13 +436,14 @@ public class FirebaseIndexArray<T> extends ObservableSnapshotArray<T>
             // mistake and `snapshot.value == null`, we will never pop the queue and
             // `notifyOnDataChanged()` will never be called. Thus, we pop the queue anytime
             // an update is received.
-            mKeysWithPendingUpdate.remove(key);
+            boolean wasPending = mKeysWithPendingUpdate.remove(key);
+            if (mRefresh && !wasPending) { return; }
             if (mKeysWithPendingUpdate.isEmpty()) notifyOnDataChanged();
         }
 
         @Override
         public void onCancelled(DatabaseError error) {
-            notifyOnError(error);
+            runWhenParsed(Collections.emptyList(), () -> notifyOnError(error));
         }
     }
 }
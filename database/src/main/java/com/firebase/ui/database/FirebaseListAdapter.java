@@ -1,16 +1,24 @@
 package com.firebase.ui.database;
 
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 
+import com.firebase.ui.common.ChangeEvent;
 import com.firebase.ui.common.ChangeEventType;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.Lifecycle;
@@ -28,15 +36,40 @@ import androidx.lifecycle.OnLifecycleEvent;
  * @param <T> The class type to use as a model for the data contained in the children of the given
  *            Firebase location
  */
-public abstract class FirebaseListAdapter<T> extends BaseAdapter implements FirebaseAdapter<T> {
+public abstract class FirebaseListAdapter<T> extends BaseAdapter
+        implements FirebaseAdapter<T>, BatchChangeEventListener, InitialDataListener {
     private static final String TAG = "FirebaseListAdapter";
 
     private final ObservableSnapshotArray<T> mSnapshots;
     protected final int mLayout;
 
+    private final boolean mCoalesceUpdates;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> {
+        mUpdatePending = false;
+        notifyChanged();
+    };
+    private boolean mUpdatePending;
+    /** Set while a batch is passed to {@link #onChildChanged}, which then doesn't notify. */
+    private boolean mDispatchingBatch;
+
+    /**
+     * The items shown while updates are coalesced, copied from the array whenever the list is
+     * invalidated so that the list never sees changes it hasn't been notified of yet. {@code null}
+     * if every change is notified right away, in which case items are read from the array.
+     */
+    @Nullable private List<DisplayedItem<T>> mDisplayed;
+    /** Item ids handed out to child keys, see {@link #getItemId(int)}. */
+    private Map<String, Long> mItemIds = new HashMap<>();
+    private long mNextItemId;
+
     public FirebaseListAdapter(@NonNull FirebaseListOptions<T> options) {
         mSnapshots = options.getSnapshots();
         mLayout = options.getLayout();
+        mCoalesceUpdates = options.getCoalesceUpdates();
+        if (mCoalesceUpdates) {
+            mDisplayed = new ArrayList<>();
+            refreshDisplayedItems();
+        }
 
         if (options.getOwner() != null) {
             options.getOwner().getLifecycle().addObserver(this);
@@ -55,7 +88,12 @@ public abstract class FirebaseListAdapter<T> extends BaseAdapter implements Fire
     @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
     public void stopListening() {
         mSnapshots.removeChangeEventListener(this);
-        notifyDataSetChanged();
+        cancelPendingUpdate();
+        if (mDisplayed == null) {
+            // Children dropped by the array don't get a removed event
+            mItemIds.clear();
+        }
+        notifyChanged();
     }
 
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
@@ -63,16 +101,128 @@ public abstract class FirebaseListAdapter<T> extends BaseAdapter implements Fire
         source.getLifecycle().removeObserver(this);
     }
 
+    /**
+     * Called for every child event, including the ones delivered in a batch and the catch-up with
+     * the items already in the array. The list is invalidated once per batch rather than once per
+     * event.
+     */
     @Override
     public void onChildChanged(@NonNull ChangeEventType type,
                                @NonNull DataSnapshot snapshot,
                                int newIndex,
                                int oldIndex) {
-        notifyDataSetChanged();
+        if (mDisplayed == null && type == ChangeEventType.REMOVED) {
+            mItemIds.remove(snapshot.getKey());
+        }
+        if (!mDispatchingBatch) {
+            onUpdate();
+        }
+    }
+
+    /**
+     * Passes each event of the batch to {@link #onChildChanged(ChangeEventType, DataSnapshot, int,
+     * int)} and invalidates the list once for the whole batch.
+     */
+    @Override
+    public void onBatchChanged(@NonNull List<ChangeEvent<DataSnapshot>> events) {
+        mDispatchingBatch = true;
+        try {
+            for (ChangeEvent<DataSnapshot> event : events) {
+                onChildChanged(event.getType(),
+                        event.getSnapshot(),
+                        event.getNewIndex(),
+                        event.getOldIndex());
+            }
+        } finally {
+            mDispatchingBatch = false;
+        }
+        onUpdate();
+    }
+
+    /**
+     * Passes an {@link ChangeEventType#ADDED} event for each item already in the array to {@link
+     * #onChildChanged(ChangeEventType, DataSnapshot, int, int)}, unless the array doesn't {@link
+     * ObservableSnapshotArray#setRetainSnapshots(boolean) retain its snapshots}, and invalidates
+     * the list once.
+     */
+    @Override
+    public void onInitialData(int count) {
+        if (mSnapshots.isRetainingSnapshots()) {
+            mDispatchingBatch = true;
+            try {
+                for (int i = 0; i < count; i++) {
+                    onChildChanged(ChangeEventType.ADDED, mSnapshots.getSnapshot(i), i, -1);
+                }
+            } finally {
+                mDispatchingBatch = false;
+            }
+        }
+        cancelPendingUpdate();
+        notifyChanged();
     }
 
     @Override
     public void onDataChanged() {
+        // The update is complete, no need to wait for the next frame
+        if (mUpdatePending) {
+            cancelPendingUpdate();
+            notifyChanged();
+        }
+    }
+
+    private void notifyChanged() {
+        if (mDisplayed != null) {
+            refreshDisplayedItems();
+        }
+        notifyDataSetChanged();
+    }
+
+    private void refreshDisplayedItems() {
+        boolean retained = mSnapshots.isRetainingSnapshots();
+
+        // Carry over the models of items whose snapshot hasn't changed
+        Map<DataSnapshot, DisplayedItem<T>> previous = new IdentityHashMap<>();
+        if (retained) {
+            for (DisplayedItem<T> item : mDisplayed) {
+                if (item.mSnapshot != null) { previous.put(item.mSnapshot, item); }
+            }
+        }
+
+        List<DisplayedItem<T>> items = new ArrayList<>(mSnapshots.size());
+        Map<String, Long> ids = new HashMap<>(mSnapshots.size());
+        for (int i = 0; i < mSnapshots.size(); i++) {
+            String key = mSnapshots.getKey(i);
+            long id = getItemId(key);
+            ids.put(key, id);
+
+            if (retained) {
+                DataSnapshot snapshot = mSnapshots.getSnapshot(i);
+                DisplayedItem<T> item = previous.get(snapshot);
+                items.add(item == null ? new DisplayedItem<T>(key, id, snapshot, null) : item);
+            } else {
+                items.add(new DisplayedItem<>(key, id, null, mSnapshots.get(i)));
+            }
+        }
+
+        mDisplayed = items;
+        // Forget the ids of children which aren't shown anymore
+        mItemIds = ids;
+    }
+
+    private void onUpdate() {
+        if (!mCoalesceUpdates) {
+            notifyDataSetChanged();
+        } else if (!mUpdatePending) {
+            mUpdatePending = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void cancelPendingUpdate() {
+        if (mUpdatePending) {
+            mUpdatePending = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
     }
 
     @Override
@@ -89,24 +239,59 @@ public abstract class FirebaseListAdapter<T> extends BaseAdapter implements Fire
     @NonNull
     @Override
     public T getItem(int position) {
-        return mSnapshots.get(position);
+        if (mDisplayed == null) { return mSnapshots.get(position); }
+
+        DisplayedItem<T> item = mDisplayed.get(position);
+        if (item.mModel == null) {
+            item.mModel = mSnapshots.parseSnapshot(item.mSnapshot);
+        }
+        return item.mModel;
     }
 
     @NonNull
     @Override
     public DatabaseReference getRef(int position) {
-        return mSnapshots.getSnapshot(position).getRef();
+        if (mDisplayed == null) { return mSnapshots.getRef(position); }
+
+        DisplayedItem<T> item = mDisplayed.get(position);
+        if (item.mSnapshot != null) { return item.mSnapshot.getRef(); }
+        DatabaseReference ref = mSnapshots.getChildRef(item.mKey);
+        if (ref == null) {
+            throw new IllegalStateException(
+                    "The array does not retain snapshots and cannot rebuild references");
+        }
+        return ref;
     }
 
     @Override
     public int getCount() {
-        return mSnapshots.size();
+        return mDisplayed == null ? mSnapshots.size() : mDisplayed.size();
+    }
+
+    /**
+     * Each child key keeps the same item id for as long as the child is shown, so ids stay the
+     * same when children move.
+     */
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
     public long getItemId(int i) {
         // http://stackoverflow.com/questions/5100071/whats-the-purpose-of-item-ids-in-android-listview-adapter
-        return mSnapshots.getSnapshot(i).getKey().hashCode();
+        if (mDisplayed == null) { return getItemId(mSnapshots.getKey(i)); }
+        return mDisplayed.get(i).mId;
+    }
+
+    private long getItemId(@NonNull String key) {
+        // Hand out ids sequentially rather than hashing keys, which could collide
+        Long id = mItemIds.get(key);
+        if (id == null) {
+            id = mNextItemId++;
+            mItemIds.put(key, id);
+        }
+        return id;
     }
 
     @Override
@@ -116,6 +301,7 @@ public abstract class FirebaseListAdapter<T> extends BaseAdapter implements Fire
             convertView = LayoutInflater.from(parent.getContext()).inflate(mLayout, parent, false);
         }
 
+        mSnapshots.onItemBound(position);
         T model = getItem(position);
 
         // Call out to subclass to marshall this model into the provided view
@@ -136,4 +322,23 @@ public abstract class FirebaseListAdapter<T> extends BaseAdapter implements Fire
      * @param position The position in the list of the view being populated
      */
     protected abstract void populateView(@NonNull View v, @NonNull T model, int position);
+
+    private static final class DisplayedItem<T> {
+        final String mKey;
+        final long mId;
+        /** {@code null} if the array doesn't retain its snapshots. */
+        @Nullable final DataSnapshot mSnapshot;
+        /** Parsed on first use if the array retains its snapshots. */
+        @Nullable T mModel;
+
+        DisplayedItem(@NonNull String key,
+                      long id,
+                      @Nullable DataSnapshot snapshot,
+                      @Nullable T model) {
+            mKey = key;
+            mId = id;
+            mSnapshot = snapshot;
+            mModel = model;
+        }
+    }
 }
@@ -24,13 +24,16 @@ public final class FirebaseListOptions<T> {
     private final ObservableSnapshotArray<T> mSnapshots;
     private final @LayoutRes int mLayout;
     private final LifecycleOwner mOwner;
+    private final boolean mCoalesceUpdates;
 
     private FirebaseListOptions(ObservableSnapshotArray<T> snapshots,
                                 @LayoutRes int layout,
-                                LifecycleOwner owner) {
+                                LifecycleOwner owner,
+                                boolean coalesceUpdates) {
         mSnapshots = snapshots;
         mLayout = layout;
         mOwner = owner;
+        mCoalesceUpdates = coalesceUpdates;
     }
 
     /**
@@ -57,6 +60,14 @@ public final class FirebaseListOptions<T> {
         return mOwner;
     }
 
+    /**
+     * Whether the adapter coalesces data set change notifications, see {@link
+     * Builder#setCoalesceUpdates(boolean)}.
+     */
+    public boolean getCoalesceUpdates() {
+        return mCoalesceUpdates;
+    }
+
     /**
      * Builder for {@link FirebaseListOptions}.
      *
@@ -67,6 +78,7 @@ public final class FirebaseListOptions<T> {
         private ObservableSnapshotArray<T> mSnapshots;
         private @LayoutRes Integer mLayout;
         private LifecycleOwner mOwner;
+        private boolean mCoalesceUpdates;
 
         /**
          * Directly set the {@link ObservableSnapshotArray} to observe.
@@ -100,7 +112,7 @@ public final class FirebaseListOptions<T> {
          */
         @NonNull
         public Builder<T> setQuery(@NonNull Query query, @NonNull Class<T> modelClass) {
-            return setQuery(query, new ClassSnapshotParser<>(modelClass));
+            return setQuery(query, SnapshotParsers.forClass(modelClass));
         }
 
         /**
@@ -130,7 +142,7 @@ public final class FirebaseListOptions<T> {
         public Builder<T> setIndexedQuery(@NonNull Query keyQuery,
                                           @NonNull DatabaseReference dataRef,
                                           @NonNull Class<T> modelClass) {
-            return setIndexedQuery(keyQuery, dataRef, new ClassSnapshotParser<>(modelClass));
+            return setIndexedQuery(keyQuery, dataRef, SnapshotParsers.forClass(modelClass));
         }
 
         /**
@@ -152,6 +164,20 @@ public final class FirebaseListOptions<T> {
             return this;
         }
 
+        /**
+         * Hold back data set change notifications until the end of the current update or the next
+         * frame, whichever comes first, so the list is invalidated at most once per frame instead
+         * of once per child event. Useful for lists that receive frequent updates, such as chats.
+         * <p>
+         * Until a change is notified, the adapter keeps serving the items as they were when the
+         * list was last invalidated.
+         */
+        @NonNull
+        public Builder<T> setCoalesceUpdates(boolean coalesce) {
+            mCoalesceUpdates = coalesce;
+            return this;
+        }
+
         /**
          * Build a {@link FirebaseListOptions} from the provided arguments.
          */
@@ -162,7 +188,7 @@ public final class FirebaseListOptions<T> {
             assertNonNull(mLayout, "Layout cannot be null. " +
                     "Call setLayout.");
 
-            return new FirebaseListOptions<>(mSnapshots, mLayout, mOwner);
+            return new FirebaseListOptions<>(mSnapshots, mLayout, mOwner, mCoalesceUpdates);
         }
 
     }
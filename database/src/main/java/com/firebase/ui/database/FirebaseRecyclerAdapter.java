@@ -2,15 +2,26 @@ package com.firebase.ui.database;
 
 import android.util.Log;
 
+import com.firebase.ui.common.ChangeEvent;
 import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.common.ModelSnapshotStore;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.OnLifecycleEvent;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
@@ -26,12 +37,53 @@ import androidx.recyclerview.widget.RecyclerView;
  *             is shown for each object.
  */
 public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
-        extends RecyclerView.Adapter<VH> implements FirebaseAdapter<T> {
+        extends RecyclerView.Adapter<VH>
+        implements FirebaseAdapter<T>, BatchChangeEventListener, InitialDataListener {
     private static final String TAG = "FirebaseRecyclerAdapter";
 
+    private final ListUpdateCallback mAdapterCallback = new AdapterListUpdateCallback(this);
+    /**
+     * Receives the notifications made by {@link #onChildChanged}, a {@link
+     * BatchingListUpdateCallback} while a batch is being dispatched.
+     */
+    private ListUpdateCallback mUpdateCallback = mAdapterCallback;
+
     private FirebaseRecyclerOptions<T> mOptions;
     private ObservableSnapshotArray<T> mSnapshots;
 
+    /**
+     * Items restored from the options' model store, shown until the array reports its first data.
+     */
+    private ModelSnapshotStore.Contents<T> mPersisted;
+    /** The read of the model store in flight, cleared once the read is no longer wanted. */
+    private ModelSnapshotStore.ReadCallback<T> mPendingRead;
+    private final InitialDataListener mReconcileListener = new InitialDataListener() {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {
+        }
+
+        @Override
+        public void onInitialData(int count) {
+        }
+
+        @Override
+        public void onDataChanged() {
+            // If the data beat the read, the persisted items aren't needed anymore
+            mPendingRead = null;
+            reconcile();
+        }
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {
+            // Don't keep showing the persisted items if the data will never arrive
+            mPendingRead = null;
+            reconcile();
+        }
+    };
+
     /**
      * Initialize a {@link RecyclerView.Adapter} that listens to a Firebase query. See
      * {@link FirebaseRecyclerOptions} for configuration options.
@@ -49,6 +101,7 @@ public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHol
     @OnLifecycleEvent(Lifecycle.Event.ON_START)
     public void startListening() {
         if (!mSnapshots.isListening(this)) {
+            restorePersisted();
             mSnapshots.addChangeEventListener(this);
         }
     }
@@ -56,37 +109,191 @@ public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHol
     @Override
     @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
     public void stopListening() {
+        if (mPersisted != null || mPendingRead != null) {
+            mPersisted = null;
+            mPendingRead = null;
+            mSnapshots.removeChangeEventListener(mReconcileListener);
+        } else {
+            persistModels();
+        }
         mSnapshots.removeChangeEventListener(this);
     }
 
+    /**
+     * Show the items persisted by the last session once they are read, if the array still has
+     * nothing to show by then. The store is read on a background thread, usually ahead of time
+     * since the options start reading it when they are built.
+     */
+    private void restorePersisted() {
+        ModelSnapshotStore<T> store = mOptions.getModelStore();
+        if (store == null || !mSnapshots.isEmpty()) { return; }
+
+        mPendingRead = new ModelSnapshotStore.ReadCallback<T>() {
+            @Override
+            public void onRead(@Nullable ModelSnapshotStore.Contents<T> contents) {
+                if (mPendingRead != this) { return; }
+                mPendingRead = null;
+
+                if (contents == null || !mSnapshots.isEmpty()) {
+                    mSnapshots.removeChangeEventListener(mReconcileListener);
+                    return;
+                }
+                mPersisted = contents;
+                notifyItemRangeInserted(0, contents.size());
+            }
+        };
+        mSnapshots.addChangeEventListener(mReconcileListener);
+        store.readAsync(mPendingRead);
+    }
+
+    /**
+     * Swap the restored items for the array's contents, diffing them by key so unchanged rows
+     * aren't rebound. Only the prefix of the array covered by the restored items is diffed, the
+     * rest is a plain insertion.
+     */
+    private void reconcile() {
+        final ModelSnapshotStore.Contents<T> persisted = mPersisted;
+        mPersisted = null;
+        mSnapshots.removeChangeEventListener(mReconcileListener);
+        if (persisted == null) { return; }
+
+        final int diffed = Math.min(mSnapshots.size(), persisted.size());
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return persisted.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return diffed;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return persisted.getKey(oldItemPosition)
+                        .equals(mSnapshots.getKey(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return persisted.getModel(oldItemPosition)
+                        .equals(mSnapshots.get(newItemPosition));
+            }
+        });
+        result.dispatchUpdatesTo(this);
+        if (mSnapshots.size() > diffed) {
+            notifyItemRangeInserted(diffed, mSnapshots.size() - diffed);
+        }
+    }
+
+    /**
+     * Write the first items of the array to the options' model store for the next cold start.
+     */
+    private void persistModels() {
+        ModelSnapshotStore<T> store = mOptions.getModelStore();
+        if (store == null || !mSnapshots.isListening(this) || mSnapshots.isEmpty()) { return; }
+
+        int count = Math.min(mSnapshots.size(), store.getMaxEntries());
+        List<String> keys = new ArrayList<>(count);
+        List<T> models = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(mSnapshots.getKey(i));
+            models.add(mSnapshots.get(i));
+        }
+        store.writeAsync(keys, models);
+    }
+
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
     void cleanup(LifecycleOwner source) {
         source.getLifecycle().removeObserver(this);
     }
 
+    /**
+     * Called for every child event, including the ones delivered in a batch and the catch-up with
+     * the items already in the array. While a batch is dispatched, the notifications sent by this
+     * implementation are merged into range notifications and posted once the batch is complete.
+     */
     @Override
     public void onChildChanged(@NonNull ChangeEventType type,
                                @NonNull DataSnapshot snapshot,
                                int newIndex,
                                int oldIndex) {
+        if (mPersisted != null) { return; }
         switch (type) {
             case ADDED:
-                notifyItemInserted(newIndex);
+                mUpdateCallback.onInserted(newIndex, 1);
                 break;
             case CHANGED:
-                notifyItemChanged(newIndex);
+                mUpdateCallback.onChanged(newIndex, 1, null);
                 break;
             case REMOVED:
-                notifyItemRemoved(newIndex);
+                mUpdateCallback.onRemoved(newIndex, 1);
                 break;
             case MOVED:
-                notifyItemMoved(oldIndex, newIndex);
+                mUpdateCallback.onMoved(oldIndex, newIndex);
                 break;
             default:
                 throw new IllegalStateException("Incomplete case statement");
         }
     }
 
+    /**
+     * Passes each event of the batch to {@link #onChildChanged}, merging consecutive insertions,
+     * removals and changes into range notifications.
+     */
+    @Override
+    public void onBatchChanged(@NonNull List<ChangeEvent<DataSnapshot>> events) {
+        if (mPersisted != null) { return; }
+        BatchingListUpdateCallback batch = beginUpdates();
+        try {
+            for (ChangeEvent<DataSnapshot> event : events) {
+                onChildChanged(event.getType(),
+                        event.getSnapshot(),
+                        event.getNewIndex(),
+                        event.getOldIndex());
+            }
+        } finally {
+            endUpdates(batch);
+        }
+    }
+
+    /**
+     * Catches up with the items already in the array by passing an {@link ChangeEventType#ADDED}
+     * event for each of them to {@link #onChildChanged}, sent as a single range insertion. If the
+     * array doesn't {@link ObservableSnapshotArray#setRetainSnapshots(boolean) retain its
+     * snapshots}, the range is inserted directly.
+     */
+    @Override
+    public void onInitialData(int count) {
+        if (mPersisted != null) { return; }
+        if (!mSnapshots.isRetainingSnapshots()) {
+            notifyItemRangeInserted(0, count);
+            return;
+        }
+
+        BatchingListUpdateCallback batch = beginUpdates();
+        try {
+            for (int i = 0; i < count; i++) {
+                onChildChanged(ChangeEventType.ADDED, mSnapshots.getSnapshot(i), i, -1);
+            }
+        } finally {
+            endUpdates(batch);
+        }
+    }
+
+    @NonNull
+    private BatchingListUpdateCallback beginUpdates() {
+        BatchingListUpdateCallback batch = new BatchingListUpdateCallback(mAdapterCallback);
+        mUpdateCallback = batch;
+        return batch;
+    }
+
+    private void endUpdates(@NonNull BatchingListUpdateCallback batch) {
+        mUpdateCallback = mAdapterCallback;
+        batch.dispatchLastEvent();
+    }
+
     @Override
     public void onDataChanged() {
     }
@@ -105,17 +312,27 @@ public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHol
     @NonNull
     @Override
     public T getItem(int position) {
+        if (mPersisted != null) {
+            return mPersisted.getModel(position);
+        }
         return mSnapshots.get(position);
     }
 
     @NonNull
     @Override
     public DatabaseReference getRef(int position) {
-        return mSnapshots.getSnapshot(position).getRef();
+        if (mPersisted != null) {
+            throw new IllegalStateException(
+                    "Items restored from disk have no reference until the first data arrives.");
+        }
+        return mSnapshots.getRef(position);
     }
 
     @Override
     public int getItemCount() {
+        if (mPersisted != null) {
+            return mPersisted.size();
+        }
         return mSnapshots.isListening(this) ? mSnapshots.size() : 0;
     }
 
@@ -129,7 +346,10 @@ public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHol
         if (mOptions.getOwner() != null) {
             mOptions.getOwner().getLifecycle().removeObserver(this);
         }
-        mSnapshots.clear();
+        // A shared array still backs other adapters, which only stop listening to it
+        if (!FirebaseArrayRegistry.isShared(mSnapshots)) {
+            mSnapshots.clear();
+        }
         stopListening();
 
         // Set up new options
@@ -145,7 +365,18 @@ public abstract class FirebaseRecyclerAdapter<T, VH extends RecyclerView.ViewHol
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
+        if (mPersisted == null) {
+            mSnapshots.onItemBound(position);
+        }
+        MetricsListener metrics = mSnapshots.getMetricsListener();
+        if (metrics == null) {
+            onBindViewHolder(holder, position, getItem(position));
+            return;
+        }
+
+        long start = System.nanoTime();
         onBindViewHolder(holder, position, getItem(position));
+        metrics.onItemBound(System.nanoTime() - start);
     }
 
     /**
@@ -0,0 +1,213 @@
+package com.firebase.ui.database;
+
+import android.util.Log;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.common.SnapshotListDiffer;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A variant of {@link FirebaseRecyclerAdapter} which does not forward child events to the {@link
+ * RecyclerView} one by one. Instead, the contents of the backing array are copied at most once per
+ * frame and diffed against what is currently displayed on a background thread, so a burst of
+ * events (for example when a connection is re-established) results in a single set of minimal
+ * updates.
+ * <p>
+ * Positions passed to {@link #getItem(int)} and {@link #getRef(int)} refer to the displayed list,
+ * which may briefly lag behind {@link #getSnapshots()}. The model of a displayed
+ * item is parsed once and kept until its snapshot changes.
+ * <p>
+ * The array must {@link ObservableSnapshotArray#setRetainSnapshots(boolean) retain its snapshots}
+ * to be diffed: constructing the adapter, updating its options or starting to listen throws an
+ * {@link IllegalArgumentException} otherwise.
+ *
+ * @param <T>  The Java class that maps to the type of objects stored in the Firebase location.
+ * @param <VH> The {@link RecyclerView.ViewHolder} class that contains the Views in the layout that
+ *             is shown for each object.
+ */
+public abstract class FirebaseRecyclerDiffAdapter<T, VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<VH> implements FirebaseAdapter<T>, InitialDataListener {
+    private static final String TAG = "FirebaseRecyclerDiff";
+
+    private static final DiffUtil.ItemCallback<DataSnapshot> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<DataSnapshot>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull DataSnapshot oldItem,
+                                               @NonNull DataSnapshot newItem) {
+                    return Objects.equals(oldItem.getKey(), newItem.getKey());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull DataSnapshot oldItem,
+                                                  @NonNull DataSnapshot newItem) {
+                    return oldItem == newItem
+                            || Objects.equals(oldItem.getValue(), newItem.getValue());
+                }
+            };
+
+    private final SnapshotListDiffer<DataSnapshot, T> mDiffer;
+
+    private FirebaseRecyclerOptions<T> mOptions;
+    private ObservableSnapshotArray<T> mSnapshots;
+
+    /**
+     * Initialize a {@link RecyclerView.Adapter} that listens to a Firebase query and diffs its
+     * contents on the default background executor of {@link AsyncListDiffer}.
+     */
+    public FirebaseRecyclerDiffAdapter(@NonNull FirebaseRecyclerOptions<T> options) {
+        this(options, null);
+    }
+
+    /**
+     * Initialize a {@link RecyclerView.Adapter} that listens to a Firebase query. See {@link
+     * FirebaseRecyclerOptions} for configuration options.
+     *
+     * @param diffExecutor the executor to compute diffs on, or {@code null} to use the default.
+     */
+    public FirebaseRecyclerDiffAdapter(@NonNull FirebaseRecyclerOptions<T> options,
+                                       @Nullable Executor diffExecutor) {
+        SnapshotListDiffer.checkRetainsSnapshots(options.getSnapshots());
+        mDiffer = new SnapshotListDiffer<>(this, DIFF_CALLBACK, diffExecutor);
+
+        mOptions = options;
+        mSnapshots = options.getSnapshots();
+
+        if (mOptions.getOwner() != null) {
+            mOptions.getOwner().getLifecycle().addObserver(this);
+        }
+    }
+
+    @Override
+    @OnLifecycleEvent(Lifecycle.Event.ON_START)
+    public void startListening() {
+        if (!mSnapshots.isListening(this)) {
+            SnapshotListDiffer.checkRetainsSnapshots(mSnapshots);
+            mSnapshots.addChangeEventListener(this);
+        }
+    }
+
+    @Override
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    public void stopListening() {
+        mSnapshots.removeChangeEventListener(this);
+        mDiffer.clear();
+    }
+
+    @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+    void cleanup(LifecycleOwner source) {
+        source.getLifecycle().removeObserver(this);
+    }
+
+    @Override
+    public void onChildChanged(@NonNull ChangeEventType type,
+                               @NonNull DataSnapshot snapshot,
+                               int newIndex,
+                               int oldIndex) {
+        mDiffer.scheduleDiff(mSnapshots);
+    }
+
+    @Override
+    public void onInitialData(int count) {
+        mDiffer.scheduleDiff(mSnapshots);
+    }
+
+    @Override
+    public void onDataChanged() {
+    }
+
+    @Override
+    public void onError(@NonNull DatabaseError error) {
+        Log.w(TAG, error.toException());
+    }
+
+    @NonNull
+    @Override
+    public ObservableSnapshotArray<T> getSnapshots() {
+        return mSnapshots;
+    }
+
+    /**
+     * Gets the item at the specified position of the displayed list.
+     *
+     * @see ObservableSnapshotArray#parseSnapshot(Object)
+     */
+    @NonNull
+    @Override
+    public T getItem(int position) {
+        return mDiffer.getModel(position);
+    }
+
+    @NonNull
+    @Override
+    public DatabaseReference getRef(int position) {
+        return mDiffer.getSnapshot(position).getRef();
+    }
+
+    @Override
+    public int getItemCount() {
+        return mDiffer.size();
+    }
+
+    /**
+     * Re-initialize the Adapter with a new set of options. Can be used to change the query
+     * without re-constructing the entire adapter.
+     */
+    public void updateOptions(@NonNull FirebaseRecyclerOptions<T> options) {
+        SnapshotListDiffer.checkRetainsSnapshots(options.getSnapshots());
+
+        // Tear down old options
+        boolean wasListening = mSnapshots.isListening(this);
+        if (mOptions.getOwner() != null) {
+            mOptions.getOwner().getLifecycle().removeObserver(this);
+        }
+        // A shared array still backs other adapters, which only stop listening to it
+        if (!FirebaseArrayRegistry.isShared(mSnapshots)) {
+            mSnapshots.clear();
+        }
+        stopListening();
+
+        // Set up new options
+        mOptions = options;
+        mSnapshots = options.getSnapshots();
+        if (options.getOwner() != null) {
+            options.getOwner().getLifecycle().addObserver(this);
+        }
+        if (wasListening) {
+            startListening();
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        mSnapshots.onItemBound(position);
+        MetricsListener metrics = mSnapshots.getMetricsListener();
+        if (metrics == null) {
+            onBindViewHolder(holder, position, getItem(position));
+            return;
+        }
+
+        long start = System.nanoTime();
+        onBindViewHolder(holder, position, getItem(position));
+        metrics.onItemBound(System.nanoTime() - start);
+    }
+
+    /**
+     * @param model the model object containing the data that should be used to populate the view.
+     * @see #onBindViewHolder(RecyclerView.ViewHolder, int)
+     */
+    protected abstract void onBindViewHolder(@NonNull VH holder, int position, @NonNull T model);
+}
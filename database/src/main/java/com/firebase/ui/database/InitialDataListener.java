@@ -0,0 +1,12 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.BaseInitialDataListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+/**
+ * Listener for changes to {@link FirebaseArray} which is caught up with existing children in a
+ * single call.
+ */
+public interface InitialDataListener extends ChangeEventListener,
+        BaseInitialDataListener<DataSnapshot, DatabaseError> {}
@@ -3,10 +3,12 @@ package com.firebase.ui.database;
 import com.firebase.ui.common.BaseObservableSnapshotArray;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
 
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * Exposes a collection of items in Firebase as a {@link List} of {@link DataSnapshot}. To observe
@@ -24,4 +26,26 @@ public abstract class ObservableSnapshotArray<T>
     public ObservableSnapshotArray(@NonNull SnapshotParser<T> parser) {
         super(new CachingSnapshotParser<>(parser));
     }
+
+    /**
+     * Returns the reference of the item at the specified position. Arrays which know the location
+     * of their items return it even if they don't {@link #setRetainSnapshots(boolean) retain
+     * snapshots}.
+     *
+     * @throws IllegalStateException if the array does not retain snapshots and cannot rebuild the
+     *                               reference from the item's key.
+     */
+    @NonNull
+    public DatabaseReference getRef(int index) {
+        return getSnapshot(index).getRef();
+    }
+
+    /**
+     * Rebuilds the reference of the child with the given key, or returns {@code null} if the array
+     * doesn't know the location of its items.
+     */
+    @Nullable
+    DatabaseReference getChildRef(@NonNull String key) {
+        return null;
+    }
 }
@@ -0,0 +1,26 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.GeneratedParsers;
+import com.firebase.ui.common.Preconditions;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Creates the {@link SnapshotParser} used for a model class wherever one isn't given explicitly.
+ */
+public final class SnapshotParsers {
+    private SnapshotParsers() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return the parser generated for {@code modelClass} if it is annotated with {@link
+     * com.firebase.ui.common.GenerateSnapshotParser}, or a {@link ClassSnapshotParser} otherwise.
+     */
+    @NonNull
+    public static <T> SnapshotParser<T> forClass(@NonNull Class<T> modelClass) {
+        SnapshotParser<T> generated = GeneratedParsers.find(
+                Preconditions.checkNotNull(modelClass), GeneratedParsers.DATABASE_SUFFIX);
+        return generated != null ? generated : new ClassSnapshotParser<>(modelClass);
+    }
+}
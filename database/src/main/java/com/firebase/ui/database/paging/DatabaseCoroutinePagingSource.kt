@@ -0,0 +1,34 @@
+package com.firebase.ui.database.paging
+
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import com.google.firebase.database.DataSnapshot
+import com.google.firebase.database.Query
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.tasks.await
+
+/**
+ * Paging source for a Realtime Database query which suspends on each page load instead of
+ * blocking a thread until the underlying task completes.
+ *
+ * This is the default source used by [DatabasePagingOptions]. See [DatabasePagingSource] for the
+ * RxJava based equivalent.
+ */
+open class DatabaseCoroutinePagingSource(
+        private val query: Query
+) : PagingSource<String, DataSnapshot>() {
+
+    override suspend fun load(params: LoadParams<String>): LoadResult<String, DataSnapshot> {
+        return try {
+            val snapshot = DatabasePages.getPageQuery(query, params).get().await()
+            DatabasePages.toPage(query, params, snapshot)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            LoadResult.Error(e)
+        }
+    }
+
+    override fun getRefreshKey(state: PagingState<String, DataSnapshot>): String? =
+            DatabasePages.getRefreshKey(state)
+}
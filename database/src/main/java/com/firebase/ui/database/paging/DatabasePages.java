@@ -0,0 +1,142 @@
+package com.firebase.ui.database.paging;
+
+import android.annotation.SuppressLint;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseException;
+import com.google.firebase.database.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagingSource.LoadParams;
+import androidx.paging.PagingSource.LoadResult;
+import androidx.paging.PagingState;
+
+/**
+ * Page boundaries shared by every Realtime Database paging source, regardless of how pages are
+ * awaited. Keys are child keys and the load direction comes from the type of {@link LoadParams}.
+ */
+final class DatabasePages {
+    private static final String STATUS_DATABASE_NOT_FOUND = "DATA_NOT_FOUND";
+    private static final String MESSAGE_DATABASE_NOT_FOUND = "Data not found at given child path!";
+    private static final String DETAILS_DATABASE_NOT_FOUND = "No data was returned for the given query: ";
+
+    private DatabasePages() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return the query for the page requested by {@code params}.
+     */
+    @NonNull
+    static Query getPageQuery(@NonNull Query query, @NonNull LoadParams<String> params) {
+        String key = params.getKey();
+        int loadSize = params.getLoadSize();
+
+        if (key == null) {
+            return query.limitToFirst(loadSize);
+        } else if (params instanceof LoadParams.Prepend) {
+            return query.endBefore(null, key).limitToLast(loadSize);
+        } else if (params instanceof LoadParams.Append) {
+            return query.startAfter(null, key).limitToFirst(loadSize);
+        } else {
+            // Refreshing from an anchor, the key itself is part of the page
+            return query.startAt(null, key).limitToFirst(loadSize);
+        }
+    }
+
+    /**
+     * DatabaseError.fromStatus() is not meant to be public.
+     *
+     * @throws DatabaseException if the initial page doesn't contain any data.
+     */
+    @SuppressLint("RestrictedApi")
+    @NonNull
+    static LoadResult.Page<String, DataSnapshot> toPage(@NonNull Query query,
+                                                        @NonNull LoadParams<String> params,
+                                                        @NonNull DataSnapshot dataSnapshot) {
+        String key = params.getKey();
+        boolean backward = params instanceof LoadParams.Prepend;
+
+        if (dataSnapshot.exists()) {
+
+            //Make List of DataSnapshot
+            List<DataSnapshot> data = new ArrayList<>();
+            for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                data.add(snapshot);
+            }
+
+            // A short page means we've reached the end of the data in that direction
+            boolean reachedEnd = data.size() < params.getLoadSize();
+            String prevKey = key == null || backward && reachedEnd ?
+                    null : getFirstPageKey(data);
+            String nextKey = !backward && reachedEnd ? null : getLastPageKey(data);
+            return toPage(data, prevKey, nextKey);
+        } else if (key != null) {
+            // Nothing left before or after the given key
+            return toPage(new ArrayList<>(), null, null);
+        } else {
+            String details = DETAILS_DATABASE_NOT_FOUND + query.toString();
+            throw DatabaseError.fromStatus(
+                    STATUS_DATABASE_NOT_FOUND,
+                    MESSAGE_DATABASE_NOT_FOUND,
+                    details).toException();
+        }
+    }
+
+    /**
+     * Refresh from the children surrounding the last accessed item instead of the start of the
+     * query, so refreshing deep into a list only reloads what is on screen.
+     */
+    @Nullable
+    static String getRefreshKey(@NonNull PagingState<String, DataSnapshot> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+
+        // Keep the anchor in the middle of the initial load
+        int start = anchorPosition - state.getConfig().initialLoadSize / 2;
+        if (start <= 0) {
+            return null;
+        }
+
+        DataSnapshot first = state.closestItemToPosition(start);
+        return first == null ? null : first.getKey();
+    }
+
+    private static LoadResult.Page<String, DataSnapshot> toPage(
+            @NonNull List<DataSnapshot> snapshots,
+            String prevPage,
+            String nextPage
+    ) {
+        return new LoadResult.Page<>(
+                snapshots,
+                prevPage,
+                nextPage,
+                LoadResult.Page.COUNT_UNDEFINED,
+                LoadResult.Page.COUNT_UNDEFINED);
+    }
+
+    @Nullable
+    private static String getFirstPageKey(@NonNull List<DataSnapshot> data) {
+        if (data.isEmpty()) {
+            return null;
+        } else {
+            return data.get(0).getKey();
+        }
+    }
+
+    @Nullable
+    private static String getLastPageKey(@NonNull List<DataSnapshot> data) {
+        if (data.isEmpty()) {
+            return null;
+        } else {
+            return data.get(data.size() - 1).getKey();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.firebase.ui.database.paging;
 
-import com.firebase.ui.database.ClassSnapshotParser;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.database.SnapshotParsers;
 import com.firebase.ui.database.SnapshotParser;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.Query;
@@ -27,15 +28,18 @@ public final class DatabasePagingOptions<T> {
     private final LiveData<PagingData<DataSnapshot>> mData;
     private final DiffUtil.ItemCallback<DataSnapshot> mDiffCallback;
     private final LifecycleOwner mOwner;
+    private final MetricsListener mMetricsListener;
 
     private DatabasePagingOptions(@NonNull LiveData<PagingData<DataSnapshot>> data,
                                   @NonNull SnapshotParser<T> parser,
                                   @NonNull DiffUtil.ItemCallback<DataSnapshot> diffCallback,
-                                  @Nullable LifecycleOwner owner) {
+                                  @Nullable LifecycleOwner owner,
+                                  @Nullable MetricsListener metricsListener) {
         mParser = parser;
         mData = data;
         mDiffCallback = diffCallback;
         mOwner = owner;
+        mMetricsListener = metricsListener;
     }
 
     @NonNull
@@ -58,6 +62,14 @@ public final class DatabasePagingOptions<T> {
         return mOwner;
     }
 
+    /**
+     * @return the listener for the adapter's metrics, or null to use the global listener.
+     */
+    @Nullable
+    public MetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
     /**
      * Builder for {@link DatabasePagingOptions}.
      */
@@ -68,9 +80,15 @@ public final class DatabasePagingOptions<T> {
         private LifecycleOwner mOwner;
         private DiffUtil.ItemCallback<DataSnapshot> mDiffCallback;
 
+        private Query mQuery;
+        private PagingConfig mConfig;
+        private boolean mUseRxJava;
+        private String mVersionField;
+        private MetricsListener mMetricsListener;
+
         /**
-         * Sets the query using a {@link ClassSnapshotParser} based
-         * on the given class.
+         * Sets the query using the {@link SnapshotParsers#forClass(Class) parser} for the given
+         * class.
          *
          * See {@link #setQuery(Query, PagingConfig, SnapshotParser)}.
          */
@@ -78,7 +96,7 @@ public final class DatabasePagingOptions<T> {
         public Builder<T> setQuery(@NonNull Query query,
                                    @NonNull PagingConfig config,
                                    @NonNull Class<T> modelClass) {
-            return setQuery(query, config, new ClassSnapshotParser<>(modelClass));
+            return setQuery(query, config, SnapshotParsers.forClass(modelClass));
         }
         /**
          * Sets the Database query to paginate.
@@ -94,15 +112,45 @@ public final class DatabasePagingOptions<T> {
         public Builder<T> setQuery(@NonNull Query query,
                                    @NonNull PagingConfig config,
                                    @NotNull SnapshotParser<T> parser) {
-            final Pager<String, DataSnapshot> pager = new Pager<>(config,
-                    () -> new DatabasePagingSource(query));
-            mData = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
-                    mOwner.getLifecycle());
-
+            mQuery = query;
+            mConfig = config;
             mParser = parser;
             return this;
         }
 
+        /**
+         * Load pages with the RxJava based {@link DatabasePagingSource} instead of the default
+         * {@link DatabaseCoroutinePagingSource}, which doesn't block a thread while waiting for
+         * each page.
+         *
+         * <p>
+         * FirebaseUI doesn't depend on RxJava, add {@code androidx.paging:paging-rxjava3} to your
+         * app's dependencies to use this source.
+         *
+         * @return this, for chaining.
+         * @throws IllegalStateException if paging-rxjava3 is missing.
+         * @deprecated the RxJava source will be removed in the next major release.
+         */
+        @Deprecated
+        @NonNull
+        public Builder<T> setUseRxJava(boolean useRxJava) {
+            if (useRxJava && !hasRxJavaPaging()) {
+                throw new IllegalStateException("The RxJava paging source requires "
+                        + "androidx.paging:paging-rxjava3, add it to your app's dependencies.");
+            }
+            mUseRxJava = useRxJava;
+            return this;
+        }
+
+        private static boolean hasRxJavaPaging() {
+            try {
+                Class.forName("androidx.paging.rxjava3.RxPagingSource");
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+
         /**
          * Sets an optional custom {@link DiffUtil.ItemCallback} to compare
          * {@link T} objects.
@@ -116,6 +164,22 @@ public final class DatabasePagingOptions<T> {
         }
 
 
+        /**
+         * Sets a field which changes whenever the child does, such as an update counter or
+         * timestamp. The default diff callback then compares items by that field instead of
+         * parsing both versions of every item into models. Items without the field are compared
+         * by their raw values first, then by their models.
+         * <p>
+         * Has no effect when a custom diff callback is set.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setVersionField(@NonNull String field) {
+            mVersionField = field;
+            return this;
+        }
+
         /**
          * Sets an optional {@link LifecycleOwner} to control the lifecycle of the adapter. Otherwise,
          * you must manually call {@link FirebaseRecyclerPagingAdapter#startListening()}
@@ -129,20 +193,43 @@ public final class DatabasePagingOptions<T> {
             return this;
         }
 
+        /**
+         * Sets an optional {@link MetricsListener} receiving page load and bind metrics of the
+         * adapter, instead of the {@link com.firebase.ui.common.Metrics#setGlobalListener(
+         * MetricsListener) global listener}.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setMetricsListener(@Nullable MetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
+
         /**
          * Build the {@link DatabasePagingOptions} object.
          */
         @NonNull
         public DatabasePagingOptions<T> build() {
-            if (mData == null) {
+            if (mQuery == null) {
                 throw new IllegalStateException("Must call setQuery() before calling build().");
             }
 
+            final Query query = mQuery;
+            final boolean useRxJava = mUseRxJava;
+            @SuppressWarnings("deprecation")
+            final Pager<String, DataSnapshot> pager = new Pager<>(mConfig, () -> useRxJava ?
+                    new DatabasePagingSource(query) :
+                    new DatabaseCoroutinePagingSource(query));
+            mData = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
+                    mOwner.getLifecycle());
+
             if (mDiffCallback == null) {
-                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser);
+                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser, mVersionField);
             }
 
-            return new DatabasePagingOptions<>(mData, mParser, mDiffCallback, mOwner);
+            return new DatabasePagingOptions<>(
+                    mData, mParser, mDiffCallback, mOwner, mMetricsListener);
         }
 
     }
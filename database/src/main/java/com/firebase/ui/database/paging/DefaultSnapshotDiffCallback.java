@@ -6,6 +6,7 @@ import com.firebase.ui.database.SnapshotParser;
 import com.google.firebase.database.DataSnapshot;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.recyclerview.widget.DiffUtil;
 
@@ -16,9 +17,20 @@ import androidx.recyclerview.widget.DiffUtil;
 public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<DataSnapshot> {
 
     private final SnapshotParser<T> mParser;
+    private final String mVersionField;
 
     public DefaultSnapshotDiffCallback(@NonNull SnapshotParser<T> parser) {
+        this(parser, null);
+    }
+
+    /**
+     * @param versionField a field which changes whenever the child does, such as an update
+     *                     counter or timestamp. Items with a version are compared by it alone.
+     */
+    public DefaultSnapshotDiffCallback(@NonNull SnapshotParser<T> parser,
+                                       @Nullable String versionField) {
         mParser = parser;
+        mVersionField = versionField;
     }
 
     @Override
@@ -31,6 +43,26 @@ public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<DataSn
     @Override
     public boolean areContentsTheSame(@NonNull DataSnapshot oldItem,
                                       @NonNull DataSnapshot newItem) {
+        if (oldItem == newItem) {
+            return true;
+        }
+
+        if (mVersionField != null) {
+            Object oldVersion = oldItem.child(mVersionField).getValue();
+            Object newVersion = newItem.child(mVersionField).getValue();
+            if (oldVersion != null && newVersion != null) {
+                return oldVersion.equals(newVersion);
+            }
+        }
+
+        // Equal raw values always parse to equal models, and comparing them is much cheaper than
+        // mapping both snapshots to objects. Values that differ may still produce equal models
+        // if the model ignores the changed properties, so those are left to the parser.
+        Object oldValue = oldItem.getValue();
+        if (oldValue != null && oldValue.equals(newItem.getValue())) {
+            return true;
+        }
+
         T oldModel = mParser.parseSnapshot(oldItem);
         T newModel = mParser.parseSnapshot(newItem);
 
@@ -1,5 +1,7 @@
 package com.firebase.ui.database.paging;
 
+import com.firebase.ui.common.Metrics;
+import com.firebase.ui.common.MetricsListener;
 import com.firebase.ui.database.SnapshotParser;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseReference;
@@ -11,9 +13,13 @@ import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.OnLifecycleEvent;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.LoadState;
 import androidx.paging.PagingData;
 import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
 
 /**
  * Paginated RecyclerView Adapter for a Firebase Realtime Database query.
@@ -39,6 +45,16 @@ public abstract class FirebaseRecyclerPagingAdapter<T, VH extends RecyclerView.V
         }
     };
 
+    private final Function1<CombinedLoadStates, Unit> mLoadStateListener = states -> {
+        onLoadStatesChanged(states);
+        return Unit.INSTANCE;
+    };
+    /**
+     * When the page load being measured started, or 0 if there is none.
+     */
+    private long mLoadStartNanos;
+    private int mLoadStartItemCount;
+
     /**
      * Construct a new FirestorePagingAdapter from the given {@link DatabasePagingOptions}.
      */
@@ -46,6 +62,7 @@ public abstract class FirebaseRecyclerPagingAdapter<T, VH extends RecyclerView.V
         super(options.getDiffCallback());
 
         mOptions = options;
+        addLoadStateListener(mLoadStateListener);
 
         init();
     }
@@ -105,7 +122,47 @@ public abstract class FirebaseRecyclerPagingAdapter<T, VH extends RecyclerView.V
     @Override
     public void onBindViewHolder(@NonNull VH viewHolder, int position) {
         DataSnapshot snapshot = getItem(position);
+        MetricsListener metrics = Metrics.resolve(mOptions.getMetricsListener());
+        if (metrics == null) {
+            onBindViewHolder(viewHolder, position, mParser.parseSnapshot(snapshot));
+            return;
+        }
+
+        long start = System.nanoTime();
         onBindViewHolder(viewHolder, position, mParser.parseSnapshot(snapshot));
+        metrics.onItemBound(System.nanoTime() - start);
+    }
+
+    /**
+     * Reports how long each page took to load and how much it changed the item count to the
+     * metrics listener, if there is one. Overlapping loads are measured as a single page.
+     */
+    private void onLoadStatesChanged(@NonNull CombinedLoadStates states) {
+        MetricsListener metrics = Metrics.resolve(mOptions.getMetricsListener());
+        if (metrics == null) {
+            mLoadStartNanos = 0;
+            return;
+        }
+
+        boolean refreshing = states.getRefresh() instanceof LoadState.Loading;
+        if (refreshing
+                || states.getPrepend() instanceof LoadState.Loading
+                || states.getAppend() instanceof LoadState.Loading) {
+            if (mLoadStartNanos == 0) {
+                mLoadStartNanos = System.nanoTime();
+                // A refresh replaces every item, so the whole list is the new page
+                mLoadStartItemCount = refreshing ? 0 : getItemCount();
+            }
+        } else if (mLoadStartNanos != 0) {
+            boolean failed = states.getRefresh() instanceof LoadState.Error
+                    || states.getPrepend() instanceof LoadState.Error
+                    || states.getAppend() instanceof LoadState.Error;
+            if (!failed) {
+                metrics.onPageLoaded(System.nanoTime() - mLoadStartNanos,
+                        getItemCount() - mLoadStartItemCount);
+            }
+            mLoadStartNanos = 0;
+        }
     }
 
     /**
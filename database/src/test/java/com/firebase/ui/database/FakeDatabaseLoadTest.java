@@ -0,0 +1,189 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Drives {@link FirebaseArray} and {@link FirebaseIndexArray} with large, bursty event streams
+ * from a {@link FakeDatabaseLocation}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FakeDatabaseLoadTest {
+    private static final int INITIAL_LOAD = 100000;
+    private static final int BURST_COUNT = 200;
+    private static final int BURST_SIZE = 50;
+
+    private static final SnapshotParser<String> PARSER =
+            snapshot -> (String) snapshot.child("text").getValue();
+
+    @Test
+    public void testInitialLoadAndBursts() {
+        FakeDatabaseLocation location = new FakeDatabaseLocation("messages");
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            location.add(key(i), value(i, 0));
+        }
+
+        FirebaseArray<String> array = new FirebaseArray<>(location.getReference(), PARSER);
+        CountingListener listener = new CountingListener();
+        array.addChangeEventListener(listener);
+        location.flush();
+
+        assertEquals(INITIAL_LOAD, array.size());
+        assertEquals(1, listener.mDataChangedCount);
+
+        Random random = new Random(42);
+        int nextId = INITIAL_LOAD;
+        for (int burst = 0; burst < BURST_COUNT; burst++) {
+            for (int i = 0; i < BURST_SIZE; i++) {
+                nextId = mutate(location, random, nextId);
+            }
+            location.flush();
+        }
+
+        assertEquals(1 + BURST_COUNT, listener.mDataChangedCount);
+        assertMatches(location, array);
+
+        array.removeChangeEventListener(listener);
+        assertEquals(0, location.getListenerCount());
+    }
+
+    @Test
+    public void testRestartReplaysChildren() {
+        FakeDatabaseLocation location = new FakeDatabaseLocation("messages");
+        for (int i = 0; i < 1000; i++) {
+            location.add(key(i), value(i, 0));
+        }
+
+        FirebaseArray<String> array = new FirebaseArray<>(location.getReference(), PARSER);
+        CountingListener listener = new CountingListener();
+        array.addChangeEventListener(listener);
+        location.flush();
+
+        array.removeChangeEventListener(listener);
+        Random random = new Random(42);
+        int nextId = 1000;
+        for (int i = 0; i < 100; i++) {
+            nextId = mutate(location, random, nextId);
+        }
+
+        array.addChangeEventListener(listener);
+        location.flush();
+
+        assertMatches(location, array);
+    }
+
+    @Test
+    public void testIndexJoin() {
+        FakeDatabaseLocation keys = new FakeDatabaseLocation("keys");
+        FakeDatabaseLocation data = new FakeDatabaseLocation("data");
+        for (int i = 0; i < 10000; i++) {
+            keys.add(key(i), true);
+            if (i % 10 != 0) { data.add(key(i), value(i, 0)); }
+        }
+
+        FirebaseIndexArray<String> array =
+                new FirebaseIndexArray<>(keys.getReference(), data.getReference(), PARSER);
+        CountingListener listener = new CountingListener();
+        array.addChangeEventListener(listener);
+        flush(keys, data);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String key = keys.getKeys().get(random.nextInt(keys.size()));
+            if (random.nextBoolean()) {
+                keys.move(key, random.nextInt(keys.size()));
+            } else {
+                data.set(key, value(i, 1));
+            }
+            if (i % 10 == 0) { flush(keys, data); }
+        }
+        flush(keys, data);
+
+        List<String> expected = new ArrayList<>();
+        for (String key : keys.getKeys()) {
+            if (data.getValue(key) != null) { expected.add(key); }
+        }
+        assertEquals(expected.size(), array.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), array.getSnapshot(i).getKey());
+        }
+
+        array.removeChangeEventListener(listener);
+        assertEquals(0, keys.getListenerCount());
+        assertEquals(0, data.getListenerCount());
+    }
+
+    private static void flush(FakeDatabaseLocation keys, FakeDatabaseLocation data) {
+        while (keys.hasPendingEvents() || data.hasPendingEvents()) {
+            keys.flush();
+            data.flush();
+        }
+    }
+
+    private static int mutate(FakeDatabaseLocation location, Random random, int nextId) {
+        int roll = random.nextInt(4);
+        String key = location.getKeys().get(random.nextInt(location.size()));
+        if (roll == 0) {
+            location.add(random.nextInt(location.size() + 1), key(nextId), value(nextId, 0));
+            return nextId + 1;
+        } else if (roll == 1) {
+            location.set(key, value(nextId, 1));
+        } else if (roll == 2) {
+            location.remove(key);
+        } else {
+            location.move(key, random.nextInt(location.size()));
+        }
+        return nextId;
+    }
+
+    private static void assertMatches(FakeDatabaseLocation location, FirebaseArray<String> array) {
+        assertEquals(location.size(), array.size());
+        for (int i = 0; i < location.size(); i++) {
+            String key = location.getKeys().get(i);
+            assertEquals(key, array.getSnapshot(i).getKey());
+            assertEquals(PARSER.parseSnapshot(array.getSnapshot(i)), array.get(i));
+        }
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id, int version) {
+        return Collections.singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class CountingListener implements ChangeEventListener {
+        int mDataChangedCount;
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {
+            mDataChangedCount++;
+        }
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
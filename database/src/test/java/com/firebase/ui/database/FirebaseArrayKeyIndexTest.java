@@ -0,0 +1,135 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link FirebaseArray} finds children by key wherever they are added, moved or
+ * removed.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseArrayKeyIndexTest {
+    private static final int INITIAL_COUNT = 1000;
+
+    private FakeDatabaseLocation mLocation;
+    private FirebaseArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        for (int i = 0; i < INITIAL_COUNT; i++) {
+            mLocation.add(key(i), value(i));
+        }
+
+        mArray = new FirebaseArray<>(mLocation.getReference(), DataSnapshot::getKey);
+        mArray.addChangeEventListener(new NoOpListener());
+        mLocation.flush();
+    }
+
+    @Test
+    public void testInitialLoad() {
+        assertIndexMatches();
+    }
+
+    @Test
+    public void testAddAndRemoveAtFront() {
+        for (int i = 0; i < 100; i++) {
+            mLocation.add(0, key(INITIAL_COUNT + i), value(i));
+            if (i % 3 == 0) { mLocation.remove(mLocation.getKeys().get(1)); }
+            mLocation.flush();
+            assertIndexMatches();
+        }
+    }
+
+    @Test
+    public void testRandomChanges() {
+        Random random = new Random(42);
+        int nextId = INITIAL_COUNT;
+        for (int i = 0; i < 500; i++) {
+            String key = mLocation.getKeys().get(random.nextInt(mLocation.size()));
+            int roll = random.nextInt(4);
+            if (roll == 0) {
+                mLocation.add(random.nextInt(mLocation.size() + 1), key(nextId), value(nextId));
+                nextId++;
+            } else if (roll == 1) {
+                mLocation.set(key, value(nextId));
+            } else if (roll == 2) {
+                mLocation.remove(key);
+            } else {
+                mLocation.move(key, random.nextInt(mLocation.size()));
+            }
+
+            if (i % 7 == 0) {
+                mLocation.flush();
+                assertIndexMatches();
+            }
+        }
+        mLocation.flush();
+        assertIndexMatches();
+    }
+
+    @Test
+    public void testMissingKeys() {
+        String removed = mLocation.getKeys().get(0);
+        mLocation.remove(removed);
+        mLocation.flush();
+
+        assertEquals(-1, mArray.indexOfKey(removed));
+        assertEquals(-1, mArray.indexOfKey("unknown"));
+    }
+
+    @Test
+    public void testClearForgetsKeys() {
+        String key = mLocation.getKeys().get(0);
+        mArray.clear();
+
+        assertEquals(0, mArray.size());
+        assertEquals(-1, mArray.indexOfKey(key));
+    }
+
+    private void assertIndexMatches() {
+        assertEquals(mLocation.size(), mArray.size());
+        for (int i = 0; i < mLocation.size(); i++) {
+            String key = mLocation.getKeys().get(i);
+            assertEquals(key, mArray.get(i));
+            assertEquals(i, mArray.indexOfKey(key));
+        }
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id) {
+        return Collections.singletonMap("text", "Message " + id);
+    }
+
+    private static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
@@ -0,0 +1,134 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.Metrics;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which {@link MetricsListener} an array reports to, and that the active listener count
+ * follows the database listeners arrays attach and detach.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseArrayMetricsTest {
+    private FakeDatabaseLocation mLocation;
+    private RecordingMetrics mGlobal;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        mLocation.add("a", Collections.singletonMap("text", "Message a"));
+        mLocation.add("b", Collections.singletonMap("text", "Message b"));
+
+        mGlobal = new RecordingMetrics();
+        Metrics.setGlobalListener(mGlobal);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setGlobalListener(null);
+    }
+
+    @Test
+    public void testGlobalListener() {
+        FirebaseArray<String> array = newArray();
+        NoOpListener listener = new NoOpListener();
+        array.addChangeEventListener(listener);
+        mLocation.flush();
+
+        assertEquals(2, mGlobal.mEvents.size());
+        array.removeChangeEventListener(listener);
+    }
+
+    @Test
+    public void testOwnListenerTakesPrecedence() {
+        RecordingMetrics own = new RecordingMetrics();
+        FirebaseArray<String> array = newArray();
+        array.setMetricsListener(own);
+        NoOpListener listener = new NoOpListener();
+        array.addChangeEventListener(listener);
+        mLocation.flush();
+
+        assertEquals(2, own.mEvents.size());
+        assertTrue(mGlobal.mEvents.isEmpty());
+        assertTrue(mGlobal.mListenerCounts.isEmpty());
+        array.removeChangeEventListener(listener);
+    }
+
+    @Test
+    public void testActiveListenerCount() {
+        int initial = Metrics.getActiveListenerCount();
+        FirebaseArray<String> first = newArray();
+        FirebaseArray<String> second = newArray();
+        NoOpListener listener = new NoOpListener();
+
+        // Each array attaches a child and a value listener while it has listeners of its own
+        first.addChangeEventListener(listener);
+        assertEquals(initial + 2, Metrics.getActiveListenerCount());
+        second.addChangeEventListener(listener);
+        assertEquals(initial + 4, Metrics.getActiveListenerCount());
+        assertEquals(mLocation.getListenerCount(), Metrics.getActiveListenerCount() - initial);
+
+        first.removeChangeEventListener(listener);
+        second.removeChangeEventListener(listener);
+        assertEquals(initial, Metrics.getActiveListenerCount());
+
+        List<Integer> expected = new ArrayList<>();
+        expected.add(initial + 2);
+        expected.add(initial + 4);
+        expected.add(initial + 2);
+        expected.add(initial);
+        assertEquals(expected, mGlobal.mListenerCounts);
+    }
+
+    private FirebaseArray<String> newArray() {
+        return new FirebaseArray<>(mLocation.getReference(),
+                snapshot -> (String) snapshot.child("text").getValue());
+    }
+
+    private static final class RecordingMetrics extends MetricsListener {
+        final List<ChangeEventType> mEvents = new ArrayList<>();
+        final List<Integer> mListenerCounts = new ArrayList<>();
+
+        @Override
+        public void onChangeEvent(@NonNull ChangeEventType type) {
+            mEvents.add(type);
+        }
+
+        @Override
+        public void onActiveListenersChanged(int count) {
+            mListenerCounts.add(count);
+        }
+    }
+
+    private static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
@@ -0,0 +1,177 @@
+package com.firebase.ui.database;
+
+import android.os.Looper;
+
+import com.firebase.ui.common.ChangeEvent;
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks how {@link FirebaseArray} applies updates parsed on a {@link
+ * ObservableSnapshotArray#setParseExecutor(Executor) parse executor}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseArrayParseExecutorTest {
+    private static final int CHILD_COUNT = 10;
+
+    private final List<Runnable> mTasks = new ArrayList<>();
+    private int mParseCount;
+
+    private FakeDatabaseLocation mLocation;
+    private FirebaseArray<String> mArray;
+    private RecordingListener mListener;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        mArray = new FirebaseArray<>(mLocation.getReference(), snapshot -> {
+            mParseCount++;
+            return (String) snapshot.child("text").getValue();
+        });
+        mArray.setParseExecutor(mTasks::add);
+        mListener = new RecordingListener();
+        mArray.addChangeEventListener(mListener);
+    }
+
+    @Test
+    public void testReadyUpdatesAreAppliedAsOneBatch() {
+        addChildren(CHILD_COUNT);
+        mLocation.flush();
+
+        runTasks(mTasks);
+        assertEquals(0, mArray.size());
+        idleMainLooper();
+
+        assertEquals(CHILD_COUNT, mArray.size());
+        assertEquals(Collections.singletonList(CHILD_COUNT), mListener.mBatchSizes);
+        assertEquals(1, mListener.mDataChangedCount);
+        assertInKeyOrder();
+    }
+
+    @Test
+    public void testOutOfOrderCompletionWaitsForEarlierUpdates() {
+        addChildren(CHILD_COUNT);
+        mLocation.flush();
+
+        // Everything but the first child is parsed
+        runTasks(mTasks.subList(1, mTasks.size()));
+        idleMainLooper();
+        assertEquals(0, mArray.size());
+        assertEquals(0, mListener.mDataChangedCount);
+
+        runTasks(mTasks.subList(0, 1));
+        idleMainLooper();
+
+        assertEquals(CHILD_COUNT, mArray.size());
+        assertEquals(Collections.singletonList(CHILD_COUNT), mListener.mBatchSizes);
+        assertInKeyOrder();
+    }
+
+    @Test
+    public void testUpdatesAreAppliedInArrivalOrder() {
+        addChildren(CHILD_COUNT);
+        mLocation.flush();
+        mLocation.set(key(0), value(0, 1));
+        mLocation.remove(key(1));
+        mLocation.flush();
+
+        // Parse the later change first, the earlier additions last
+        List<Runnable> tasks = new ArrayList<>(mTasks);
+        Collections.reverse(tasks);
+        runTasks(tasks);
+        idleMainLooper();
+
+        assertEquals(CHILD_COUNT - 1, mArray.size());
+        assertEquals("Message 0 v1", mArray.get(0));
+        assertEquals(key(2), mArray.getKey(1));
+        assertEquals(2, mListener.mDataChangedCount);
+    }
+
+    @Test
+    public void testParsedModelsAreNotEvicted() {
+        // Well over the default cache size
+        int count = 1000;
+        addChildren(count);
+        mLocation.flush();
+        runTasks(mTasks);
+        idleMainLooper();
+        assertEquals(count, mParseCount);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("Message " + i + " v0", mArray.get(i));
+        }
+        assertEquals(count, mParseCount);
+    }
+
+    private void addChildren(int count) {
+        for (int i = 0; i < count; i++) {
+            mLocation.add(key(i), value(i, 0));
+        }
+    }
+
+    private void runTasks(@NonNull List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private void assertInKeyOrder() {
+        for (int i = 0; i < mArray.size(); i++) {
+            assertEquals(mLocation.getKeys().get(i), mArray.getKey(i));
+        }
+    }
+
+    private static void idleMainLooper() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class RecordingListener implements BatchChangeEventListener {
+        final List<Integer> mBatchSizes = new ArrayList<>();
+        int mDataChangedCount;
+
+        @Override
+        public void onBatchChanged(@NonNull List<ChangeEvent<DataSnapshot>> events) {
+            mBatchSizes.add(events.size());
+        }
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {
+            mDataChangedCount++;
+        }
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
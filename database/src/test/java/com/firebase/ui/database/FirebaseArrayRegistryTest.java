@@ -0,0 +1,264 @@
+package com.firebase.ui.database;
+
+import android.os.Looper;
+import android.view.ViewGroup;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that {@link FirebaseArrayRegistry} shares arrays between callers of the same query and
+ * model, and forgets them once they stop being listened to.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseArrayRegistryTest {
+    private static final long LINGER_MILLIS = 1000;
+    private static final int CHILD_COUNT = 10;
+
+    @Rule
+    public final TestName mTestName = new TestName();
+
+    private final FirebaseArrayRegistry mRegistry = FirebaseArrayRegistry.getInstance();
+    private final SnapshotParser<String> mParser = DataSnapshot::getKey;
+    private FakeDatabaseLocation mLocation;
+
+    @Before
+    public void setUp() {
+        mRegistry.setLingerTimeout(LINGER_MILLIS);
+
+        // The registry outlives each test, so don't let them share locations
+        mLocation = new FakeDatabaseLocation(mTestName.getMethodName());
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            mLocation.add("key" + i, "value" + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mRegistry.setLingerTimeout(FirebaseArrayRegistry.DEFAULT_LINGER_MILLIS);
+    }
+
+    @Test
+    public void testSameQueryAndModelAreShared() {
+        ObservableSnapshotArray<String> array = getArray();
+
+        assertSame(array, getArray());
+        assertNotSame(array, mRegistry.getArray(mLocation.getReference(), DataSnapshot::getKey));
+        assertNotSame(array, mRegistry.getArray(
+                new FakeDatabaseLocation(mTestName.getMethodName() + "2").getReference(),
+                mParser));
+    }
+
+    @Test
+    public void testDatabasesAreNotShared() {
+        FirebaseDatabase first = mock(FirebaseDatabase.class);
+        FirebaseDatabase second = mock(FirebaseDatabase.class);
+        String url = "https://example.firebaseio.com/" + mTestName.getMethodName();
+
+        ObservableSnapshotArray<String> array =
+                mRegistry.getArray(reference(url, first), mParser);
+
+        assertSame(array, mRegistry.getArray(reference(url, first), mParser));
+        assertNotSame(array, mRegistry.getArray(reference(url, second), mParser));
+        assertNotSame(array, mRegistry.getArray(reference(url + "2", first), mParser));
+    }
+
+    @Test
+    public void testListenersAreReferenceCounted() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener first = array.addChangeEventListener(new NoOpListener());
+        ChangeEventListener second = array.addChangeEventListener(new NoOpListener());
+        mLocation.flush();
+        int listenerCount = mLocation.getListenerCount();
+        assertTrue(listenerCount > 0);
+
+        array.removeChangeEventListener(first);
+        idleFor(LINGER_MILLIS * 2);
+        assertEquals(listenerCount, mLocation.getListenerCount());
+        assertSame(array, getArray());
+
+        // The last listener starts the linger timeout, after which the array is torn down
+        array.removeChangeEventListener(second);
+        idleFor(LINGER_MILLIS / 2);
+        assertEquals(listenerCount, mLocation.getListenerCount());
+        assertSame(array, getArray());
+
+        idleFor(LINGER_MILLIS);
+        assertEquals(0, mLocation.getListenerCount());
+        assertEquals(1, array.getLingerStats().getExpiredCount());
+        assertNotSame(array, getArray());
+    }
+
+    @Test
+    public void testWarmResumeWithinLinger() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener listener = array.addChangeEventListener(new NoOpListener());
+        mLocation.flush();
+
+        array.removeChangeEventListener(listener);
+        idleFor(LINGER_MILLIS / 2);
+        getArray().addChangeEventListener(new NoOpListener());
+
+        // Caught up from memory, nothing is downloaded again
+        assertEquals(CHILD_COUNT, array.size());
+        assertEquals(1, array.getLingerStats().getWarmResumeCount());
+
+        idleFor(LINGER_MILLIS * 2);
+        assertSame(array, getArray());
+    }
+
+    @Test
+    public void testRestartedArrayIsSharedAgain() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener listener = array.addChangeEventListener(new NoOpListener());
+        mLocation.flush();
+        array.removeChangeEventListener(listener);
+        idleFor(LINGER_MILLIS * 2);
+
+        // A holder of the torn down array starts it again instead of asking the registry
+        listener = array.addChangeEventListener(new NoOpListener());
+        assertSame(array, getArray());
+
+        array.removeChangeEventListener(listener);
+    }
+
+    @Test
+    public void testUnusedArrayIsForgotten() {
+        ObservableSnapshotArray<String> array = getArray();
+
+        idleFor(FirebaseArrayRegistry.DEFAULT_LINGER_MILLIS);
+        assertNotSame(array, getArray());
+    }
+
+    @Test
+    public void testOptionsCannotConfigureSharedArray() {
+        ObservableSnapshotArray<String> array = getArray();
+        try {
+            new FirebaseRecyclerOptions.Builder<String>()
+                    .setSnapshotArray(array)
+                    .setRetainSnapshots(false)
+                    .build();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(array.isRetainingSnapshots());
+        }
+
+        // Options which leave the array alone are fine
+        new FirebaseRecyclerOptions.Builder<String>()
+                .setSnapshotArray(array)
+                .build();
+    }
+
+    @Test
+    public void testUpdateOptionsKeepsSharedArray() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener other = array.addChangeEventListener(new NoOpListener());
+        NoOpAdapter adapter = new NoOpAdapter(options(array));
+        adapter.startListening();
+        mLocation.flush();
+
+        ObservableSnapshotArray<String> next = mRegistry.getArray(
+                new FakeDatabaseLocation(mTestName.getMethodName() + "2").getReference(),
+                mParser);
+        adapter.updateOptions(options(next));
+
+        // Only the adapter's listener is gone, the other listener still sees every child
+        assertFalse(array.isListening(adapter));
+        assertEquals(CHILD_COUNT, array.size());
+        mLocation.add("key" + CHILD_COUNT, "value" + CHILD_COUNT);
+        mLocation.flush();
+        assertEquals(CHILD_COUNT + 1, array.size());
+
+        adapter.stopListening();
+        array.removeChangeEventListener(other);
+    }
+
+    @NonNull
+    private ObservableSnapshotArray<String> getArray() {
+        return mRegistry.getArray(mLocation.getReference(), mParser);
+    }
+
+    @NonNull
+    private static FirebaseRecyclerOptions<String> options(
+            @NonNull ObservableSnapshotArray<String> array) {
+        return new FirebaseRecyclerOptions.Builder<String>()
+                .setSnapshotArray(array)
+                .build();
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    @NonNull
+    private static DatabaseReference reference(@NonNull String url,
+                                               @NonNull FirebaseDatabase database) {
+        DatabaseReference reference = mock(DatabaseReference.class);
+        when(reference.getRef()).thenReturn(reference);
+        when(reference.getDatabase()).thenReturn(database);
+        when(reference.toString()).thenReturn(url);
+        return reference;
+    }
+
+    private static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+
+    private static final class NoOpAdapter
+            extends FirebaseRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        NoOpAdapter(@NonNull FirebaseRecyclerOptions<String> options) {
+            super(options);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull String model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.firebase.ui.database;
+
+import android.view.ViewGroup;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks what {@link FirebaseArray} still provides once it stops retaining snapshots, and when
+ * retention can be switched.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseArrayRetainSnapshotsTest {
+    private static final int INITIAL_COUNT = 10;
+
+    private FakeDatabaseLocation mLocation;
+    private FirebaseArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        for (int i = 0; i < INITIAL_COUNT; i++) {
+            mLocation.add(key(i), value(i));
+        }
+        mArray = new FirebaseArray<>(mLocation.getReference(), snapshot ->
+                (String) ((Map<?, ?>) snapshot.getValue()).get("text"));
+    }
+
+    @Test
+    public void testRetainedSnapshots() {
+        mArray.addChangeEventListener(new RecordingListener());
+        mLocation.flush();
+
+        for (int i = 0; i < INITIAL_COUNT; i++) {
+            DataSnapshot snapshot = mArray.getSnapshot(i);
+            assertEquals(key(i), snapshot.getKey());
+            assertSame(snapshot.getRef(), mArray.getRef(i));
+        }
+
+        // Plain listeners are caught up with the retained snapshots
+        RecordingListener late = new RecordingListener();
+        mArray.addChangeEventListener(late);
+        assertEquals(INITIAL_COUNT, late.mEvents.size());
+        assertEquals("ADDED " + key(0) + " 0", late.mEvents.get(0));
+    }
+
+    @Test
+    public void testReleasedSnapshotsKeepKeysModelsAndRefs() {
+        mArray.setRetainSnapshots(false);
+        mArray.addChangeEventListener(new RecordingListener());
+        mLocation.flush();
+
+        assertEquals(INITIAL_COUNT, mArray.size());
+        for (int i = 0; i < INITIAL_COUNT; i++) {
+            assertEquals(key(i), mArray.getKey(i));
+            assertEquals("Message " + i, mArray.get(i));
+            assertSame(mLocation.getReference().child(key(i)), mArray.getRef(i));
+        }
+
+        try {
+            mArray.getSnapshot(0);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals(key(0), mArray.getKey(0));
+        }
+    }
+
+    @Test
+    public void testReleasedSnapshotsOnlyCatchUpInBulk() {
+        mArray.setRetainSnapshots(false);
+        mArray.addChangeEventListener(new RecordingListener());
+        mLocation.flush();
+
+        RecordingListener rejected = new RecordingListener();
+        try {
+            mArray.addChangeEventListener(rejected);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertFalse(mArray.isListening(rejected));
+        }
+
+        RecordingInitialDataListener late = new RecordingInitialDataListener();
+        mArray.addChangeEventListener(late);
+        assertEquals(Collections.singletonList("initial " + INITIAL_COUNT), late.mEvents);
+    }
+
+    @Test
+    public void testRetentionCannotChangeWhileListening() {
+        RecordingListener listener = new RecordingListener();
+        mArray.addChangeEventListener(listener);
+        try {
+            mArray.setRetainSnapshots(false);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(mArray.isRetainingSnapshots());
+        }
+
+        // Once stopped, the array can switch and reloads its items the new way
+        mArray.removeChangeEventListener(listener);
+        mArray.setRetainSnapshots(false);
+        mArray.addChangeEventListener(listener);
+        mLocation.flush();
+        assertEquals(key(0), mArray.getKey(0));
+
+        mArray.removeChangeEventListener(listener);
+        mArray.setRetainSnapshots(true);
+        mArray.addChangeEventListener(listener);
+        mLocation.flush();
+        assertEquals(key(0), mArray.getSnapshot(0).getKey());
+    }
+
+    @Test
+    public void testAdapterRefsWithoutSnapshots() {
+        FirebaseRecyclerOptions<String> options = new FirebaseRecyclerOptions.Builder<String>()
+                .setSnapshotArray(mArray)
+                .setRetainSnapshots(false)
+                .build();
+        TestAdapter adapter = new TestAdapter(options);
+        adapter.startListening();
+        mLocation.flush();
+
+        assertEquals(INITIAL_COUNT, adapter.getItemCount());
+        assertEquals("Message 3", adapter.getItem(3));
+        assertSame(mLocation.getReference().child(key(3)), adapter.getRef(3));
+        adapter.stopListening();
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id) {
+        return Collections.singletonMap("text", "Message " + id);
+    }
+
+    private static class RecordingListener implements ChangeEventListener {
+        final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {
+            mEvents.add(type + " " + snapshot.getKey() + " " + newIndex);
+        }
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+
+    private static final class RecordingInitialDataListener extends RecordingListener
+            implements InitialDataListener {
+        @Override
+        public void onInitialData(int count) {
+            mEvents.add("initial " + count);
+        }
+    }
+
+    private static final class TestAdapter
+            extends FirebaseRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        TestAdapter(@NonNull FirebaseRecyclerOptions<String> options) {
+            super(options);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull String model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that moving the live window of a {@link FirebaseIndexArray} refreshes data without
+ * reporting data changes for a load that already completed.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseIndexArrayLiveWindowTest {
+    private static final int KEY_COUNT = 200;
+    private static final int WINDOW_SIZE = 20;
+
+    private FakeDatabaseLocation mKeys;
+    private FakeDatabaseLocation mData;
+    private FirebaseIndexArray<String> mArray;
+    private CountingListener mListener;
+
+    @Before
+    public void setUp() {
+        mKeys = new FakeDatabaseLocation("keys");
+        mData = new FakeDatabaseLocation("data");
+        for (int i = 0; i < KEY_COUNT; i++) {
+            mKeys.add(key(i), true);
+            mData.add(key(i), value(i, 0));
+        }
+
+        mArray = new FirebaseIndexArray<>(mKeys.getReference(), mData.getReference(),
+                snapshot -> (String) snapshot.child("text").getValue());
+        mArray.setLiveWindowSize(WINDOW_SIZE);
+        mListener = new CountingListener();
+        mArray.addChangeEventListener(mListener);
+        flush();
+    }
+
+    @Test
+    public void testMovingWindowDoesNotReportDataChanges() {
+        assertEquals(KEY_COUNT, mArray.size());
+        assertEquals(1, mListener.mDataChangedCount);
+
+        for (int position = 0; position < KEY_COUNT; position += WINDOW_SIZE / 2) {
+            mArray.onItemBound(position);
+            flush();
+        }
+
+        assertEquals(1, mListener.mDataChangedCount);
+        assertEquals(KEY_COUNT, mArray.size());
+    }
+
+    @Test
+    public void testWindowKeepsDataUpToDate() {
+        int position = KEY_COUNT / 2;
+        mArray.onItemBound(position);
+        flush();
+
+        mData.set(key(position), value(position, 1));
+        flush();
+
+        assertEquals("Message " + position + " v1", mArray.get(position));
+    }
+
+    @Test
+    public void testWindowCompletesOutstandingLoad() {
+        mKeys.add(key(KEY_COUNT), true);
+        mKeys.flush();
+        // The new key's one-shot fetch is replaced by a live listener before it completes
+        mArray.onItemBound(KEY_COUNT - 1);
+        mData.add(key(KEY_COUNT), value(KEY_COUNT, 0));
+        flush();
+
+        assertEquals(KEY_COUNT + 1, mArray.size());
+        assertEquals(2, mListener.mDataChangedCount);
+    }
+
+    private void flush() {
+        while (mKeys.hasPendingEvents() || mData.hasPendingEvents()) {
+            mKeys.flush();
+            mData.flush();
+        }
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class CountingListener implements ChangeEventListener {
+        int mDataChangedCount;
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {
+            mDataChangedCount++;
+        }
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
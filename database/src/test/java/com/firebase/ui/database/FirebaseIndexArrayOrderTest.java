@@ -0,0 +1,150 @@
+package com.firebase.ui.database;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link FirebaseIndexArray} keeps joined data in key order, whatever order the data
+ * arrives in and wherever keys are moved or removed.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseIndexArrayOrderTest {
+    private static final int KEY_COUNT = 200;
+
+    private FakeDatabaseLocation mKeys;
+    private FakeDatabaseLocation mData;
+    private FirebaseIndexArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mKeys = new FakeDatabaseLocation("keys");
+        mData = new FakeDatabaseLocation("data");
+        for (int i = 0; i < KEY_COUNT; i++) {
+            mKeys.add(key(i), true);
+        }
+
+        mArray = new FirebaseIndexArray<>(
+                mKeys.getReference(), mData.getReference(), DataSnapshot::getKey);
+        mArray.addChangeEventListener(new NoOpListener());
+        flush();
+    }
+
+    @Test
+    public void testDataArrivesOutOfOrder() {
+        List<String> arrival = new ArrayList<>(mKeys.getKeys());
+        Collections.shuffle(arrival, new Random(42));
+        for (String key : arrival) {
+            mData.add(key, value(key));
+            flush();
+            assertOrderMatches();
+        }
+    }
+
+    @Test
+    public void testSomeDataMissing() {
+        for (int i = 0; i < KEY_COUNT; i += 3) {
+            mData.add(key(i), value(key(i)));
+        }
+        flush();
+
+        assertEquals((KEY_COUNT + 2) / 3, mArray.size());
+        assertOrderMatches();
+    }
+
+    @Test
+    public void testKeysMovedAndRemoved() {
+        for (String key : mKeys.getKeys()) {
+            if (!key.endsWith("5")) { mData.add(key, value(key)); }
+        }
+        flush();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            List<String> keys = mKeys.getKeys();
+            String key = keys.get(random.nextInt(keys.size()));
+            int roll = random.nextInt(3);
+            if (roll == 0) {
+                mKeys.move(key, 0);
+            } else if (roll == 1) {
+                mKeys.move(key, random.nextInt(keys.size()));
+            } else {
+                mKeys.remove(key);
+            }
+            flush();
+            assertOrderMatches();
+        }
+    }
+
+    @Test
+    public void testDataRemoved() {
+        for (String key : mKeys.getKeys()) {
+            mData.add(key, value(key));
+        }
+        flush();
+
+        mData.remove(key(0));
+        mData.remove(key(KEY_COUNT / 2));
+        flush();
+
+        assertEquals(KEY_COUNT - 2, mArray.size());
+        assertOrderMatches();
+    }
+
+    private void flush() {
+        while (mKeys.hasPendingEvents() || mData.hasPendingEvents()) {
+            mKeys.flush();
+            mData.flush();
+        }
+    }
+
+    private void assertOrderMatches() {
+        List<String> expected = new ArrayList<>();
+        for (String key : mKeys.getKeys()) {
+            if (mData.getValue(key) != null) { expected.add(key); }
+        }
+
+        assertEquals(expected.size(), mArray.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), mArray.get(i));
+        }
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(String key) {
+        return Collections.singletonMap("text", "Message " + key);
+    }
+
+    private static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
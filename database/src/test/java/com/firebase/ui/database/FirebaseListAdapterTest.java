@@ -0,0 +1,192 @@
+package com.firebase.ui.database;
+
+import android.os.Looper;
+import android.view.View;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that a coalescing {@link FirebaseListAdapter} only shows changes it has notified, and
+ * that item ids stay unique and stable.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseListAdapterTest {
+    // "Aa" and "BB" share a hash code
+    private static final List<String> KEYS = Arrays.asList("Aa", "BB", "c", "d");
+
+    private FakeDatabaseLocation mLocation;
+    private FirebaseArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        for (String key : KEYS) {
+            mLocation.add(key, value(key));
+        }
+        mArray = new FirebaseArray<>(mLocation.getReference(),
+                snapshot -> (String) snapshot.child("text").getValue());
+    }
+
+    @Test
+    public void testCountOnlyChangesWhenNotified() {
+        RecordingAdapter adapter = newAdapter(true);
+        CountingListener listener = new CountingListener(adapter);
+        mArray.addChangeEventListener(listener);
+        mLocation.flush();
+        assertEquals(KEYS.size(), adapter.getCount());
+        listener.mCounts.clear();
+
+        mLocation.add("e", value("e"));
+        mLocation.add("f", value("f"));
+        mLocation.flush();
+
+        // While the array changed, the adapter kept serving what it last notified
+        assertEquals(Collections.singleton(KEYS.size()), listener.mCounts);
+        assertEquals(KEYS.size() + 2, adapter.getCount());
+        assertEquals(adapter.getCount(), (int) last(adapter.mNotifiedCounts));
+        assertEquals("Message e", adapter.getItem(KEYS.size()));
+
+        // Nothing is left for the next frame
+        int notified = adapter.mNotifiedCounts.size();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(notified, adapter.mNotifiedCounts.size());
+    }
+
+    @Test
+    public void testCoalescedRefsWithoutSnapshots() {
+        mArray.setRetainSnapshots(false);
+        RecordingAdapter adapter = newAdapter(true);
+        mLocation.flush();
+
+        assertEquals("Message c", adapter.getItem(2));
+        assertSame(mLocation.getReference().child("c"), adapter.getRef(2));
+    }
+
+    @Test
+    public void testItemIdsAreUniqueAndStable() {
+        RecordingAdapter adapter = newAdapter(false);
+        mLocation.flush();
+
+        Map<String, Long> ids = getIds(adapter);
+        assertEquals(KEYS.size(), new HashSet<>(ids.values()).size());
+
+        mLocation.move("Aa", 3);
+        mLocation.set("BB", value("changed"));
+        mLocation.flush();
+        assertEquals(ids, getIds(adapter));
+
+        // A child which comes back is a new item
+        mLocation.remove("c");
+        mLocation.flush();
+        mLocation.add("c", value("c"));
+        mLocation.flush();
+        Map<String, Long> readded = getIds(adapter);
+        assertNotEquals(ids.get("c"), readded.get("c"));
+        assertEquals(ids.get("d"), readded.get("d"));
+    }
+
+    @Test
+    public void testCoalescedItemIdsAreStable() {
+        RecordingAdapter adapter = newAdapter(true);
+        mLocation.flush();
+
+        Map<String, Long> ids = getIds(adapter);
+        assertEquals(KEYS.size(), new HashSet<>(ids.values()).size());
+
+        mLocation.move("d", 0);
+        mLocation.flush();
+        assertEquals(ids, getIds(adapter));
+    }
+
+    private RecordingAdapter newAdapter(boolean coalesce) {
+        FirebaseListOptions<String> options = new FirebaseListOptions.Builder<String>()
+                .setSnapshotArray(mArray)
+                .setLayout(android.R.layout.simple_list_item_1)
+                .setCoalesceUpdates(coalesce)
+                .build();
+        RecordingAdapter adapter = new RecordingAdapter(options);
+        adapter.startListening();
+        return adapter;
+    }
+
+    private static Map<String, Long> getIds(RecordingAdapter adapter) {
+        Map<String, Long> ids = new HashMap<>();
+        for (int i = 0; i < adapter.getCount(); i++) {
+            ids.put(adapter.getRef(i).getKey(), adapter.getItemId(i));
+        }
+        return ids;
+    }
+
+    private static Object value(String key) {
+        return Collections.singletonMap("text", "Message " + key);
+    }
+
+    private static <E> E last(List<E> list) {
+        return list.get(list.size() - 1);
+    }
+
+    private static final class RecordingAdapter extends FirebaseListAdapter<String> {
+        final List<Integer> mNotifiedCounts = new ArrayList<>();
+
+        RecordingAdapter(@NonNull FirebaseListOptions<String> options) {
+            super(options);
+        }
+
+        @Override
+        public void notifyDataSetChanged() {
+            mNotifiedCounts.add(getCount());
+            super.notifyDataSetChanged();
+        }
+
+        @Override
+        protected void populateView(@NonNull View v, @NonNull String model, int position) {}
+    }
+
+    /** Records what the adapter serves while the array is changing. */
+    private static final class CountingListener implements ChangeEventListener {
+        final Set<Integer> mCounts = new HashSet<>();
+        private final RecordingAdapter mAdapter;
+
+        CountingListener(@NonNull RecordingAdapter adapter) {
+            mAdapter = adapter;
+        }
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {
+            mCounts.add(mAdapter.getCount());
+        }
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull DatabaseError error) {}
+    }
+}
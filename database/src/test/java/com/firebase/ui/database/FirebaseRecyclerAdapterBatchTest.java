@@ -0,0 +1,240 @@
+package com.firebase.ui.database;
+
+import android.view.ViewGroup;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.database.testing.FakeDatabaseLocation;
+import com.google.firebase.database.DataSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link FirebaseRecyclerAdapter} passes batched and catch-up events to an overridden
+ * {@link FirebaseRecyclerAdapter#onChildChanged(ChangeEventType, DataSnapshot, int, int)} in
+ * order, while coalescing its notifications into range notifications.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirebaseRecyclerAdapterBatchTest {
+    private static final int INITIAL_LOAD = 100;
+
+    private FakeDatabaseLocation mLocation;
+    private FirebaseArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mLocation = new FakeDatabaseLocation("messages");
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            mLocation.add(key(i), value(i, 0));
+        }
+        mArray = new FirebaseArray<>(mLocation.getReference(),
+                snapshot -> (String) snapshot.child("text").getValue());
+    }
+
+    @Test
+    public void testInitialLoadIsCoalesced() {
+        RecordingAdapter adapter = newAdapter();
+        mLocation.flush();
+
+        assertEquals(INITIAL_LOAD, adapter.mEvents.size());
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            assertEquals("ADDED " + key(i) + " " + i, adapter.mEvents.get(i));
+        }
+        assertEquals(Collections.singletonList("inserted 0+" + INITIAL_LOAD),
+                adapter.mObserver.mNotifications);
+    }
+
+    @Test
+    public void testCatchUpGoesThroughOnChildChanged() {
+        RecordingAdapter first = newAdapter();
+        mLocation.flush();
+
+        RecordingAdapter second = newAdapter();
+        assertEquals(first.mEvents, second.mEvents);
+        assertEquals(Collections.singletonList("inserted 0+" + INITIAL_LOAD),
+                second.mObserver.mNotifications);
+    }
+
+    @Test
+    public void testBatchIsAppliedInOrder() {
+        RecordingAdapter adapter = newAdapter();
+        mLocation.flush();
+        adapter.mEvents.clear();
+
+        // Consecutive removals at the front and additions at the end merge into two ranges
+        for (int i = 0; i < 10; i++) {
+            mLocation.remove(key(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            mLocation.add(key(INITIAL_LOAD + i), value(INITIAL_LOAD + i, 0));
+        }
+        mLocation.flush();
+
+        assertEquals(15, adapter.mEvents.size());
+        assertEquals("REMOVED " + key(0) + " 0", adapter.mEvents.get(0));
+        assertEquals("ADDED " + key(INITIAL_LOAD) + " " + (INITIAL_LOAD - 10),
+                adapter.mEvents.get(10));
+        assertEquals(3, adapter.mObserver.mNotifications.size());
+        assertEquals("removed 0+10", adapter.mObserver.mNotifications.get(1));
+        assertEquals("inserted " + (INITIAL_LOAD - 10) + "+5",
+                adapter.mObserver.mNotifications.get(2));
+    }
+
+    @Test
+    public void testRandomBatchesKeepAdapterInSync() {
+        RecordingAdapter adapter = newAdapter();
+        mLocation.flush();
+
+        Random random = new Random(42);
+        int nextId = INITIAL_LOAD;
+        for (int batch = 0; batch < 50; batch++) {
+            for (int i = 0; i < 20; i++) {
+                nextId = mutate(random, nextId);
+            }
+            mLocation.flush();
+
+            adapter.mObserver.assertInSync();
+        }
+    }
+
+    private RecordingAdapter newAdapter() {
+        FirebaseRecyclerOptions<String> options = new FirebaseRecyclerOptions.Builder<String>()
+                .setSnapshotArray(mArray)
+                .build();
+        RecordingAdapter adapter = new RecordingAdapter(options);
+        adapter.registerAdapterDataObserver(adapter.mObserver);
+        adapter.startListening();
+        return adapter;
+    }
+
+    private int mutate(Random random, int nextId) {
+        int roll = random.nextInt(4);
+        String key = mLocation.getKeys().get(random.nextInt(mLocation.size()));
+        if (roll == 0) {
+            mLocation.add(random.nextInt(mLocation.size() + 1), key(nextId), value(nextId, 0));
+            return nextId + 1;
+        } else if (roll == 1) {
+            mLocation.set(key, value(nextId, 1));
+        } else if (roll == 2 && mLocation.size() > 1) {
+            mLocation.remove(key);
+        } else {
+            mLocation.move(key, random.nextInt(mLocation.size()));
+        }
+        return nextId;
+    }
+
+    private static String key(int id) {
+        return String.format(Locale.US, "key%06d", id);
+    }
+
+    private static Object value(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class RecordingAdapter
+            extends FirebaseRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        final List<String> mEvents = new ArrayList<>();
+        final MirrorObserver mObserver = new MirrorObserver(this);
+
+        RecordingAdapter(@NonNull FirebaseRecyclerOptions<String> options) {
+            super(options);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DataSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {
+            mEvents.add(type + " " + snapshot.getKey() + " " + newIndex);
+            super.onChildChanged(type, snapshot, newIndex, oldIndex);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull String model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Applies the adapter's notifications to a list of keys the way a RecyclerView would to its
+     * rows. Inserted rows are unknown until they are bound once the notifications are complete.
+     */
+    private static final class MirrorObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> mNotifications = new ArrayList<>();
+        final List<String> mKeys = new ArrayList<>();
+        private final FirebaseRecyclerAdapter<String, ?> mAdapter;
+
+        MirrorObserver(FirebaseRecyclerAdapter<String, ?> adapter) {
+            mAdapter = adapter;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mNotifications.add("inserted " + positionStart + "+" + itemCount);
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mKeys.add(i, null);
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mNotifications.add("changed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            onItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mNotifications.add("removed " + positionStart + "+" + itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                mKeys.remove(positionStart);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mNotifications.add("moved " + fromPosition + "->" + toPosition);
+            mKeys.add(toPosition, mKeys.remove(fromPosition));
+        }
+
+        /**
+         * Checks that every row that was already bound still shows the same child, then binds
+         * the inserted ones.
+         */
+        void assertInSync() {
+            assertEquals(mAdapter.getItemCount(), mKeys.size());
+            for (int i = 0; i < mKeys.size(); i++) {
+                String key = mAdapter.getSnapshots().getSnapshot(i).getKey();
+                if (mKeys.get(i) != null) {
+                    assertEquals(key, mKeys.get(i));
+                }
+                mKeys.set(i, key);
+            }
+        }
+    }
+}
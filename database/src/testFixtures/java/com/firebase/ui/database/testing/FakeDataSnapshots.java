@@ -0,0 +1,139 @@
+package com.firebase.ui.database.testing;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Creates {@link DataSnapshot}s backed by plain Java values instead of a database.
+ * <p>
+ * A value is a {@link String}, {@link Number}, {@link Boolean}, {@link List} or a {@link Map} of
+ * such values, as returned by {@link DataSnapshot#getValue()}. Nested values can be navigated
+ * with {@link DataSnapshot#child(String)} and {@link DataSnapshot#getChildren()}, though only the
+ * snapshot itself knows its {@link DataSnapshot#getRef() reference}. Since there is no class
+ * mapper, {@link DataSnapshot#getValue(Class)} only succeeds if the value already is an instance
+ * of the class: parse models with a custom {@code SnapshotParser} instead.
+ */
+public final class FakeDataSnapshots {
+    private FakeDataSnapshots() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return a snapshot of {@code value} at {@code key}, or of a missing location if null.
+     */
+    @NonNull
+    public static DataSnapshot create(@NonNull String key, @Nullable Object value) {
+        return create(key, value, null);
+    }
+
+    /**
+     * @param ref the reference returned by {@link DataSnapshot#getRef()}.
+     * @return a snapshot of {@code value} at {@code key}, or of a missing location if null.
+     */
+    @NonNull
+    public static DataSnapshot create(@NonNull final String key,
+                                      @Nullable final Object value,
+                                      @Nullable final DatabaseReference ref) {
+        return mock(DataSnapshot.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getKey":
+                    return key;
+                case "getRef":
+                    return ref;
+                case "getValue":
+                    Object[] args = invocation.getArguments();
+                    if (args.length == 1 && args[0] instanceof Class) {
+                        return cast(value, (Class<?>) args[0]);
+                    }
+                    return value;
+                case "exists":
+                    return value != null;
+                case "hasChildren":
+                    return getChildCount(value) > 0;
+                case "getChildrenCount":
+                    return (long) getChildCount(value);
+                case "hasChild":
+                    return getChildValue(value, invocation.<String>getArgument(0)) != null;
+                case "child":
+                    String path = invocation.getArgument(0);
+                    return create(path.substring(path.lastIndexOf('/') + 1),
+                            getChildValue(value, path));
+                case "getChildren":
+                    return getChildren(value);
+                case "toString":
+                    return "FakeDataSnapshot{key=" + key + ", value=" + value + "}";
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    @Nullable
+    private static Object cast(@Nullable Object value, @NonNull Class<?> type) {
+        if (value == null || type.isInstance(value)) { return value; }
+        throw new UnsupportedOperationException("Fake snapshots cannot map " + value.getClass()
+                + " to " + type + ", use a custom SnapshotParser instead");
+    }
+
+    private static int getChildCount(@Nullable Object value) {
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        } else if (value instanceof List) {
+            return ((List<?>) value).size();
+        }
+        return 0;
+    }
+
+    @Nullable
+    private static Object getChildValue(@Nullable Object value, @NonNull String path) {
+        Object current = value;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) { continue; }
+
+            if (current instanceof Map) {
+                current = ((Map<?, ?>) current).get(segment);
+            } else if (current instanceof List && isIndex(segment, (List<?>) current)) {
+                current = ((List<?>) current).get(Integer.parseInt(segment));
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static boolean isIndex(@NonNull String segment, @NonNull List<?> list) {
+        try {
+            int index = Integer.parseInt(segment);
+            return index >= 0 && index < list.size();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @NonNull
+    private static List<DataSnapshot> getChildren(@Nullable Object value) {
+        List<DataSnapshot> children = new ArrayList<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                children.add(create(String.valueOf(entry.getKey()), entry.getValue()));
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                children.add(create(String.valueOf(i), list.get(i)));
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,389 @@
+package com.firebase.ui.database.testing;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import org.mockito.Mockito;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * An in-memory stand-in for a Realtime Database location holding an ordered list of children, so
+ * that {@code FirebaseArray} and {@code FirebaseIndexArray} can be tested under load without a
+ * backend:
+ *
+ * <pre>
+ * FakeDatabaseLocation messages = new FakeDatabaseLocation("messages");
+ * FirebaseArray&lt;Message&gt; array = new FirebaseArray&lt;&gt;(messages.getReference(), parser);
+ * array.addChangeEventListener(listener);
+ *
+ * for (int i = 0; i &lt; 100000; i++) {
+ *     messages.add(key(i), value(i));
+ * }
+ * messages.flush();
+ * </pre>
+ * <p>
+ * The reference returned by {@link #getReference()} can be passed anywhere the arrays expect a
+ * query or a data reference. Children are kept in the order they were added in, which stands in
+ * for the order of the query, and only change position through {@link #move(String, int)}.
+ * <p>
+ * Nothing is delivered until {@link #flush()} is called: every change to the location queues
+ * the events the SDK would raise for it, so a test decides exactly which changes arrive together.
+ * As with the SDK, a listener added to the location first receives every existing child, and a
+ * flush raises a single value event after all its child events. Flushing keeps going until no
+ * more events are queued, including those caused by listeners added during the flush, like the
+ * data listeners of an index array.
+ * <p>
+ * Not thread safe, use from the main thread only.
+ */
+public final class FakeDatabaseLocation {
+    private final String mKey;
+    private final DatabaseReference mReference;
+    private final Map<String, DatabaseReference> mChildReferences = new HashMap<>();
+
+    private final List<String> mKeys = new ArrayList<>();
+    private final Map<String, Object> mValues = new HashMap<>();
+
+    private final List<ChildEventListener> mChildListeners = new ArrayList<>();
+    private final List<ValueEventListener> mValueListeners = new ArrayList<>();
+    private final Map<String, List<ValueEventListener>> mChildValueListeners = new HashMap<>();
+
+    private final Queue<PendingEvent> mPendingEvents = new ArrayDeque<>();
+    /** Value listeners due a value event at the end of the flush */
+    private final Set<ValueEventListener> mPendingValueEvents = new LinkedHashSet<>();
+
+    public FakeDatabaseLocation(@NonNull String key) {
+        mKey = key;
+        mReference = createReference(key, null);
+    }
+
+    /**
+     * @return a reference to this location, which can also be used as a query ordered the same way
+     * as the location's children.
+     */
+    @NonNull
+    public DatabaseReference getReference() {
+        return mReference;
+    }
+
+    /**
+     * @return the keys of the children, in order.
+     */
+    @NonNull
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(mKeys);
+    }
+
+    @Nullable
+    public Object getValue(@NonNull String key) {
+        return mValues.get(key);
+    }
+
+    public int size() {
+        return mKeys.size();
+    }
+
+    /**
+     * @return the number of listeners currently attached to this location or its children.
+     */
+    public int getListenerCount() {
+        int count = mChildListeners.size() + mValueListeners.size();
+        for (List<ValueEventListener> listeners : mChildValueListeners.values()) {
+            count += listeners.size();
+        }
+        return count;
+    }
+
+    public boolean hasPendingEvents() {
+        return !mPendingEvents.isEmpty() || !mPendingValueEvents.isEmpty();
+    }
+
+    /**
+     * Add a child after the last one.
+     */
+    public void add(@NonNull String key, @NonNull Object value) {
+        add(mKeys.size(), key, value);
+    }
+
+    /**
+     * Add a child at the given position.
+     */
+    public void add(int index, @NonNull String key, @NonNull Object value) {
+        if (mValues.containsKey(key)) {
+            throw new IllegalArgumentException("Child already exists: " + key);
+        }
+
+        mKeys.add(index, key);
+        mValues.put(key, value);
+
+        String previousKey = getPreviousKey(index);
+        DataSnapshot snapshot = createChildSnapshot(key);
+        for (final ChildEventListener listener : mChildListeners) {
+            enqueue(listener, () -> listener.onChildAdded(snapshot, previousKey));
+        }
+        onChildValueChanged(key);
+    }
+
+    /**
+     * Replace the value of a child, or add it after the last one if it doesn't exist yet.
+     */
+    public void set(@NonNull String key, @NonNull Object value) {
+        int index = mKeys.indexOf(key);
+        if (index == -1) {
+            add(key, value);
+            return;
+        }
+
+        mValues.put(key, value);
+
+        String previousKey = getPreviousKey(index);
+        DataSnapshot snapshot = createChildSnapshot(key);
+        for (final ChildEventListener listener : mChildListeners) {
+            enqueue(listener, () -> listener.onChildChanged(snapshot, previousKey));
+        }
+        onChildValueChanged(key);
+    }
+
+    public void remove(@NonNull String key) {
+        int index = indexOf(key);
+
+        DataSnapshot snapshot = createChildSnapshot(key);
+        mKeys.remove(index);
+        mValues.remove(key);
+
+        for (final ChildEventListener listener : mChildListeners) {
+            enqueue(listener, () -> listener.onChildRemoved(snapshot));
+        }
+        onChildValueChanged(key);
+    }
+
+    /**
+     * Move a child to a new position, as happens when the value it is ordered by changes.
+     */
+    public void move(@NonNull String key, int newIndex) {
+        mKeys.remove(indexOf(key));
+        mKeys.add(newIndex, key);
+
+        String previousKey = getPreviousKey(newIndex);
+        DataSnapshot snapshot = createChildSnapshot(key);
+        for (final ChildEventListener listener : mChildListeners) {
+            enqueue(listener, () -> listener.onChildMoved(snapshot, previousKey));
+        }
+        mPendingValueEvents.addAll(mValueListeners);
+    }
+
+    /**
+     * Cancel every listener with {@code error}, as happens when access to the location is revoked.
+     * Like the SDK, cancelled listeners are removed.
+     */
+    public void cancel(@NonNull DatabaseError error) {
+        for (final ChildEventListener listener : mChildListeners) {
+            enqueue(listener, () -> listener.onCancelled(error));
+        }
+        for (final ValueEventListener listener : mValueListeners) {
+            enqueue(listener, () -> listener.onCancelled(error));
+        }
+        for (List<ValueEventListener> listeners : mChildValueListeners.values()) {
+            for (final ValueEventListener listener : listeners) {
+                enqueue(listener, () -> listener.onCancelled(error));
+            }
+        }
+
+        mChildListeners.clear();
+        mValueListeners.clear();
+        mChildValueListeners.clear();
+        mPendingValueEvents.clear();
+    }
+
+    /**
+     * Deliver all queued events on the calling thread.
+     */
+    public void flush() {
+        while (hasPendingEvents()) {
+            while (!mPendingEvents.isEmpty()) {
+                mPendingEvents.poll().mEvent.run();
+            }
+
+            List<ValueEventListener> listeners = new ArrayList<>(mPendingValueEvents);
+            mPendingValueEvents.clear();
+            for (ValueEventListener listener : listeners) {
+                listener.onDataChange(createSnapshot());
+            }
+        }
+    }
+
+    private int indexOf(@NonNull String key) {
+        int index = mKeys.indexOf(key);
+        if (index == -1) {
+            throw new IllegalArgumentException("No such child: " + key);
+        }
+        return index;
+    }
+
+    @Nullable
+    private String getPreviousKey(int index) {
+        return index == 0 ? null : mKeys.get(index - 1);
+    }
+
+    private void onChildValueChanged(@NonNull String key) {
+        List<ValueEventListener> listeners = mChildValueListeners.get(key);
+        if (listeners != null) {
+            DataSnapshot snapshot = createChildSnapshot(key);
+            for (final ValueEventListener listener : listeners) {
+                enqueue(listener, () -> listener.onDataChange(snapshot));
+            }
+        }
+        mPendingValueEvents.addAll(mValueListeners);
+    }
+
+    private void enqueue(@NonNull Object listener, @NonNull Runnable event) {
+        mPendingEvents.add(new PendingEvent(listener, event));
+    }
+
+    private void dropPendingEvents(@NonNull Object listener) {
+        Iterator<PendingEvent> iterator = mPendingEvents.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mListener == listener) { iterator.remove(); }
+        }
+        mPendingValueEvents.remove(listener);
+    }
+
+    @NonNull
+    private DataSnapshot createSnapshot() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        for (String key : mKeys) {
+            value.put(key, mValues.get(key));
+        }
+        return FakeDataSnapshots.create(mKey, value.isEmpty() ? null : value, mReference);
+    }
+
+    @NonNull
+    private DataSnapshot createChildSnapshot(@NonNull String key) {
+        return FakeDataSnapshots.create(key, mValues.get(key), getChildReference(key));
+    }
+
+    @NonNull
+    private DatabaseReference getChildReference(@NonNull String key) {
+        DatabaseReference reference = mChildReferences.get(key);
+        if (reference == null) {
+            reference = createReference(key, key);
+            mChildReferences.put(key, reference);
+        }
+        return reference;
+    }
+
+    /**
+     * @param childKey the key of the child referenced, or null for the location itself.
+     */
+    @NonNull
+    private DatabaseReference createReference(@NonNull String key, @Nullable String childKey) {
+        return mock(DatabaseReference.class, invocation -> {
+            String name = invocation.getMethod().getName();
+            Object reference = invocation.getMock();
+            switch (name) {
+                case "getKey":
+                    return key;
+                case "getRef":
+                    return reference;
+                case "child":
+                    if (childKey != null) { break; }
+                    return getChildReference(invocation.<String>getArgument(0));
+                case "addChildEventListener":
+                    if (childKey != null) { break; }
+                    addChildEventListener(invocation.getArgument(0));
+                    return invocation.getArgument(0);
+                case "addValueEventListener":
+                    addValueEventListener(childKey, invocation.getArgument(0), true);
+                    return invocation.getArgument(0);
+                case "addListenerForSingleValueEvent":
+                    addValueEventListener(childKey, invocation.getArgument(0), false);
+                    return null;
+                case "removeEventListener":
+                    removeEventListener(childKey, invocation.getArgument(0));
+                    return null;
+                case "toString":
+                    return "FakeDatabaseReference{" + key + "}";
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+            throw new UnsupportedOperationException(
+                    name + " is only supported on the location itself, not on " + key);
+        });
+    }
+
+    private void addChildEventListener(@NonNull final ChildEventListener listener) {
+        mChildListeners.add(listener);
+        for (int i = 0; i < mKeys.size(); i++) {
+            DataSnapshot snapshot = createChildSnapshot(mKeys.get(i));
+            String previousKey = getPreviousKey(i);
+            enqueue(listener, () -> listener.onChildAdded(snapshot, previousKey));
+        }
+    }
+
+    private void addValueEventListener(@Nullable String childKey,
+                                       @NonNull final ValueEventListener listener,
+                                       boolean live) {
+        if (childKey == null) {
+            if (live) {
+                mValueListeners.add(listener);
+                mPendingValueEvents.add(listener);
+            } else {
+                enqueue(listener, () -> listener.onDataChange(createSnapshot()));
+            }
+            return;
+        }
+
+        DataSnapshot snapshot = createChildSnapshot(childKey);
+        enqueue(listener, () -> listener.onDataChange(snapshot));
+        if (live) {
+            List<ValueEventListener> listeners = mChildValueListeners.get(childKey);
+            if (listeners == null) {
+                listeners = new ArrayList<>();
+                mChildValueListeners.put(childKey, listeners);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    private void removeEventListener(@Nullable String childKey, @NonNull Object listener) {
+        if (childKey == null) {
+            mChildListeners.remove(listener);
+            mValueListeners.remove(listener);
+        } else {
+            List<ValueEventListener> listeners = mChildValueListeners.get(childKey);
+            if (listeners != null) {
+                listeners.remove(listener);
+                if (listeners.isEmpty()) { mChildValueListeners.remove(childKey); }
+            }
+        }
+        dropPendingEvents(listener);
+    }
+
+    private static final class PendingEvent {
+        final Object mListener;
+        final Runnable mEvent;
+
+        PendingEvent(Object listener, Runnable event) {
+            mListener = listener;
+            mEvent = event;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 plugins {
   id("com.android.library")
   id("com.vanniktech.maven.publish")
+  id("org.jetbrains.kotlin.android")
 }
 
 android {
@@ -34,6 +35,17 @@ android {
         baseline = file("$rootDir/library/quality/lint-baseline.xml")
     }
 
+    testFixtures {
+        // In-memory fake event sources for offline load tests, see the testing package
+        enable = true
+    }
+
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+        }
+    }
+
     buildTypes {
         named("release").configure {
             isMinifyEnabled = false
@@ -45,6 +57,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+
+    kotlinOptions {
+        jvmTarget = "1.8"
+    }
 }
 
 dependencies {
@@ -56,11 +72,21 @@ dependencies {
     api(Config.Libs.Androidx.recyclerView)
 
     compileOnly(Config.Libs.Androidx.paging)
-    api(Config.Libs.Androidx.pagingRxJava)
+    api(Config.Libs.Androidx.pagingCommon)
+    implementation(Config.Libs.Kotlin.coroutinesPlayServices)
+    // Only used by the deprecated RxJava paging sources. Apps using them depend on paging-rxjava3
+    // themselves, everyone else doesn't pull in RxJava.
+    compileOnly(Config.Libs.Androidx.pagingRxJava)
     annotationProcessor(Config.Libs.Androidx.lifecycleCompiler)
 
     lintChecks(project(":lint"))
 
+    testFixturesImplementation(Config.Libs.Test.mockito)
+
+    testImplementation(Config.Libs.Test.junit)
+    testImplementation(Config.Libs.Test.core)
+    testImplementation(Config.Libs.Test.robolectric)
+
     androidTestImplementation(Config.Libs.Test.archCoreTesting)
     androidTestImplementation(Config.Libs.Test.core)
     androidTestImplementation(Config.Libs.Test.junit)
@@ -69,4 +95,5 @@ dependencies {
     androidTestImplementation(Config.Libs.Test.rules)
     androidTestImplementation(Config.Libs.Test.mockito)
     androidTestImplementation(Config.Libs.Androidx.paging)
+    androidTestImplementation(Config.Libs.Androidx.pagingRxJava)
 }
@@ -2,6 +2,7 @@ package com.firebase.ui.firestore.paging;
 
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.Source;
@@ -9,6 +10,7 @@ import com.google.firebase.firestore.Source;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -17,15 +19,20 @@ import java.util.List;
 
 import androidx.paging.PagingSource;
 import androidx.paging.PagingSource.LoadParams.Append;
+import androidx.paging.PagingSource.LoadParams.Prepend;
 import androidx.paging.PagingSource.LoadParams.Refresh;
 import androidx.paging.PagingSource.LoadResult.Page;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(AndroidJUnit4.class)
@@ -61,6 +68,16 @@ public class FirestorePagingSourceTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testLoadInitial_lazy() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        mockQuerySuccess(mMockSnapshots);
+
+        pagingSource.loadSingle(new Refresh<>(null, 2, false));
+
+        verify(mMockQuery, never()).get(any(Source.class));
+    }
+
     @Test
     public void testLoadInitial_failure() {
         FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
@@ -80,7 +97,8 @@ public class FirestorePagingSourceTest {
         FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
         mockQuerySuccess(mMockSnapshots);
         PageKey pageKey = new PageKey(null, null);
-        Page<PageKey, DocumentSnapshot> expected = new Page<>(mMockSnapshots, null, pageKey);
+        Page<PageKey, DocumentSnapshot> expected = new Page<>(mMockSnapshots,
+                new PageKey(null, mMockSnapshots.get(0)), pageKey);
 
         Append<PageKey> appendRequest = new Append<>(pageKey, 2, false);
         PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
@@ -105,10 +123,51 @@ public class FirestorePagingSourceTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testLoadBefore_success() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        mockQuerySuccess(mMockSnapshots);
+        DocumentSnapshot endBefore = mock(DocumentSnapshot.class);
+        PageKey pageKey = new PageKey(null, endBefore);
+        Page<PageKey, DocumentSnapshot> expected = new Page<>(mMockSnapshots,
+                new PageKey(null, mMockSnapshots.get(0)), new PageKey(null, null));
+
+        Prepend<PageKey> prependRequest = new Prepend<>(pageKey, 2, false);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(prependRequest).blockingGet();
+
+        assertTrue(actual instanceof Page);
+        assertEquals(expected, actual);
+
+        // The page is read backwards from the key on the query ordered explicitly by document ID
+        InOrder order = inOrder(mMockQuery);
+        order.verify(mMockQuery).orderBy(FieldPath.documentId());
+        order.verify(mMockQuery).endBefore(endBefore);
+        order.verify(mMockQuery).limitToLast(2);
+        order.verify(mMockQuery).get(Source.DEFAULT);
+    }
+
+    @Test
+    public void testLoadBefore_startOfQuery() {
+        FirestorePagingSource pagingSource = new FirestorePagingSource(mMockQuery, Source.DEFAULT);
+        mockQuerySuccess(mMockSnapshots);
+        PageKey pageKey = new PageKey(null, mock(DocumentSnapshot.class));
+
+        Prepend<PageKey> prependRequest = new Prepend<>(pageKey, 3, false);
+        PagingSource.LoadResult<PageKey, DocumentSnapshot> actual =
+                pagingSource.loadSingle(prependRequest).blockingGet();
+
+        assertTrue(actual instanceof Page);
+        assertNull(((Page<PageKey, DocumentSnapshot>) actual).getPrevKey());
+    }
+
     private void initMockQuery() {
+        // An explicit order by document ID doesn't change the order of the mocked query
+        when(mMockQuery.orderBy(any(FieldPath.class))).thenReturn(mMockQuery);
         when(mMockQuery.startAfter(any(DocumentSnapshot.class))).thenReturn(mMockQuery);
         when(mMockQuery.endBefore(any(DocumentSnapshot.class))).thenReturn(mMockQuery);
         when(mMockQuery.limit(anyLong())).thenReturn(mMockQuery);
+        when(mMockQuery.limitToLast(anyLong())).thenReturn(mMockQuery);
     }
 
     private void mockQuerySuccess(List<DocumentSnapshot> snapshots) {
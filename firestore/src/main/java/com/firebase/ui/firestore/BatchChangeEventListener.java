@@ -0,0 +1,12 @@
+package com.firebase.ui.firestore;
+
+import com.firebase.ui.common.BaseBatchChangeEventListener;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+/**
+ * Listener for batched changes to a {@link FirestoreArray}. A batch covers all document changes
+ * in a single {@link com.google.firebase.firestore.QuerySnapshot}.
+ */
+public interface BatchChangeEventListener extends ChangeEventListener,
+        BaseBatchChangeEventListener<DocumentSnapshot, FirebaseFirestoreException> {}
@@ -1,6 +1,7 @@
 package com.firebase.ui.firestore;
 
 import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.ChunkedList;
 import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
@@ -12,6 +13,7 @@ import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import androidx.annotation.NonNull;
@@ -26,7 +28,11 @@ public class FirestoreArray<T> extends ObservableSnapshotArray<T>
     private final MetadataChanges mMetadataChanges;
     private ListenerRegistration mRegistration;
 
-    private final List<DocumentSnapshot> mSnapshots = new ArrayList<>();
+    /**
+     * Large live queries see a steady stream of inserts, removals and moves in the middle of the
+     * list, which would shift everything after them in an {@link ArrayList}.
+     */
+    private final List<DocumentSnapshot> mSnapshots = newSnapshotList(new ChunkedList<>());
 
     /**
      * Create a new FirestoreArray.
@@ -61,24 +67,37 @@ public class FirestoreArray<T> extends ObservableSnapshotArray<T>
     protected void onCreate() {
         super.onCreate();
         mRegistration = mQuery.addSnapshotListener(mMetadataChanges, this);
+        reportDatabaseListeners(1);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         mRegistration.remove();
+        reportDatabaseListeners(-1);
         mRegistration = null;
     }
 
     @Override
     public void onEvent(@Nullable QuerySnapshot snapshots, @Nullable FirebaseFirestoreException e) {
         if (e != null) {
-            notifyOnError(e);
+            runWhenParsed(Collections.emptyList(), () -> notifyOnError(e));
             return;
         }
 
-        // Break down each document event
         List<DocumentChange> changes = snapshots.getDocumentChanges(mMetadataChanges);
+        List<DocumentSnapshot> toParse = new ArrayList<>(changes.size());
+        for (DocumentChange change : changes) {
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                toParse.add(change.getDocument());
+            }
+        }
+        runWhenParsed(toParse, () -> applyChanges(changes));
+    }
+
+    private void applyChanges(@NonNull List<DocumentChange> changes) {
+        // Break down each document event, batch listeners get them all at once
+        beginBatch();
         for (DocumentChange change : changes) {
             switch (change.getType()) {
                 case ADDED:
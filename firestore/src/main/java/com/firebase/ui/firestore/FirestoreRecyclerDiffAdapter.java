@@ -0,0 +1,223 @@
+package com.firebase.ui.firestore;
+
+import android.util.Log;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.common.SnapshotListDiffer;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A variant of {@link FirestoreRecyclerAdapter} which does not forward document changes to the
+ * {@link RecyclerView} one by one. Instead, the contents of the backing array are copied at most
+ * once per frame and diffed against what is currently displayed on a background thread, so a burst
+ * of events (for example when a connection is re-established) results in a single set of minimal
+ * updates.
+ * <p>
+ * Positions passed to {@link #getItem(int)} and {@link #getSnapshot(int)} refer to the displayed
+ * list, which may briefly lag behind {@link #getSnapshots()}. The model of a displayed
+ * item is parsed once and kept until its snapshot changes.
+ * <p>
+ * The array must {@link ObservableSnapshotArray#setRetainSnapshots(boolean) retain its snapshots}
+ * to be diffed: constructing the adapter, updating its options or starting to listen throws an
+ * {@link IllegalArgumentException} otherwise.
+ *
+ * @param <T>  model class, for parsing {@link DocumentSnapshot}s.
+ * @param <VH> {@link RecyclerView.ViewHolder} class.
+ */
+public abstract class FirestoreRecyclerDiffAdapter<T, VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<VH>
+        implements InitialDataListener, LifecycleObserver {
+
+    private static final String TAG = "FirestoreRecyclerDiff";
+
+    private static final DiffUtil.ItemCallback<DocumentSnapshot> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<DocumentSnapshot>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull DocumentSnapshot oldItem,
+                                               @NonNull DocumentSnapshot newItem) {
+                    return oldItem.getId().equals(newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull DocumentSnapshot oldItem,
+                                                  @NonNull DocumentSnapshot newItem) {
+                    // Ignore fromCache flips, which touch every document on reconnect
+                    return oldItem == newItem
+                            || (oldItem.getMetadata().hasPendingWrites()
+                                    == newItem.getMetadata().hasPendingWrites()
+                            && Objects.equals(oldItem.getData(), newItem.getData()));
+                }
+            };
+
+    private final SnapshotListDiffer<DocumentSnapshot, T> mDiffer;
+
+    private FirestoreRecyclerOptions<T> mOptions;
+    private ObservableSnapshotArray<T> mSnapshots;
+
+    /**
+     * Initialize a {@link RecyclerView.Adapter} that listens to a Firestore query and diffs its
+     * contents on the default background executor of {@link AsyncListDiffer}.
+     */
+    public FirestoreRecyclerDiffAdapter(@NonNull FirestoreRecyclerOptions<T> options) {
+        this(options, null);
+    }
+
+    /**
+     * Initialize a {@link RecyclerView.Adapter} that listens to a Firestore query. See {@link
+     * FirestoreRecyclerOptions} for configuration options.
+     *
+     * @param diffExecutor the executor to compute diffs on, or {@code null} to use the default.
+     */
+    public FirestoreRecyclerDiffAdapter(@NonNull FirestoreRecyclerOptions<T> options,
+                                        @Nullable Executor diffExecutor) {
+        SnapshotListDiffer.checkRetainsSnapshots(options.getSnapshots());
+        mDiffer = new SnapshotListDiffer<>(this, DIFF_CALLBACK, diffExecutor);
+
+        mOptions = options;
+        mSnapshots = options.getSnapshots();
+
+        if (mOptions.getOwner() != null) {
+            mOptions.getOwner().getLifecycle().addObserver(this);
+        }
+    }
+
+    /**
+     * Start listening for database changes and populate the adapter.
+     */
+    @OnLifecycleEvent(Lifecycle.Event.ON_START)
+    public void startListening() {
+        if (!mSnapshots.isListening(this)) {
+            SnapshotListDiffer.checkRetainsSnapshots(mSnapshots);
+            mSnapshots.addChangeEventListener(this);
+        }
+    }
+
+    /**
+     * Stop listening for database changes and clear all items in the adapter.
+     */
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    public void stopListening() {
+        mSnapshots.removeChangeEventListener(this);
+        mDiffer.clear();
+    }
+
+    @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+    void cleanup(LifecycleOwner source) {
+        source.getLifecycle().removeObserver(this);
+    }
+
+    @Override
+    public void onChildChanged(@NonNull ChangeEventType type,
+                               @NonNull DocumentSnapshot snapshot,
+                               int newIndex,
+                               int oldIndex) {
+        mDiffer.scheduleDiff(mSnapshots);
+    }
+
+    @Override
+    public void onInitialData(int count) {
+        mDiffer.scheduleDiff(mSnapshots);
+    }
+
+    @Override
+    public void onDataChanged() {
+    }
+
+    @Override
+    public void onError(@NonNull FirebaseFirestoreException e) {
+        Log.w(TAG, "onError", e);
+    }
+
+    /**
+     * Returns the backing {@link ObservableSnapshotArray} used to populate this adapter.
+     *
+     * @return the backing snapshot array
+     */
+    @NonNull
+    public ObservableSnapshotArray<T> getSnapshots() {
+        return mSnapshots;
+    }
+
+    /**
+     * Gets the item at the specified position of the displayed list.
+     *
+     * @see ObservableSnapshotArray#parseSnapshot(Object)
+     */
+    @NonNull
+    public T getItem(int position) {
+        return mDiffer.getModel(position);
+    }
+
+    /**
+     * Gets the snapshot at the specified position of the displayed list.
+     */
+    @NonNull
+    public DocumentSnapshot getSnapshot(int position) {
+        return mDiffer.getSnapshot(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mDiffer.size();
+    }
+
+    /**
+     * Re-initialize the Adapter with a new set of options. Can be used to change the query without
+     * re-constructing the entire adapter.
+     */
+    public void updateOptions(@NonNull FirestoreRecyclerOptions<T> options) {
+        SnapshotListDiffer.checkRetainsSnapshots(options.getSnapshots());
+
+        // Tear down old options
+        boolean wasListening = mSnapshots.isListening(this);
+        if (mOptions.getOwner() != null) {
+            mOptions.getOwner().getLifecycle().removeObserver(this);
+        }
+        mSnapshots.clear();
+        stopListening();
+
+        // Set up new options
+        mOptions = options;
+        mSnapshots = options.getSnapshots();
+        if (options.getOwner() != null) {
+            options.getOwner().getLifecycle().addObserver(this);
+        }
+        if (wasListening) {
+            startListening();
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        mSnapshots.onItemBound(position);
+        MetricsListener metrics = mSnapshots.getMetricsListener();
+        if (metrics == null) {
+            onBindViewHolder(holder, position, getItem(position));
+            return;
+        }
+
+        long start = System.nanoTime();
+        onBindViewHolder(holder, position, getItem(position));
+        metrics.onItemBound(System.nanoTime() - start);
+    }
+
+    /**
+     * @param model the model object containing the data that should be used to populate the view.
+     * @see #onBindViewHolder(RecyclerView.ViewHolder, int)
+     */
+    protected abstract void onBindViewHolder(@NonNull VH holder, int position, @NonNull T model);
+}
@@ -1,10 +1,18 @@
 package com.firebase.ui.firestore;
 
+import com.firebase.ui.common.CachePolicy;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.common.ModelCodec;
+import com.firebase.ui.common.ModelSnapshotStore;
 import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.Query;
 
+import java.io.File;
+import java.util.concurrent.Executor;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 import androidx.lifecycle.LifecycleOwner;
 
 import static com.firebase.ui.common.Preconditions.assertNonNull;
@@ -21,14 +29,19 @@ public final class FirestoreRecyclerOptions<T> {
             "Call only one of setSnapshotArray or setQuery";
     private static final String ERR_SNAPSHOTS_NULL = "Snapshot array cannot be null. " +
             "Call one of setSnapshotArray or setQuery";
+    private static final String ERR_SHARED_ARRAY = "Arrays from FirestoreArrayRegistry are " +
+            "shared, change their settings on the array itself instead of through the options.";
 
     private ObservableSnapshotArray<T> mSnapshots;
     private LifecycleOwner mOwner;
+    private ModelSnapshotStore<T> mModelStore;
 
     private FirestoreRecyclerOptions(ObservableSnapshotArray<T> snapshots,
-                                     @Nullable LifecycleOwner owner) {
+                                     @Nullable LifecycleOwner owner,
+                                     @Nullable ModelSnapshotStore<T> modelStore) {
         mSnapshots = snapshots;
         mOwner = owner;
+        mModelStore = modelStore;
     }
 
     /**
@@ -47,6 +60,15 @@ public final class FirestoreRecyclerOptions<T> {
         return mOwner;
     }
 
+    /**
+     * Get the (optional) store persisting the models shown by the adapter between sessions.
+     */
+    @Nullable
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public ModelSnapshotStore<T> getModelStore() {
+        return mModelStore;
+    }
+
     /**
      * Builder for {@link FirestoreRecyclerOptions}.
      *
@@ -56,6 +78,12 @@ public final class FirestoreRecyclerOptions<T> {
 
         private ObservableSnapshotArray<T> mSnapshots;
         private LifecycleOwner mOwner;
+        private Executor mParseExecutor;
+        private CachePolicy<T> mCachePolicy;
+        private boolean mRetainSnapshots = true;
+        private long mLingerMillis;
+        private ModelSnapshotStore<T> mModelStore;
+        private MetricsListener mMetricsListener;
 
         /**
          * Directly set the {@link ObservableSnapshotArray}.
@@ -96,7 +124,7 @@ public final class FirestoreRecyclerOptions<T> {
         public Builder<T> setQuery(@NonNull Query query,
                                    @NonNull MetadataChanges changes,
                                    @NonNull Class<T> modelClass) {
-            return setQuery(query, changes, new ClassSnapshotParser<>(modelClass));
+            return setQuery(query, changes, SnapshotParsers.forClass(modelClass));
         }
 
         /**
@@ -124,14 +152,144 @@ public final class FirestoreRecyclerOptions<T> {
             return this;
         }
 
+        /**
+         * Set an (optional) {@link Executor} on which snapshots are parsed into model objects as
+         * soon as they arrive. The adapter is only notified of changes once their models are
+         * ready, so binding a view holder doesn't have to parse anything.
+         * <p>
+         * By default, snapshots are parsed lazily on the main thread when they are first bound.
+         *
+         * @see ObservableSnapshotArray#setParseExecutor(Executor)
+         */
+        @NonNull
+        public Builder<T> setParseExecutor(@Nullable Executor executor) {
+            mParseExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Set the (optional) {@link CachePolicy} for parsed model objects, for example to keep
+         * more than {@link CachePolicy#DEFAULT_MAX_ENTRIES} models or to limit the cache by
+         * estimated memory size.
+         *
+         * @see ObservableSnapshotArray#getCacheStats()
+         */
+        @NonNull
+        public Builder<T> setCachePolicy(@NonNull CachePolicy<T> policy) {
+            mCachePolicy = policy;
+            return this;
+        }
+
+        /**
+         * Keep listening for {@code millis} after the adapter stops listening, for example when the
+         * app goes to the background. If the adapter starts listening again in time, it is served
+         * the data that is already loaded instead of downloading and parsing the query again.
+         *
+         * @see ObservableSnapshotArray#setLingerTimeout(long)
+         * @see ObservableSnapshotArray#getLingerStats()
+         */
+        @NonNull
+        public Builder<T> setLingerTimeout(long millis) {
+            mLingerMillis = millis;
+            return this;
+        }
+
+        /**
+         * Set whether the full snapshot of every item is kept in memory. With {@code false}, only
+         * the key and parsed model of each item are kept, which greatly reduces the memory used
+         * by large lists. Best combined with {@link #setParseExecutor(Executor)}.
+         *
+         * @see ObservableSnapshotArray#setRetainSnapshots(boolean)
+         */
+        @NonNull
+        public Builder<T> setRetainSnapshots(boolean retain) {
+            mRetainSnapshots = retain;
+            return this;
+        }
+
+        /**
+         * Set the (optional) {@link MetricsListener} receiving the metrics of the array and the
+         * adapter, instead of the {@link com.firebase.ui.common.Metrics#setGlobalListener(
+         * MetricsListener) global listener}.
+         *
+         * @see ObservableSnapshotArray#setMetricsListener(MetricsListener)
+         */
+        @NonNull
+        public Builder<T> setMetricsListener(@Nullable MetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
+
+        /**
+         * Calls {@link #setPersistence(File, int, ModelCodec, int)} with the default maximum of
+         * {@link ModelSnapshotStore#DEFAULT_MAX_ENTRIES} items.
+         */
+        @NonNull
+        public Builder<T> setPersistence(@NonNull File file,
+                                         int modelVersion,
+                                         @NonNull ModelCodec<T> codec) {
+            return setPersistence(file, modelVersion, codec,
+                    ModelSnapshotStore.DEFAULT_MAX_ENTRIES);
+        }
+
+        /**
+         * Persist the keys and models of the first {@code maxItems} items to {@code file} when the
+         * adapter stops listening. On the next cold start, the adapter shows them right away and
+         * swaps in the live data, diffed by key, once the query reports its first results.
+         * <p>
+         * Models are read and written with {@code codec} on a background thread, so they must not
+         * be mutated once parsed. The file is read as soon as the options are built. Bump {@code
+         * modelVersion} whenever the codec's format changes, files written with another version
+         * are discarded.
+         */
+        @NonNull
+        public Builder<T> setPersistence(@NonNull File file,
+                                         int modelVersion,
+                                         @NonNull ModelCodec<T> codec,
+                                         int maxItems) {
+            mModelStore = new ModelSnapshotStore<>(file, modelVersion, codec, maxItems);
+            return this;
+        }
+
         /**
          * Build a {@link FirestoreRecyclerOptions} from the provided arguments.
          */
         @NonNull
         public FirestoreRecyclerOptions<T> build() {
             assertNonNull(mSnapshots, ERR_SNAPSHOTS_NULL);
+            if (FirestoreArrayRegistry.isShared(mSnapshots) && configuresArray()) {
+                throw new IllegalStateException(ERR_SHARED_ARRAY);
+            }
+            if (mParseExecutor != null) {
+                mSnapshots.setParseExecutor(mParseExecutor);
+            }
+            if (mCachePolicy != null) {
+                mSnapshots.setCachePolicy(mCachePolicy);
+            }
+            if (!mRetainSnapshots) {
+                mSnapshots.setRetainSnapshots(false);
+            }
+            if (mMetricsListener != null) {
+                mSnapshots.setMetricsListener(mMetricsListener);
+            }
+            if (mLingerMillis != 0) {
+                mSnapshots.setLingerTimeout(mLingerMillis);
+            }
+
+            if (mModelStore != null) {
+                // Read ahead so the items are ready by the time the adapter starts
+                mModelStore.prefetch();
+            }
+
+            return new FirestoreRecyclerOptions<>(mSnapshots, mOwner, mModelStore);
+        }
 
-            return new FirestoreRecyclerOptions<>(mSnapshots, mOwner);
+        private boolean configuresArray() {
+            return mParseExecutor != null
+                    || mCachePolicy != null
+                    || !mRetainSnapshots
+                    || mMetricsListener != null
+                    || mLingerMillis != 0;
         }
 
     }
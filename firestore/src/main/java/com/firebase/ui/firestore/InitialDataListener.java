@@ -0,0 +1,12 @@
+package com.firebase.ui.firestore;
+
+import com.firebase.ui.common.BaseInitialDataListener;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+/**
+ * Listener for changes to a {@link FirestoreArray} which is caught up with existing documents in a
+ * single call.
+ */
+public interface InitialDataListener extends ChangeEventListener,
+        BaseInitialDataListener<DocumentSnapshot, FirebaseFirestoreException> {}
@@ -5,7 +5,10 @@ import android.annotation.SuppressLint;
 import com.firebase.ui.firestore.SnapshotParser;
 import com.google.firebase.firestore.DocumentSnapshot;
 
+import java.util.Map;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.recyclerview.widget.DiffUtil;
 
@@ -16,9 +19,20 @@ import androidx.recyclerview.widget.DiffUtil;
 public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<DocumentSnapshot> {
 
     private final SnapshotParser<T> mParser;
+    private final String mVersionField;
 
     public DefaultSnapshotDiffCallback(@NonNull SnapshotParser<T> parser) {
+        this(parser, null);
+    }
+
+    /**
+     * @param versionField a field which changes whenever the document does, such as an update
+     *                     counter or timestamp. Items with a version are compared by it alone.
+     */
+    public DefaultSnapshotDiffCallback(@NonNull SnapshotParser<T> parser,
+                                       @Nullable String versionField) {
         mParser = parser;
+        mVersionField = versionField;
     }
 
     @Override
@@ -31,6 +45,25 @@ public class DefaultSnapshotDiffCallback<T> extends DiffUtil.ItemCallback<Docume
     @Override
     public boolean areContentsTheSame(@NonNull DocumentSnapshot oldItem,
                                       @NonNull DocumentSnapshot newItem) {
+        if (oldItem == newItem) {
+            return true;
+        }
+
+        if (mVersionField != null) {
+            Object oldVersion = oldItem.get(mVersionField);
+            Object newVersion = newItem.get(mVersionField);
+            if (oldVersion != null && newVersion != null) {
+                return oldVersion.equals(newVersion);
+            }
+        }
+
+        // Documents with the same fields map to the same model, so only parse the ones whose
+        // fields differ: the model may not read the fields that changed
+        Map<String, Object> oldData = oldItem.getData();
+        if (oldData != null && oldData.equals(newItem.getData())) {
+            return true;
+        }
+
         T oldModel = mParser.parseSnapshot(oldItem);
         T newModel = mParser.parseSnapshot(newItem);
 
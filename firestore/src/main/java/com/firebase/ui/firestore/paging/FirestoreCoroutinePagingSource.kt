@@ -0,0 +1,52 @@
+package com.firebase.ui.firestore.paging
+
+import androidx.annotation.RestrictTo
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import com.google.android.gms.tasks.Task
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.Query
+import com.google.firebase.firestore.QuerySnapshot
+import com.google.firebase.firestore.Source
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.tasks.await
+
+/**
+ * Paging source for a Cloud Firestore query which suspends on each page load instead of blocking
+ * a thread until the underlying [Task] completes. The page query only starts when the load does,
+ * and a cancelled load stops waiting for it straight away.
+ *
+ * This is the default source used by [FirestorePagingOptions]. See [FirestorePagingSource] for
+ * the RxJava based equivalent.
+ */
+open class FirestoreCoroutinePagingSource @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP) constructor(
+        private val query: Query,
+        private val source: Source,
+        private val prefetcher: PagePrefetcher?
+) : PagingSource<PageKey, DocumentSnapshot>() {
+
+    constructor(query: Query, source: Source) : this(query, source, null)
+
+    override suspend fun load(params: LoadParams<PageKey>): LoadResult<PageKey, DocumentSnapshot> {
+        val key = params.key
+        return try {
+            val task = prefetcher?.fetch(params) { getPage(it) }
+                    ?: getPage(FirestorePages.getPageQuery(query, key, params.loadSize))
+            FirestorePages.toPage(key, task.await().documents, params.loadSize)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            LoadResult.Error(e)
+        }
+    }
+
+    /**
+     * Fetch the documents of a single page.
+     *
+     * @param pageQuery the query bounded to the requested page.
+     */
+    protected open fun getPage(pageQuery: Query): Task<QuerySnapshot> = pageQuery.get(source)
+
+    override fun getRefreshKey(state: PagingState<PageKey, DocumentSnapshot>): PageKey? =
+            FirestorePages.getRefreshKey(state)
+}
@@ -0,0 +1,168 @@
+package com.firebase.ui.firestore.paging;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import kotlin.Unit;
+
+/**
+ * A {@link FirestoreCoroutinePagingSource} which keeps listening to every page it has loaded.
+ * <p>
+ * Documents modified in place are reported to a {@link OnDocumentsModifiedListener} without
+ * reloading anything. When documents enter, leave, or move within a page, its boundaries no longer
+ * line up with its neighbours so the source is invalidated and the pager reloads the pages around
+ * the last accessed position.
+ * <p>
+ * Paging doesn't tell sources which pages it drops, so the number of pages listened to can be
+ * capped: once more pages are loaded, the listeners of the least recently loaded ones are removed.
+ * Reloading a page replaces its previous listener.
+ */
+public class FirestoreLivePagingSource extends FirestoreCoroutinePagingSource {
+    /**
+     * Listen to every loaded page for as long as the source is valid.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final OnDocumentsModifiedListener mListener;
+    private final int mMaxLivePages;
+    /** Listeners by page query, least recently loaded first. */
+    private final Map<Query, LivePage> mPages = new LinkedHashMap<>();
+
+    /**
+     * Creates a source listening to every page it loads.
+     *
+     * @see #FirestoreLivePagingSource(Query, OnDocumentsModifiedListener, int)
+     */
+    public FirestoreLivePagingSource(@NonNull Query query,
+                                     @Nullable OnDocumentsModifiedListener listener) {
+        this(query, listener, UNBOUNDED);
+    }
+
+    /**
+     * @param listener     notified on the main thread whenever documents in a loaded page change
+     *                     without affecting its boundaries.
+     * @param maxLivePages the number of most recently loaded pages to keep listening to, or
+     *                     {@link #UNBOUNDED}. Pages beyond that keep their documents but no
+     *                     longer receive changes until they are reloaded.
+     */
+    public FirestoreLivePagingSource(@NonNull Query query,
+                                     @Nullable OnDocumentsModifiedListener listener,
+                                     int maxLivePages) {
+        super(query, Source.DEFAULT);
+        if (maxLivePages <= 0) {
+            throw new IllegalArgumentException("Max live pages must be positive");
+        }
+        mListener = listener;
+        mMaxLivePages = maxLivePages;
+
+        registerInvalidatedCallback(() -> {
+            removeRegistrations();
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    protected Task<QuerySnapshot> getPage(@NonNull Query pageQuery) {
+        final TaskCompletionSource<QuerySnapshot> page = new TaskCompletionSource<>();
+
+        ListenerRegistration registration = pageQuery.addSnapshotListener(
+                MetadataChanges.EXCLUDE, (snapshot, e) -> {
+                    if (e != null) {
+                        // A page we can't listen to anymore can't be trusted to be up to date
+                        if (!page.trySetException(e)) { invalidate(); }
+                        return;
+                    }
+
+                    // The first snapshot is the page itself, everything after is a change
+                    if (!page.trySetResult(snapshot)) { onPageChanged(snapshot); }
+                });
+
+        synchronized (mPages) {
+            LivePage previous = mPages.remove(pageQuery);
+            if (previous != null) { previous.mRegistration.remove(); }
+            mPages.put(pageQuery, new LivePage(registration, page.getTask()));
+            trimPages();
+        }
+        if (getInvalid()) { removeRegistrations(); }
+
+        return page.getTask();
+    }
+
+    /**
+     * Stop listening to the least recently loaded pages beyond {@link #mMaxLivePages}. Pages still
+     * waiting for their first snapshot are kept, or their load would never complete.
+     */
+    private void trimPages() {
+        int excess = mPages.size() - mMaxLivePages;
+        Iterator<LivePage> pages = mPages.values().iterator();
+        while (excess > 0 && pages.hasNext()) {
+            LivePage page = pages.next();
+            if (page.mTask.isComplete()) {
+                page.mRegistration.remove();
+                pages.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void onPageChanged(@NonNull QuerySnapshot snapshot) {
+        List<DocumentSnapshot> modified = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() != DocumentChange.Type.MODIFIED
+                    || change.getOldIndex() != change.getNewIndex()) {
+                invalidate();
+                return;
+            }
+            modified.add(change.getDocument());
+        }
+
+        if (!modified.isEmpty() && mListener != null) {
+            mListener.onDocumentsModified(modified);
+        }
+    }
+
+    private void removeRegistrations() {
+        synchronized (mPages) {
+            for (LivePage page : mPages.values()) {
+                page.mRegistration.remove();
+            }
+            mPages.clear();
+        }
+    }
+
+    private static final class LivePage {
+        final ListenerRegistration mRegistration;
+        final Task<QuerySnapshot> mTask;
+
+        LivePage(@NonNull ListenerRegistration registration, @NonNull Task<QuerySnapshot> task) {
+            mRegistration = registration;
+            mTask = task;
+        }
+    }
+
+    /**
+     * Receives documents which changed in place within a loaded page.
+     */
+    public interface OnDocumentsModifiedListener {
+        /**
+         * @param snapshots the latest version of each modified document.
+         */
+        void onDocumentsModified(@NonNull List<DocumentSnapshot> snapshots);
+    }
+}
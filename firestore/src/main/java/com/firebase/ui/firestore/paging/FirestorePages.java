@@ -0,0 +1,86 @@
+package com.firebase.ui.firestore.paging;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagingSource.LoadResult;
+import androidx.paging.PagingState;
+
+/**
+ * Page boundaries shared by every Firestore paging source, regardless of how pages are awaited.
+ */
+final class FirestorePages {
+    private FirestorePages() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return the query for the page identified by {@code key}, or the first page if it is null.
+     */
+    @NonNull
+    static Query getPageQuery(@NonNull Query query, @Nullable PageKey key, int loadSize) {
+        if (key == null) {
+            return query.limit(loadSize);
+        }
+        return key.getPageQuery(query, loadSize);
+    }
+
+    @NonNull
+    static LoadResult.Page<PageKey, DocumentSnapshot> toPage(@Nullable PageKey key,
+                                                             @NonNull List<DocumentSnapshot> data,
+                                                             int loadSize) {
+        return new LoadResult.Page<>(
+                data,
+                getPrevPageKey(key, data, loadSize),
+                getNextPageKey(data),
+                LoadResult.Page.COUNT_UNDEFINED,
+                LoadResult.Page.COUNT_UNDEFINED);
+    }
+
+    /**
+     * Refresh from the page surrounding the last accessed item instead of the start of the query,
+     * so invalidating deep into a list only reloads what is on screen.
+     */
+    @Nullable
+    static PageKey getRefreshKey(@NonNull PagingState<PageKey, DocumentSnapshot> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+
+        // Keep the anchor in the middle of the initial load
+        int start = anchorPosition - state.getConfig().initialLoadSize / 2;
+        if (start <= 0) {
+            return null;
+        }
+
+        DocumentSnapshot before = state.closestItemToPosition(start - 1);
+        return before == null ? null : new PageKey(before, null);
+    }
+
+    @Nullable
+    private static PageKey getPrevPageKey(@Nullable PageKey key,
+                                          @NonNull List<DocumentSnapshot> data,
+                                          int loadSize) {
+        if (key == null || data.isEmpty()) {
+            // Pages without a key start at the beginning of the query
+            return null;
+        } else if (key.isBackward() && data.size() < loadSize) {
+            // A short backward page means we've hit the beginning of the query
+            return null;
+        }
+        return new PageKey(null, data.get(0));
+    }
+
+    @Nullable
+    private static PageKey getNextPageKey(@NonNull List<DocumentSnapshot> data) {
+        if (data.isEmpty()) {
+            return null;
+        }
+        return new PageKey(data.get(data.size() - 1), null);
+    }
+}
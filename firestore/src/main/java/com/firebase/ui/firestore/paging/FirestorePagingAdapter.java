@@ -1,8 +1,16 @@
 package com.firebase.ui.firestore.paging;
 
+import com.firebase.ui.common.Metrics;
+import com.firebase.ui.common.MetricsListener;
 import com.firebase.ui.firestore.SnapshotParser;
 import com.google.firebase.firestore.DocumentSnapshot;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.Lifecycle;
@@ -10,9 +18,13 @@ import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.OnLifecycleEvent;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.LoadState;
 import androidx.paging.PagingData;
 import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
 
 /**
  * Paginated RecyclerView Adapter for a Cloud Firestore query.
@@ -21,7 +33,7 @@ import androidx.recyclerview.widget.RecyclerView;
  */
 public abstract class FirestorePagingAdapter<T, VH extends RecyclerView.ViewHolder>
         extends PagingDataAdapter<DocumentSnapshot, VH>
-        implements LifecycleObserver {
+        implements LifecycleObserver, FirestoreLivePagingSource.OnDocumentsModifiedListener {
 
     private final Observer<PagingData<DocumentSnapshot>> mDataObserver =
             new Observer<PagingData<DocumentSnapshot>>() {
@@ -31,12 +43,28 @@ public abstract class FirestorePagingAdapter<T, VH extends RecyclerView.ViewHold
                         return;
                     }
 
+                    // A new generation of pages is at least as fresh as any live update
+                    mLiveSnapshots.clear();
                     submitData(mOptions.getOwner().getLifecycle(), snapshots);
                 }
             };
     private FirestorePagingOptions<T> mOptions;
     private SnapshotParser<T> mParser;
     private LiveData<PagingData<DocumentSnapshot>> mSnapshots;
+    /**
+     * Latest version of documents modified in place since the current pages were loaded, by id.
+     */
+    private final Map<String, DocumentSnapshot> mLiveSnapshots = new HashMap<>();
+
+    private final Function1<CombinedLoadStates, Unit> mLoadStateListener = states -> {
+        onLoadStatesChanged(states);
+        return Unit.INSTANCE;
+    };
+    /**
+     * When the page load being measured started, or 0 if there is none.
+     */
+    private long mLoadStartNanos;
+    private int mLoadStartItemCount;
 
     /**
      * Construct a new FirestorePagingAdapter from the given {@link FirestorePagingOptions}.
@@ -45,6 +73,7 @@ public abstract class FirestorePagingAdapter<T, VH extends RecyclerView.ViewHold
         super(options.getDiffCallback());
 
         mOptions = options;
+        addLoadStateListener(mLoadStateListener);
 
         init();
     }
@@ -90,6 +119,9 @@ public abstract class FirestorePagingAdapter<T, VH extends RecyclerView.ViewHold
     @OnLifecycleEvent(Lifecycle.Event.ON_START)
     public void startListening() {
         mSnapshots.observeForever(mDataObserver);
+        if (mOptions.getLiveUpdates() != null) {
+            mOptions.getLiveUpdates().setTarget(this);
+        }
     }
 
     /**
@@ -99,12 +131,78 @@ public abstract class FirestorePagingAdapter<T, VH extends RecyclerView.ViewHold
     @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
     public void stopListening() {
         mSnapshots.removeObserver(mDataObserver);
+        if (mOptions.getLiveUpdates() != null) {
+            mOptions.getLiveUpdates().setTarget(null);
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
         DocumentSnapshot snapshot = getItem(position);
+        if (!mLiveSnapshots.isEmpty()) {
+            DocumentSnapshot latest = mLiveSnapshots.get(snapshot.getId());
+            if (latest != null) { snapshot = latest; }
+        }
+        MetricsListener metrics = Metrics.resolve(mOptions.getMetricsListener());
+        if (metrics == null) {
+            onBindViewHolder(holder, position, mParser.parseSnapshot(snapshot));
+            return;
+        }
+
+        long start = System.nanoTime();
         onBindViewHolder(holder, position, mParser.parseSnapshot(snapshot));
+        metrics.onItemBound(System.nanoTime() - start);
+    }
+
+    /**
+     * Reports how long each page took to load and how much it changed the item count to the
+     * metrics listener, if there is one. Overlapping loads are measured as a single page.
+     */
+    private void onLoadStatesChanged(@NonNull CombinedLoadStates states) {
+        MetricsListener metrics = Metrics.resolve(mOptions.getMetricsListener());
+        if (metrics == null) {
+            mLoadStartNanos = 0;
+            return;
+        }
+
+        boolean refreshing = states.getRefresh() instanceof LoadState.Loading;
+        if (refreshing
+                || states.getPrepend() instanceof LoadState.Loading
+                || states.getAppend() instanceof LoadState.Loading) {
+            if (mLoadStartNanos == 0) {
+                mLoadStartNanos = System.nanoTime();
+                // A refresh replaces every item, so the whole list is the new page
+                mLoadStartItemCount = refreshing ? 0 : getItemCount();
+            }
+        } else if (mLoadStartNanos != 0) {
+            boolean failed = states.getRefresh() instanceof LoadState.Error
+                    || states.getPrepend() instanceof LoadState.Error
+                    || states.getAppend() instanceof LoadState.Error;
+            if (!failed) {
+                metrics.onPageLoaded(System.nanoTime() - mLoadStartNanos,
+                        getItemCount() - mLoadStartItemCount);
+            }
+            mLoadStartNanos = 0;
+        }
+    }
+
+    /**
+     * Rebinds loaded documents which were modified in place. Only called when live updates are
+     * enabled in the {@link FirestorePagingOptions}.
+     */
+    @Override
+    public void onDocumentsModified(@NonNull List<DocumentSnapshot> snapshots) {
+        Set<String> ids = new HashSet<>();
+        for (DocumentSnapshot snapshot : snapshots) {
+            mLiveSnapshots.put(snapshot.getId(), snapshot);
+            ids.add(snapshot.getId());
+        }
+        for (int i = 0; i < getItemCount(); i++) {
+            DocumentSnapshot item = peek(i);
+            if (item != null && ids.contains(item.getId())) {
+                notifyItemChanged(i);
+            }
+        }
     }
 
     /**
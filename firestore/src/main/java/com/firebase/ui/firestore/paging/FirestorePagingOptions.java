@@ -1,6 +1,7 @@
 package com.firebase.ui.firestore.paging;
 
-import com.firebase.ui.firestore.ClassSnapshotParser;
+import com.firebase.ui.common.MetricsListener;
+import com.firebase.ui.firestore.SnapshotParsers;
 import com.firebase.ui.firestore.SnapshotParser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.Query;
@@ -34,15 +35,24 @@ public final class FirestorePagingOptions<T> {
     private final SnapshotParser<T> mParser;
     private final DiffUtil.ItemCallback<DocumentSnapshot> mDiffCallback;
     private final LifecycleOwner mOwner;
+    private final LiveUpdateRelay mLiveUpdates;
+    private final PagePrefetcher mPrefetcher;
+    private final MetricsListener mMetricsListener;
 
     private FirestorePagingOptions(@NonNull LiveData<PagingData<DocumentSnapshot>> pagingData,
                                    @NonNull SnapshotParser<T> parser,
                                    @NonNull DiffUtil.ItemCallback<DocumentSnapshot> diffCallback,
-                                   @Nullable LifecycleOwner owner) {
+                                   @Nullable LifecycleOwner owner,
+                                   @Nullable LiveUpdateRelay liveUpdates,
+                                   @Nullable PagePrefetcher prefetcher,
+                                   @Nullable MetricsListener metricsListener) {
         mPagingData = pagingData;
         mParser = parser;
         mDiffCallback = diffCallback;
         mOwner = owner;
+        mLiveUpdates = liveUpdates;
+        mPrefetcher = prefetcher;
+        mMetricsListener = metricsListener;
     }
 
     @NonNull
@@ -65,6 +75,31 @@ public final class FirestorePagingOptions<T> {
         return mOwner;
     }
 
+    /**
+     * @return the listener for the adapter's metrics, or null to use the global listener.
+     */
+    @Nullable
+    public MetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
+    /**
+     * @return how adaptive prefetching has performed so far, or null if it isn't enabled.
+     * @see Builder#setAdaptivePrefetch(boolean)
+     */
+    @Nullable
+    public PrefetchStats getPrefetchStats() {
+        return mPrefetcher == null ? null : mPrefetcher.getStats();
+    }
+
+    /**
+     * @return the relay for in-page document changes, or null if the pages aren't live.
+     */
+    @Nullable
+    LiveUpdateRelay getLiveUpdates() {
+        return mLiveUpdates;
+    }
+
     /**
      * Builder for {@link FirestorePagingOptions}.
      */
@@ -75,16 +110,26 @@ public final class FirestorePagingOptions<T> {
         private LifecycleOwner mOwner;
         private DiffUtil.ItemCallback<DocumentSnapshot> mDiffCallback;
 
+        private Query mQuery;
+        private Source mSource;
+        private PagingConfig mConfig;
+        private boolean mLive;
+        private boolean mUseRxJava;
+        private String mVersionField;
+        private boolean mAdaptivePrefetch;
+        private boolean mStaleWhileRevalidate;
+        private MetricsListener mMetricsListener;
+
         /**
-         * Directly set data using and parse with a {@link ClassSnapshotParser} based on the given
-         * class.
+         * Directly set data and parse it with the {@link SnapshotParsers#forClass(Class) parser}
+         * for the given class.
          * <p>
          * Do not call this method after calling {@code setQuery}.
          */
         @NonNull
         public Builder<T> setPagingData(@NonNull LiveData<PagingData<DocumentSnapshot>> data,
                                         @NonNull Class<T> modelClass) {
-            return setPagingData(data, new ClassSnapshotParser<>(modelClass));
+            return setPagingData(data, SnapshotParsers.forClass(modelClass));
         }
 
         /**
@@ -96,6 +141,7 @@ public final class FirestorePagingOptions<T> {
         public Builder<T> setPagingData(@NonNull LiveData<PagingData<DocumentSnapshot>> pagingData,
                                         @NonNull SnapshotParser<T> parser) {
             assertNull(mPagingData, ERR_DATA_SET);
+            assertNull(mQuery, ERR_DATA_SET);
 
             mPagingData = pagingData;
             mParser = parser;
@@ -103,8 +149,8 @@ public final class FirestorePagingOptions<T> {
         }
 
         /**
-         * Sets the query using {@link Source#DEFAULT} and a {@link ClassSnapshotParser} based on
-         * the given Class.
+         * Sets the query using {@link Source#DEFAULT} and the {@link
+         * SnapshotParsers#forClass(Class) parser} for the given Class.
          * <p>
          * See {@link #setQuery(Query, Source, PagingConfig, SnapshotParser)}.
          */
@@ -128,8 +174,8 @@ public final class FirestorePagingOptions<T> {
         }
 
         /**
-         * Sets the query using a custom {@link Source} and a {@link ClassSnapshotParser} based on
-         * the given class.
+         * Sets the query using a custom {@link Source} and the {@link
+         * SnapshotParsers#forClass(Class) parser} for the given class.
          * <p>
          * See {@link #setQuery(Query, Source, PagingConfig, SnapshotParser)}.
          */
@@ -138,7 +184,7 @@ public final class FirestorePagingOptions<T> {
                                    @NonNull Source source,
                                    @NonNull PagingConfig config,
                                    @NonNull Class<T> modelClass) {
-            return setQuery(query, source, config, new ClassSnapshotParser<>(modelClass));
+            return setQuery(query, source, config, SnapshotParsers.forClass(modelClass));
         }
 
         /**
@@ -158,14 +204,12 @@ public final class FirestorePagingOptions<T> {
                                    @NonNull PagingConfig config,
                                    @NonNull SnapshotParser<T> parser) {
             assertNull(mPagingData, ERR_DATA_SET);
+            assertNull(mQuery, ERR_DATA_SET);
 
+            mQuery = query;
+            mSource = source;
+            mConfig = config;
             mParser = parser;
-
-            final Pager<PageKey, DocumentSnapshot> pager = new Pager<>(config,
-                    () -> new FirestorePagingSource(query, source));
-
-            mPagingData = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
-                    mOwner.getLifecycle());
             return this;
         }
 
@@ -184,6 +228,107 @@ public final class FirestorePagingOptions<T> {
             return this;
         }
 
+        /**
+         * Keep every loaded page up to date with a snapshot listener instead of fetching it once.
+         * <p>
+         * Documents modified in place are rebound without reloading anything. When documents
+         * are added, removed, or reordered within a loaded page, only the pages around the current
+         * scroll position are reloaded. Only applies to data set with {@code setQuery}, and the
+         * {@link Source} passed there is ignored since listeners always use the default source.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setLiveUpdates(boolean live) {
+            mLive = live;
+            return this;
+        }
+
+        /**
+         * Serve every page from the local cache right away, then fetch it again from the server
+         * in the background. When the server results differ, the pages around the current scroll
+         * position are reloaded and only the changed rows are diffed into the adapter.
+         * <p>
+         * This gets the first page on screen without waiting for the network. It costs an extra
+         * cache read per page, and the {@link Source} passed to {@code setQuery} is ignored.
+         * Always uses the coroutine based paging source, and is ignored when live updates are
+         * enabled since listeners already deliver cached results first.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+            mStaleWhileRevalidate = staleWhileRevalidate;
+            return this;
+        }
+
+        /**
+         * Speculatively fetch the next page as soon as the previous one has loaded whenever the
+         * list is scrolled through faster than pages can be downloaded, based on the time between
+         * recent page requests and how long recent pages took to load.
+         * <p>
+         * Use {@link FirestorePagingOptions#getPrefetchStats()} to see how often prefetching hid
+         * the page latency. Ignored when live updates are enabled.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setAdaptivePrefetch(boolean prefetch) {
+            mAdaptivePrefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Load pages with the RxJava based {@link FirestorePagingSource} instead of the default
+         * {@link FirestoreCoroutinePagingSource}, which doesn't block a thread while waiting for
+         * each page.
+         * <p>
+         * Ignored when live updates or stale while revalidate are enabled.
+         *
+         * <p>
+         * FirebaseUI doesn't depend on RxJava, add {@code androidx.paging:paging-rxjava3} to your
+         * app's dependencies to use this source.
+         *
+         * @return this, for chaining.
+         * @throws IllegalStateException if paging-rxjava3 is missing.
+         * @deprecated the RxJava source will be removed in the next major release.
+         */
+        @Deprecated
+        @NonNull
+        public Builder<T> setUseRxJava(boolean useRxJava) {
+            if (useRxJava && !hasRxJavaPaging()) {
+                throw new IllegalStateException("The RxJava paging source requires "
+                        + "androidx.paging:paging-rxjava3, add it to your app's dependencies.");
+            }
+            mUseRxJava = useRxJava;
+            return this;
+        }
+
+        private static boolean hasRxJavaPaging() {
+            try {
+                Class.forName("androidx.paging.rxjava3.RxPagingSource");
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Sets a field which changes whenever the document does, such as an update counter or
+         * timestamp. The default diff callback then compares items by that field instead of
+         * parsing both versions of every item into models. Items without the field are still
+         * compared by their models.
+         * <p>
+         * Has no effect when a custom diff callback is set.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setVersionField(@NonNull String field) {
+            mVersionField = field;
+            return this;
+        }
+
         /**
          * Sets an optional {@link LifecycleOwner} to control the lifecycle of the adapter.
          * Otherwise, you must manually call {@link FirestorePagingAdapter#startListening()} and
@@ -197,21 +342,70 @@ public final class FirestorePagingOptions<T> {
             return this;
         }
 
+        /**
+         * Sets an optional {@link MetricsListener} receiving page load and bind metrics of the
+         * adapter, instead of the {@link com.firebase.ui.common.Metrics#setGlobalListener(
+         * MetricsListener) global listener}.
+         *
+         * @return this, for chaining.
+         */
+        @NonNull
+        public Builder<T> setMetricsListener(@Nullable MetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
+
         /**
          * Build the {@link FirestorePagingOptions} object.
          */
         @NonNull
         public FirestorePagingOptions<T> build() {
-            if (mPagingData == null || mParser == null) {
+            if ((mPagingData == null && mQuery == null) || mParser == null) {
                 throw new IllegalStateException("Must call setQuery() or setPagingData()" +
                         " before calling build().");
             }
 
             if (mDiffCallback == null) {
-                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser);
+                mDiffCallback = new DefaultSnapshotDiffCallback<>(mParser, mVersionField);
+            }
+
+            LiveUpdateRelay liveUpdates = null;
+            PagePrefetcher prefetcher = null;
+            if (mQuery != null) {
+                final Query query = mQuery;
+                final Source source = mSource;
+                final LiveUpdateRelay relay = liveUpdates = mLive ? new LiveUpdateRelay() : null;
+
+                // Paging keeps at most maxSize items, plus a page on either side while loading
+                final int maxLivePages = mConfig.maxSize == PagingConfig.MAX_SIZE_UNBOUNDED
+                        ? FirestoreLivePagingSource.UNBOUNDED
+                        : mConfig.maxSize / mConfig.pageSize + 2;
+                final boolean useRxJava = mUseRxJava;
+                final boolean staleWhileRevalidate = mStaleWhileRevalidate;
+                final PagePrefetcher sharedPrefetcher = prefetcher =
+                        mAdaptivePrefetch && !mLive ? new PagePrefetcher(query) : null;
+
+                @SuppressWarnings("deprecation")
+                final Pager<PageKey, DocumentSnapshot> pager = new Pager<>(mConfig, () -> {
+                    if (relay != null) {
+                        return new FirestoreLivePagingSource(query, relay, maxLivePages);
+                    } else if (staleWhileRevalidate) {
+                        return new FirestoreRevalidatingPagingSource(query, sharedPrefetcher);
+                    } else if (useRxJava) {
+                        return new FirestorePagingSource(query, source, sharedPrefetcher);
+                    }
+                    return new FirestoreCoroutinePagingSource(query, source, sharedPrefetcher);
+                });
+
+                mPagingData = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
+                        mOwner.getLifecycle());
+            } else if (mLive) {
+                throw new IllegalStateException("Live updates require setQuery().");
             }
 
-            return new FirestorePagingOptions<>(mPagingData, mParser, mDiffCallback, mOwner);
+            return new FirestorePagingOptions<>(
+                    mPagingData, mParser, mDiffCallback, mOwner, liveUpdates, prefetcher,
+                    mMetricsListener);
         }
     }
 
@@ -1,94 +1,89 @@
 package com.firebase.ui.firestore.paging;
 
 import com.google.android.gms.tasks.Task;
-import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.Source;
 
-import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 import androidx.paging.PagingState;
 import androidx.paging.rxjava3.RxPagingSource;
 import io.reactivex.rxjava3.core.Single;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
+/**
+ * Paging source for a Firestore query built on RxJava. Requires {@code
+ * androidx.paging:paging-rxjava3}, which FirebaseUI doesn't depend on.
+ *
+ * @deprecated use {@link FirestoreCoroutinePagingSource}, which is the default source of {@link
+ * FirestorePagingOptions}. This source will be removed in the next major release.
+ */
+@Deprecated
 public class FirestorePagingSource extends RxPagingSource<PageKey, DocumentSnapshot> {
 
     private final Query mQuery;
     private final Source mSource;
+    private final PagePrefetcher mPrefetcher;
 
     public FirestorePagingSource(@NonNull Query query, @NonNull Source source) {
+        this(query, source, null);
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public FirestorePagingSource(@NonNull Query query,
+                                 @NonNull Source source,
+                                 @Nullable PagePrefetcher prefetcher) {
         mQuery = query;
         mSource = source;
+        mPrefetcher = prefetcher;
     }
 
+    /**
+     * The page query only starts once the returned {@link Single} is subscribed to, and its
+     * result is dropped without any further work if the subscription is disposed first.
+     */
     @NonNull
     @Override
     public Single<LoadResult<PageKey, DocumentSnapshot>> loadSingle(@NonNull LoadParams<PageKey> params) {
-        final Task<QuerySnapshot> task;
-        if (params.getKey() == null) {
-            task = mQuery.limit(params.getLoadSize()).get(mSource);
-        } else {
-            task = params.getKey().getPageQuery(mQuery, params.getLoadSize()).get(mSource);
-        }
+        final PageKey key = params.getKey();
 
-        return Single.fromCallable(() -> {
-            try {
-                Tasks.await(task);
-                QuerySnapshot snapshot = task.getResult();
-                PageKey nextPage = getNextPageKey(snapshot);
-                if (snapshot.getDocuments().isEmpty()) {
-                    return toLoadResult(snapshot.getDocuments(), null);
-                }
-                return toLoadResult(snapshot.getDocuments(), nextPage);
-            } catch (ExecutionException e) {
-                if (e.getCause() instanceof Exception) {
-                    // throw the original Exception
-                    throw (Exception) e.getCause();
-                }
-                // Only throw a new Exception when the original
-                // Throwable cannot be cast to Exception
-                throw new Exception(e);
-            }
-        }).subscribeOn(Schedulers.io()).onErrorReturn(LoadResult.Error::new);
-    }
+        return Single.<LoadResult<PageKey, DocumentSnapshot>>create(emitter -> {
+            Task<QuerySnapshot> task = mPrefetcher == null ?
+                    getPage(FirestorePages.getPageQuery(mQuery, key, params.getLoadSize())) :
+                    mPrefetcher.fetch(params, this::getPage);
 
-    private LoadResult<PageKey, DocumentSnapshot> toLoadResult(
-            @NonNull List<DocumentSnapshot> snapshots,
-            @Nullable PageKey nextPage
-    ) {
-        return new LoadResult.Page<>(
-                snapshots,
-                null, // Only paging forward.
-                nextPage,
-                LoadResult.Page.COUNT_UNDEFINED,
-                LoadResult.Page.COUNT_UNDEFINED);
-    }
+            task.addOnCompleteListener(result -> {
+                if (emitter.isDisposed()) { return; }
 
-    @Nullable
-    @Override
-    public PageKey getRefreshKey(@NonNull PagingState<PageKey, DocumentSnapshot> state) {
-        return null;
+                if (result.isSuccessful()) {
+                    emitter.onSuccess(FirestorePages.toPage(
+                            key, result.getResult().getDocuments(), params.getLoadSize()));
+                } else if (result.getException() != null) {
+                    emitter.onError(result.getException());
+                } else {
+                    emitter.onError(new CancellationException("Page load was cancelled"));
+                }
+            });
+        }).onErrorReturn(LoadResult.Error::new);
     }
 
+    /**
+     * Fetch the documents of a single page.
+     *
+     * @param pageQuery the query bounded to the requested page.
+     */
     @NonNull
-    private PageKey getNextPageKey(@NonNull QuerySnapshot snapshot) {
-        List<DocumentSnapshot> data = snapshot.getDocuments();
-        DocumentSnapshot last = getLast(data);
-        return new PageKey(last, null);
+    protected Task<QuerySnapshot> getPage(@NonNull Query pageQuery) {
+        return pageQuery.get(mSource);
     }
 
     @Nullable
-    private DocumentSnapshot getLast(@NonNull List<DocumentSnapshot> data) {
-        if (data.isEmpty()) {
-            return null;
-        } else {
-            return data.get(data.size() - 1);
-        }
+    @Override
+    public PageKey getRefreshKey(@NonNull PagingState<PageKey, DocumentSnapshot> state) {
+        return FirestorePages.getRefreshKey(state);
     }
 }
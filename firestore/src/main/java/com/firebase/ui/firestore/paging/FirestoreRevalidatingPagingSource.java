@@ -0,0 +1,73 @@
+package com.firebase.ui.firestore.paging;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.List;
+import java.util.Objects;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * A {@link FirestoreCoroutinePagingSource} which serves every page from the local cache right
+ * away, then fetches it again from the server in the background.
+ * <p>
+ * If the server disagrees with the cache, the source is invalidated. By then the server results
+ * are in the cache, so the pager reloads the pages around the last accessed position from the
+ * cache and only the rows that actually changed are diffed into the adapter. Pages which aren't
+ * cached yet are fetched from the server directly.
+ */
+public class FirestoreRevalidatingPagingSource extends FirestoreCoroutinePagingSource {
+
+    public FirestoreRevalidatingPagingSource(@NonNull Query query) {
+        this(query, null);
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public FirestoreRevalidatingPagingSource(@NonNull Query query,
+                                             @Nullable PagePrefetcher prefetcher) {
+        super(query, Source.DEFAULT, prefetcher);
+    }
+
+    @NonNull
+    @Override
+    protected Task<QuerySnapshot> getPage(@NonNull Query pageQuery) {
+        return pageQuery.get(Source.CACHE).continueWithTask(cached -> {
+            if (cached.isSuccessful() && !cached.getResult().isEmpty()) {
+                revalidate(pageQuery, cached.getResult());
+                return cached;
+            }
+
+            // Nothing cached for this page yet
+            return pageQuery.get(Source.SERVER);
+        });
+    }
+
+    private void revalidate(@NonNull Query pageQuery, @NonNull QuerySnapshot cached) {
+        pageQuery.get(Source.SERVER).addOnSuccessListener(server -> {
+            if (!getInvalid() && !isSamePage(cached.getDocuments(), server.getDocuments())) {
+                invalidate();
+            }
+        });
+    }
+
+    private static boolean isSamePage(@NonNull List<DocumentSnapshot> cached,
+                                      @NonNull List<DocumentSnapshot> server) {
+        if (cached.size() != server.size()) { return false; }
+
+        for (int i = 0; i < cached.size(); i++) {
+            DocumentSnapshot a = cached.get(i);
+            DocumentSnapshot b = server.get(i);
+            // Snapshots themselves never match since their metadata differs
+            if (!a.getId().equals(b.getId()) || !Objects.equals(a.getData(), b.getData())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.firebase.ui.firestore.paging;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Forwards in-page document changes from every {@link FirestoreLivePagingSource} generation
+ * created by a pager to whichever adapter is currently listening.
+ */
+final class LiveUpdateRelay implements FirestoreLivePagingSource.OnDocumentsModifiedListener {
+    private FirestoreLivePagingSource.OnDocumentsModifiedListener mTarget;
+
+    public void setTarget(@Nullable FirestoreLivePagingSource.OnDocumentsModifiedListener target) {
+        mTarget = target;
+    }
+
+    @Override
+    public void onDocumentsModified(@NonNull List<DocumentSnapshot> snapshots) {
+        if (mTarget != null) {
+            mTarget.onDocumentsModified(snapshots);
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package com.firebase.ui.firestore.paging;
 
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
 
+import java.util.Objects;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 /**
  * Key for Firestore pagination. Holds the DocumentSnapshot(s) that bound the page.
+ * <p>
+ * A key with only a {@code startAfter} bound loads the page following it, a key with only an
+ * {@code endBefore} bound loads the page preceding it, and a key with both loads everything in
+ * between.
+ * <p>
+ * Backward pages use {@code limitToLast}, which only works on queries with an explicit {@code
+ * orderBy}. Queries relying on the implicit order by document ID are ordered explicitly for them.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class PageKey {
@@ -29,35 +39,69 @@ public class PageKey {
             pageQuery = pageQuery.startAfter(mStartAfter);
         }
 
-        if (mEndBefore != null) {
-            pageQuery = pageQuery.endBefore(mEndBefore);
-        } else {
+        if (mEndBefore == null) {
             pageQuery = pageQuery.limit(size);
+        } else if (mStartAfter == null) {
+            pageQuery = withExplicitOrder(pageQuery).endBefore(mEndBefore).limitToLast(size);
+        } else {
+            pageQuery = pageQuery.endBefore(mEndBefore);
         }
 
         return pageQuery;
     }
 
+    /**
+     * @return {@code query} ordered explicitly by document ID, if that doesn't change its order.
+     */
+    @NonNull
+    static Query withExplicitOrder(@NonNull Query query) {
+        Query ordered;
+        try {
+            ordered = query.orderBy(FieldPath.documentId());
+        } catch (IllegalArgumentException e) {
+            // Inequality filters must be ordered by their field first
+            return query;
+        }
+
+        // Queries compare equal when their effective order is the same. Every query is ordered
+        // by document ID last, so an unordered query or one sorted ascending stays as is.
+        return ordered.equals(query) ? ordered : query;
+    }
+
+    /**
+     * @return true if this key loads the page preceding a known document.
+     */
+    public boolean isBackward() {
+        return mStartAfter == null && mEndBefore != null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PageKey key = (PageKey) o;
-        if (mStartAfter == null && key.mStartAfter == null &&
-                mEndBefore == null && key.mEndBefore == null)
-            return true;
-        return mStartAfter.getId().equals(key.mStartAfter.getId()) &&
-                mEndBefore.getId().equals(key.mEndBefore.getId());
+        return Objects.equals(getId(mStartAfter), getId(key.mStartAfter)) &&
+                Objects.equals(getId(mEndBefore), getId(key.mEndBefore));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(mStartAfter), getId(mEndBefore));
     }
 
     @Override
     @NonNull
     public String toString() {
-        String startAfter = mStartAfter == null ? null : mStartAfter.getId();
-        String endBefore = mEndBefore == null ? null : mEndBefore.getId();
+        String startAfter = getId(mStartAfter);
+        String endBefore = getId(mEndBefore);
         return "PageKey{" +
                 "StartAfter=" + startAfter +
                 ", EndBefore=" + endBefore +
                 '}';
     }
+
+    @Nullable
+    private static String getId(@Nullable DocumentSnapshot snapshot) {
+        return snapshot == null ? null : snapshot.getId();
+    }
 }
@@ -0,0 +1,162 @@
+package com.firebase.ui.firestore.paging;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import androidx.paging.PagingSource.LoadParams;
+
+/**
+ * Speculatively fetches the page after the last one appended when the list is being scrolled
+ * through faster than pages can be downloaded.
+ * <p>
+ * The scroll velocity is estimated from the time between consecutive append requests, and the
+ * latency from recent page fetches. Shared by every paging source generation of a pager, so a
+ * prefetch is only dropped once a refresh makes it obsolete.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class PagePrefetcher {
+    /**
+     * Prefetch when the next page is expected to be requested within this many page latencies.
+     */
+    private static final int LATENCY_FACTOR = 3;
+    /**
+     * Weight of the latest measurement in the moving averages, out of 4.
+     */
+    private static final int AVERAGE_WEIGHT = 1;
+
+    /**
+     * Fetches the given page query.
+     */
+    public interface Fetcher {
+        @NonNull
+        Task<QuerySnapshot> getPage(@NonNull Query pageQuery);
+    }
+
+    private final Query mQuery;
+
+    private PageKey mPrefetchedKey;
+    private int mPrefetchedLoadSize;
+    private Task<QuerySnapshot> mPrefetched;
+
+    private long mLastAppendAt = -1;
+    private long mAverageAppendInterval;
+    private long mAverageLatency;
+
+    private long mIssuedCount;
+    private long mHitCount;
+    private long mPartialHitCount;
+    private long mWastedCount;
+    private long mMissCount;
+
+    public PagePrefetcher(@NonNull Query query) {
+        mQuery = query;
+    }
+
+    /**
+     * Fetch the requested page, reusing a prefetch for it if there is one.
+     */
+    @NonNull
+    public synchronized Task<QuerySnapshot> fetch(@NonNull LoadParams<PageKey> params,
+                                                  @NonNull Fetcher fetcher) {
+        PageKey key = params.getKey();
+        boolean append = params instanceof LoadParams.Append;
+        if (append) {
+            long now = SystemClock.elapsedRealtime();
+            if (mLastAppendAt != -1) {
+                mAverageAppendInterval = average(mAverageAppendInterval, now - mLastAppendAt);
+            }
+            mLastAppendAt = now;
+        } else if (params instanceof LoadParams.Refresh) {
+            // Scrolling starts over from wherever the refresh lands
+            mLastAppendAt = -1;
+            mAverageAppendInterval = 0;
+        }
+
+        if (mPrefetched != null) {
+            Task<QuerySnapshot> prefetched = mPrefetched;
+            boolean matches = append && mPrefetchedKey.equals(key)
+                    && mPrefetchedLoadSize == params.getLoadSize();
+            mPrefetched = null;
+            mPrefetchedKey = null;
+
+            if (matches) {
+                if (prefetched.isComplete()) {
+                    mHitCount++;
+                } else {
+                    mPartialHitCount++;
+                }
+                prefetched.addOnSuccessListener(snapshot ->
+                        maybePrefetch(snapshot.getDocuments(), params.getLoadSize(), fetcher));
+                return prefetched;
+            }
+            mWastedCount++;
+        }
+
+        if (append) { mMissCount++; }
+        return fetchPage(FirestorePages.getPageQuery(mQuery, key, params.getLoadSize()),
+                append ? params.getLoadSize() : -1,
+                fetcher);
+    }
+
+    /**
+     * @param nextLoadSize the load size to prefetch the following page with, or -1 not to.
+     */
+    @NonNull
+    private Task<QuerySnapshot> fetchPage(@NonNull Query pageQuery,
+                                          int nextLoadSize,
+                                          @NonNull Fetcher fetcher) {
+        long start = SystemClock.elapsedRealtime();
+        Task<QuerySnapshot> task = fetcher.getPage(pageQuery);
+        task.addOnSuccessListener(snapshot -> {
+            onFetched(SystemClock.elapsedRealtime() - start);
+            if (nextLoadSize != -1) {
+                maybePrefetch(snapshot.getDocuments(), nextLoadSize, fetcher);
+            }
+        });
+        return task;
+    }
+
+    private synchronized void onFetched(long latency) {
+        mAverageLatency = mAverageLatency == 0 ? latency : average(mAverageLatency, latency);
+    }
+
+    private synchronized void maybePrefetch(@NonNull List<DocumentSnapshot> page,
+                                            int loadSize,
+                                            @NonNull Fetcher fetcher) {
+        if (mPrefetched != null || page.size() < loadSize || !isScrollingFast()) { return; }
+
+        DocumentSnapshot last = page.get(page.size() - 1);
+        mPrefetchedKey = new PageKey(last, null);
+        mPrefetchedLoadSize = loadSize;
+        // The page after this one is only prefetched once this one is used
+        mPrefetched = fetchPage(mPrefetchedKey.getPageQuery(mQuery, loadSize), -1, fetcher);
+        mIssuedCount++;
+    }
+
+    private boolean isScrollingFast() {
+        return mAverageAppendInterval > 0 && mAverageLatency > 0
+                && mAverageAppendInterval < mAverageLatency * LATENCY_FACTOR;
+    }
+
+    @NonNull
+    public synchronized PrefetchStats getStats() {
+        return new PrefetchStats(mIssuedCount,
+                mHitCount,
+                mPartialHitCount,
+                mWastedCount,
+                mMissCount,
+                mAverageLatency);
+    }
+
+    private static long average(long average, long value) {
+        return (average * (4 - AVERAGE_WEIGHT) + value * AVERAGE_WEIGHT) / 4;
+    }
+}
@@ -0,0 +1,99 @@
+package com.firebase.ui.firestore.paging;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A point-in-time snapshot of how adaptive prefetching has performed. Counters accumulate over the
+ * lifetime of the {@link FirestorePagingOptions} they were obtained from.
+ *
+ * @see FirestorePagingOptions.Builder#setAdaptivePrefetch(boolean)
+ */
+public final class PrefetchStats {
+
+    private final long mIssuedCount;
+    private final long mHitCount;
+    private final long mPartialHitCount;
+    private final long mWastedCount;
+    private final long mMissCount;
+    private final long mAverageLatencyMillis;
+
+    public PrefetchStats(long issuedCount,
+                         long hitCount,
+                         long partialHitCount,
+                         long wastedCount,
+                         long missCount,
+                         long averageLatencyMillis) {
+        mIssuedCount = issuedCount;
+        mHitCount = hitCount;
+        mPartialHitCount = partialHitCount;
+        mWastedCount = wastedCount;
+        mMissCount = missCount;
+        mAverageLatencyMillis = averageLatencyMillis;
+    }
+
+    /**
+     * @return the number of pages fetched speculatively.
+     */
+    public long getIssuedCount() {
+        return mIssuedCount;
+    }
+
+    /**
+     * @return the number of page loads served by a prefetch which had already completed, fully
+     * hiding the page's latency.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of page loads served by a prefetch which was still in flight, hiding part
+     * of the page's latency.
+     */
+    public long getPartialHitCount() {
+        return mPartialHitCount;
+    }
+
+    /**
+     * @return the number of prefetched pages which were never requested.
+     */
+    public long getWastedCount() {
+        return mWastedCount;
+    }
+
+    /**
+     * @return the number of forward page loads which had to be fetched on demand.
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return the recent average time taken to fetch a page, in milliseconds.
+     */
+    public long getAverageLatencyMillis() {
+        return mAverageLatencyMillis;
+    }
+
+    /**
+     * @return the ratio of forward page loads whose latency was fully hidden by a prefetch, or 0
+     * if there haven't been any.
+     */
+    public double getHitRatio() {
+        long total = mHitCount + mPartialHitCount + mMissCount;
+        return total == 0 ? 0 : (double) mHitCount / total;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "PrefetchStats{" +
+                "issued=" + mIssuedCount +
+                ", hits=" + mHitCount +
+                ", partialHits=" + mPartialHitCount +
+                ", wasted=" + mWastedCount +
+                ", misses=" + mMissCount +
+                ", averageLatencyMillis=" + mAverageLatencyMillis +
+                '}';
+    }
+}
@@ -0,0 +1,171 @@
+package com.firebase.ui.firestore;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.testing.FakeFirestoreQuery;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.MetadataChanges;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Drives {@link FirestoreArray} with large, bursty snapshot streams from a {@link
+ * FakeFirestoreQuery}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FakeFirestoreLoadTest {
+    private static final int INITIAL_LOAD = 100000;
+    private static final int BURST_COUNT = 200;
+    private static final int BURST_SIZE = 50;
+
+    private static final SnapshotParser<String> PARSER =
+            snapshot -> snapshot.getString("text");
+
+    @Test
+    public void testInitialLoadAndBursts() {
+        FakeFirestoreQuery query = new FakeFirestoreQuery();
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            query.add(id(i), fields(i, 0));
+        }
+
+        FirestoreArray<String> array = new FirestoreArray<>(query.getQuery(), PARSER);
+        CountingListener listener = new CountingListener();
+        array.addChangeEventListener(listener);
+        query.flush();
+
+        assertEquals(INITIAL_LOAD, array.size());
+        assertEquals(1, listener.mDataChangedCount);
+
+        Random random = new Random(42);
+        int nextId = INITIAL_LOAD;
+        for (int burst = 0; burst < BURST_COUNT; burst++) {
+            for (int i = 0; i < BURST_SIZE; i++) {
+                nextId = mutate(query, random, nextId);
+            }
+            query.flush();
+        }
+
+        assertEquals(1 + BURST_COUNT, listener.mDataChangedCount);
+        assertMatches(query, array);
+
+        array.removeChangeEventListener(listener);
+        assertEquals(0, query.getListenerCount());
+    }
+
+    @Test
+    public void testReconnectReplaysMetadataChanges() {
+        FakeFirestoreQuery query = new FakeFirestoreQuery();
+        for (int i = 0; i < 1000; i++) {
+            query.add(id(i), fields(i, 0));
+        }
+
+        FirestoreArray<String> including =
+                new FirestoreArray<>(query.getQuery(), MetadataChanges.INCLUDE, PARSER);
+        FirestoreArray<String> excluding = new FirestoreArray<>(query.getQuery(), PARSER);
+        CountingListener includingListener = new CountingListener();
+        CountingListener excludingListener = new CountingListener();
+        including.addChangeEventListener(includingListener);
+        excluding.addChangeEventListener(excludingListener);
+        query.flush();
+
+        query.disconnect();
+        Random random = new Random(42);
+        int nextId = 1000;
+        for (int i = 0; i < 100; i++) {
+            nextId = mutate(query, random, nextId);
+        }
+        query.flush();
+        query.reconnect();
+        query.flush();
+
+        assertEquals(3, includingListener.mDataChangedCount);
+        assertEquals(2, excludingListener.mDataChangedCount);
+        assertMatches(query, including);
+        assertMatches(query, excluding);
+        assertFalse(including.getSnapshot(0).getMetadata().isFromCache());
+    }
+
+    @Test
+    public void testFailureTerminatesListeners() {
+        FakeFirestoreQuery query = new FakeFirestoreQuery();
+        query.add(id(0), fields(0, 0));
+
+        FirestoreArray<String> array = new FirestoreArray<>(query.getQuery(), PARSER);
+        CountingListener listener = new CountingListener();
+        array.addChangeEventListener(listener);
+        query.fail(new FirebaseFirestoreException(
+                "Denied", FirebaseFirestoreException.Code.PERMISSION_DENIED));
+        query.flush();
+
+        assertEquals(1, array.size());
+        assertNotNull(listener.mError);
+        assertEquals(0, query.getListenerCount());
+    }
+
+    private static int mutate(FakeFirestoreQuery query, Random random, int nextId) {
+        int roll = random.nextInt(4);
+        String id = query.getIds().get(random.nextInt(query.size()));
+        if (roll == 0) {
+            query.add(random.nextInt(query.size() + 1), id(nextId), fields(nextId, 0));
+            return nextId + 1;
+        } else if (roll == 1) {
+            query.set(id, fields(nextId, 1));
+        } else if (roll == 2) {
+            query.remove(id);
+        } else {
+            query.move(id, random.nextInt(query.size()));
+        }
+        return nextId;
+    }
+
+    private static void assertMatches(FakeFirestoreQuery query, FirestoreArray<String> array) {
+        assertEquals(query.size(), array.size());
+        for (int i = 0; i < query.size(); i++) {
+            String id = query.getIds().get(i);
+            assertEquals(id, array.getSnapshot(i).getId());
+            assertEquals(query.getDocument(id).getString("text"), array.get(i));
+        }
+    }
+
+    private static String id(int id) {
+        return String.format(Locale.US, "doc%06d", id);
+    }
+
+    private static Map<String, Object> fields(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class CountingListener implements ChangeEventListener {
+        int mDataChangedCount;
+        FirebaseFirestoreException mError;
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DocumentSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {
+            mDataChangedCount++;
+        }
+
+        @Override
+        public void onError(@NonNull FirebaseFirestoreException e) {
+            mError = e;
+        }
+    }
+}
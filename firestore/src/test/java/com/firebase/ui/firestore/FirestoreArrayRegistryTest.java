@@ -0,0 +1,223 @@
+package com.firebase.ui.firestore;
+
+import android.os.Looper;
+import android.view.ViewGroup;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.testing.FakeFirestoreQuery;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.MetadataChanges;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that {@link FirestoreArrayRegistry} shares arrays between callers of the same query and
+ * model, and forgets them once they stop being listened to.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirestoreArrayRegistryTest {
+    private static final long LINGER_MILLIS = 1000;
+
+    private final FirestoreArrayRegistry mRegistry = FirestoreArrayRegistry.getInstance();
+    private final SnapshotParser<String> mParser = DocumentSnapshot::getId;
+    private FakeFirestoreQuery mQuery;
+
+    @Before
+    public void setUp() {
+        mRegistry.setLingerTimeout(LINGER_MILLIS);
+        mQuery = new FakeFirestoreQuery();
+        mQuery.add("doc", Collections.<String, Object>singletonMap("text", "Hello"));
+    }
+
+    @After
+    public void tearDown() {
+        mRegistry.setLingerTimeout(FirestoreArrayRegistry.DEFAULT_LINGER_MILLIS);
+    }
+
+    @Test
+    public void testSameQueryAndModelAreShared() {
+        ObservableSnapshotArray<String> array = getArray();
+
+        assertSame(array, getArray());
+        assertNotSame(array, mRegistry.getArray(
+                mQuery.getQuery(), MetadataChanges.INCLUDE, mParser));
+        assertNotSame(array, mRegistry.getArray(
+                mQuery.getQuery(), MetadataChanges.EXCLUDE, DocumentSnapshot::getId));
+        assertNotSame(array, mRegistry.getArray(
+                new FakeFirestoreQuery().getQuery(), MetadataChanges.EXCLUDE, mParser));
+    }
+
+    @Test
+    public void testListenersAreReferenceCounted() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener first = array.addChangeEventListener(new NoOpListener());
+        ChangeEventListener second = array.addChangeEventListener(new NoOpListener());
+        mQuery.flush();
+        assertEquals(1, mQuery.getListenerCount());
+
+        array.removeChangeEventListener(first);
+        idleFor(LINGER_MILLIS * 2);
+        assertEquals(1, mQuery.getListenerCount());
+        assertSame(array, getArray());
+
+        // The last listener starts the linger timeout, after which the array is torn down
+        array.removeChangeEventListener(second);
+        idleFor(LINGER_MILLIS / 2);
+        assertEquals(1, mQuery.getListenerCount());
+        assertSame(array, getArray());
+
+        idleFor(LINGER_MILLIS);
+        assertEquals(0, mQuery.getListenerCount());
+        assertEquals(1, array.getLingerStats().getExpiredCount());
+        assertNotSame(array, getArray());
+    }
+
+    @Test
+    public void testWarmResumeWithinLinger() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener listener = array.addChangeEventListener(new NoOpListener());
+        mQuery.flush();
+
+        array.removeChangeEventListener(listener);
+        idleFor(LINGER_MILLIS / 2);
+        getArray().addChangeEventListener(new NoOpListener());
+
+        assertEquals(1, array.size());
+        assertEquals(1, array.getLingerStats().getWarmResumeCount());
+    }
+
+    @Test
+    public void testRestartedArrayIsSharedAgain() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener listener = array.addChangeEventListener(new NoOpListener());
+        mQuery.flush();
+        array.removeChangeEventListener(listener);
+        idleFor(LINGER_MILLIS * 2);
+
+        // A holder of the torn down array starts it again instead of asking the registry
+        listener = array.addChangeEventListener(new NoOpListener());
+        assertSame(array, getArray());
+
+        array.removeChangeEventListener(listener);
+    }
+
+    @Test
+    public void testUnusedArrayIsForgotten() {
+        ObservableSnapshotArray<String> array = getArray();
+
+        idleFor(FirestoreArrayRegistry.DEFAULT_LINGER_MILLIS);
+        assertNotSame(array, getArray());
+    }
+
+    @Test
+    public void testOptionsCannotConfigureSharedArray() {
+        ObservableSnapshotArray<String> array = getArray();
+        try {
+            new FirestoreRecyclerOptions.Builder<String>()
+                    .setSnapshotArray(array)
+                    .setLingerTimeout(LINGER_MILLIS * 10)
+                    .build();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("FirestoreArrayRegistry"));
+        }
+
+        // Options which leave the array alone are fine
+        new FirestoreRecyclerOptions.Builder<String>()
+                .setSnapshotArray(array)
+                .build();
+    }
+
+    @Test
+    public void testUpdateOptionsKeepsSharedArray() {
+        ObservableSnapshotArray<String> array = getArray();
+        ChangeEventListener other = array.addChangeEventListener(new NoOpListener());
+        NoOpAdapter adapter = new NoOpAdapter(options(array));
+        adapter.startListening();
+        mQuery.flush();
+
+        adapter.updateOptions(options(mRegistry.getArray(
+                new FakeFirestoreQuery().getQuery(), MetadataChanges.EXCLUDE, mParser)));
+
+        // Only the adapter's listener is gone, the other listener still sees every document
+        assertFalse(array.isListening(adapter));
+        assertEquals(1, array.size());
+        mQuery.add("doc2", Collections.<String, Object>singletonMap("text", "Hi"));
+        mQuery.flush();
+        assertEquals(2, array.size());
+
+        adapter.stopListening();
+        array.removeChangeEventListener(other);
+    }
+
+    @NonNull
+    private ObservableSnapshotArray<String> getArray() {
+        return mRegistry.getArray(mQuery.getQuery(), MetadataChanges.EXCLUDE, mParser);
+    }
+
+    @NonNull
+    private static FirestoreRecyclerOptions<String> options(
+            @NonNull ObservableSnapshotArray<String> array) {
+        return new FirestoreRecyclerOptions.Builder<String>()
+                .setSnapshotArray(array)
+                .build();
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private static final class NoOpListener implements ChangeEventListener {
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DocumentSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {}
+
+        @Override
+        public void onDataChanged() {}
+
+        @Override
+        public void onError(@NonNull FirebaseFirestoreException e) {}
+    }
+
+    private static final class NoOpAdapter
+            extends FirestoreRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        NoOpAdapter(@NonNull FirestoreRecyclerOptions<String> options) {
+            super(options);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull String model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.firebase.ui.firestore;
+
+import android.view.ViewGroup;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.testing.FakeFirestoreQuery;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link FirestoreRecyclerAdapter} passes batched and catch-up events to an overridden
+ * {@link FirestoreRecyclerAdapter#onChildChanged(ChangeEventType, DocumentSnapshot, int, int)} in
+ * order, while coalescing its notifications into range notifications.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirestoreRecyclerAdapterBatchTest {
+    private static final int INITIAL_LOAD = 100;
+
+    private FakeFirestoreQuery mQuery;
+    private FirestoreArray<String> mArray;
+
+    @Before
+    public void setUp() {
+        mQuery = new FakeFirestoreQuery();
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            mQuery.add(id(i), fields(i, 0));
+        }
+        mArray = new FirestoreArray<>(mQuery.getQuery(), snapshot -> snapshot.getString("text"));
+    }
+
+    @Test
+    public void testInitialLoadIsCoalesced() {
+        RecordingAdapter adapter = newAdapter();
+        mQuery.flush();
+
+        assertEquals(INITIAL_LOAD, adapter.mEvents.size());
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            assertEquals("ADDED " + id(i) + " " + i, adapter.mEvents.get(i));
+        }
+        assertEquals(Collections.singletonList("inserted 0+" + INITIAL_LOAD),
+                adapter.mObserver.mNotifications);
+    }
+
+    @Test
+    public void testCatchUpGoesThroughOnChildChanged() {
+        RecordingAdapter first = newAdapter();
+        mQuery.flush();
+
+        RecordingAdapter second = newAdapter();
+        assertEquals(first.mEvents, second.mEvents);
+        assertEquals(Collections.singletonList("inserted 0+" + INITIAL_LOAD),
+                second.mObserver.mNotifications);
+    }
+
+    @Test
+    public void testBatchIsAppliedInOrder() {
+        RecordingAdapter adapter = newAdapter();
+        mQuery.flush();
+        adapter.mEvents.clear();
+
+        // Consecutive removals at the front and additions at the end merge into two ranges
+        for (int i = 0; i < 10; i++) {
+            mQuery.remove(id(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            mQuery.add(id(INITIAL_LOAD + i), fields(INITIAL_LOAD + i, 0));
+        }
+        mQuery.flush();
+
+        assertEquals(15, adapter.mEvents.size());
+        assertEquals("REMOVED " + id(0) + " 0", adapter.mEvents.get(0));
+        assertEquals("ADDED " + id(INITIAL_LOAD) + " " + (INITIAL_LOAD - 10),
+                adapter.mEvents.get(10));
+        assertEquals(3, adapter.mObserver.mNotifications.size());
+        assertEquals("removed 0+10", adapter.mObserver.mNotifications.get(1));
+        assertEquals("inserted " + (INITIAL_LOAD - 10) + "+5",
+                adapter.mObserver.mNotifications.get(2));
+    }
+
+    @Test
+    public void testRandomBatchesKeepAdapterInSync() {
+        RecordingAdapter adapter = newAdapter();
+        mQuery.flush();
+
+        Random random = new Random(42);
+        int nextId = INITIAL_LOAD;
+        for (int batch = 0; batch < 50; batch++) {
+            for (int i = 0; i < 20; i++) {
+                nextId = mutate(random, nextId);
+            }
+            mQuery.flush();
+
+            adapter.mObserver.assertInSync();
+        }
+    }
+
+    private RecordingAdapter newAdapter() {
+        FirestoreRecyclerOptions<String> options = new FirestoreRecyclerOptions.Builder<String>()
+                .setSnapshotArray(mArray)
+                .build();
+        RecordingAdapter adapter = new RecordingAdapter(options);
+        adapter.registerAdapterDataObserver(adapter.mObserver);
+        adapter.startListening();
+        return adapter;
+    }
+
+    private int mutate(Random random, int nextId) {
+        int roll = random.nextInt(4);
+        String id = mQuery.getIds().get(random.nextInt(mQuery.size()));
+        if (roll == 0) {
+            mQuery.add(random.nextInt(mQuery.size() + 1), id(nextId), fields(nextId, 0));
+            return nextId + 1;
+        } else if (roll == 1) {
+            mQuery.set(id, fields(nextId, 1));
+        } else if (roll == 2 && mQuery.size() > 1) {
+            mQuery.remove(id);
+        } else {
+            mQuery.move(id, random.nextInt(mQuery.size()));
+        }
+        return nextId;
+    }
+
+    private static String id(int id) {
+        return String.format(Locale.US, "doc%06d", id);
+    }
+
+    private static Map<String, Object> fields(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class RecordingAdapter
+            extends FirestoreRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        final List<String> mEvents = new ArrayList<>();
+        final MirrorObserver mObserver = new MirrorObserver(this);
+
+        RecordingAdapter(@NonNull FirestoreRecyclerOptions<String> options) {
+            super(options);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull ChangeEventType type,
+                                   @NonNull DocumentSnapshot snapshot,
+                                   int newIndex,
+                                   int oldIndex) {
+            int index = type == ChangeEventType.REMOVED ? oldIndex : newIndex;
+            mEvents.add(type + " " + snapshot.getId() + " " + index);
+            super.onChildChanged(type, snapshot, newIndex, oldIndex);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull String model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Applies the adapter's notifications to a list of ids the way a RecyclerView would to its
+     * rows. Inserted rows are unknown until they are bound once the notifications are complete.
+     */
+    private static final class MirrorObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> mNotifications = new ArrayList<>();
+        final List<String> mIds = new ArrayList<>();
+        private final FirestoreRecyclerAdapter<String, ?> mAdapter;
+
+        MirrorObserver(FirestoreRecyclerAdapter<String, ?> adapter) {
+            mAdapter = adapter;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mNotifications.add("inserted " + positionStart + "+" + itemCount);
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mIds.add(i, null);
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mNotifications.add("changed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            onItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mNotifications.add("removed " + positionStart + "+" + itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                mIds.remove(positionStart);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mNotifications.add("moved " + fromPosition + "->" + toPosition);
+            mIds.add(toPosition, mIds.remove(fromPosition));
+        }
+
+        /**
+         * Checks that every row that was already bound still shows the same document, then binds
+         * the inserted ones.
+         */
+        void assertInSync() {
+            assertEquals(mAdapter.getItemCount(), mIds.size());
+            for (int i = 0; i < mIds.size(); i++) {
+                String id = mAdapter.getSnapshots().getSnapshot(i).getId();
+                if (mIds.get(i) != null) {
+                    assertEquals(id, mIds.get(i));
+                }
+                mIds.set(i, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.firebase.ui.firestore;
+
+import android.os.Looper;
+import android.view.ViewGroup;
+
+import com.firebase.ui.firestore.testing.FakeFirestoreQuery;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that {@link FirestoreRecyclerDiffAdapter} keeps the models of the displayed items
+ * across binds and diffs, and refuses arrays it cannot diff.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirestoreRecyclerDiffAdapterTest {
+    private static final int INITIAL_LOAD = 20;
+
+    private final Map<String, Integer> mParseCounts = new HashMap<>();
+    private FakeFirestoreQuery mQuery;
+    private FirestoreArray<Message> mArray;
+
+    @Before
+    public void setUp() {
+        mQuery = new FakeFirestoreQuery();
+        for (int i = 0; i < INITIAL_LOAD; i++) {
+            mQuery.add(id(i), fields(i, 0));
+        }
+        mArray = new FirestoreArray<>(mQuery.getQuery(), snapshot -> {
+            Integer count = mParseCounts.get(snapshot.getId());
+            mParseCounts.put(snapshot.getId(), count == null ? 1 : count + 1);
+            return new Message(snapshot.getString("text"));
+        });
+    }
+
+    @Test
+    public void testModelsAreParsedOnce() {
+        TestAdapter adapter = newAdapter(mArray);
+        mQuery.flush();
+        nextFrame();
+
+        assertEquals(INITIAL_LOAD, adapter.getItemCount());
+        Message first = adapter.getItem(0);
+        assertSame(first, adapter.getItem(0));
+        assertEquals(1, (int) mParseCounts.get(id(0)));
+
+        Message changed = adapter.getItem(5);
+        mQuery.set(id(5), fields(5, 1));
+        mQuery.flush();
+        nextFrame();
+
+        assertSame(first, adapter.getItem(0));
+        assertEquals(1, (int) mParseCounts.get(id(0)));
+        assertNotSame(changed, adapter.getItem(5));
+        assertEquals("Message 5 v1", adapter.getItem(5).mText);
+    }
+
+    @Test
+    public void testRejectsArrayWithoutSnapshots() {
+        mArray.setRetainSnapshots(false);
+        try {
+            newAdapter(mArray);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, mParseCounts.size());
+        }
+    }
+
+    @Test
+    public void testRejectsUpdatedOptionsWithoutSnapshots() {
+        TestAdapter adapter = newAdapter(mArray);
+        mQuery.flush();
+
+        FakeFirestoreQuery query = new FakeFirestoreQuery();
+        FirestoreArray<Message> array =
+                new FirestoreArray<>(query.getQuery(), snapshot -> new Message(""));
+        array.setRetainSnapshots(false);
+        try {
+            adapter.updateOptions(new FirestoreRecyclerOptions.Builder<Message>()
+                    .setSnapshotArray(array)
+                    .build());
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertSame(mArray, adapter.getSnapshots());
+        }
+    }
+
+    private static TestAdapter newAdapter(@NonNull FirestoreArray<Message> array) {
+        FirestoreRecyclerOptions<Message> options = new FirestoreRecyclerOptions.Builder<Message>()
+                .setSnapshotArray(array)
+                .build();
+        TestAdapter adapter = new TestAdapter(options);
+        adapter.startListening();
+        return adapter;
+    }
+
+    private static void nextFrame() {
+        // The diff is scheduled on the next frame, and its result posted back to the main thread
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static String id(int id) {
+        return String.format(Locale.US, "doc%06d", id);
+    }
+
+    private static Map<String, Object> fields(int id, int version) {
+        return Collections.<String, Object>singletonMap("text", "Message " + id + " v" + version);
+    }
+
+    private static final class Message {
+        final String mText;
+
+        Message(String text) {
+            mText = text;
+        }
+    }
+
+    private static final class TestAdapter
+            extends FirestoreRecyclerDiffAdapter<Message, RecyclerView.ViewHolder> {
+        TestAdapter(@NonNull FirestoreRecyclerOptions<Message> options) {
+            super(options, Runnable::run);
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                                                          int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder,
+                                        int position,
+                                        @NonNull Message model) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
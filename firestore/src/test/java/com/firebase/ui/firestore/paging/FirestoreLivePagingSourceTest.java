@@ -0,0 +1,84 @@
+package com.firebase.ui.firestore.paging;
+
+import com.firebase.ui.firestore.testing.FakeFirestoreQuery;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link FirestoreLivePagingSource} only keeps listening to the most recently loaded
+ * pages.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FirestoreLivePagingSourceTest {
+    private FakeFirestoreQuery mQuery;
+    private FakeFirestoreQuery[] mPages;
+
+    @Before
+    public void setUp() {
+        mQuery = new FakeFirestoreQuery();
+        mPages = new FakeFirestoreQuery[3];
+        for (int i = 0; i < mPages.length; i++) {
+            mPages[i] = new FakeFirestoreQuery();
+            mPages[i].add("doc" + i, Collections.<String, Object>singletonMap("text", "Hi"));
+        }
+    }
+
+    @Test
+    public void testOldestLoadedPagesStopListening() {
+        FirestoreLivePagingSource source = new FirestoreLivePagingSource(
+                mQuery.getQuery(), null, 2);
+        for (FakeFirestoreQuery page : mPages) {
+            load(source, page);
+        }
+
+        assertEquals(0, mPages[0].getListenerCount());
+        assertEquals(1, mPages[1].getListenerCount());
+        assertEquals(1, mPages[2].getListenerCount());
+
+        // Reloading a page replaces its listener and makes it the most recent one
+        load(source, mPages[1]);
+        load(source, mPages[0]);
+        assertEquals(1, mPages[0].getListenerCount());
+        assertEquals(1, mPages[1].getListenerCount());
+        assertEquals(0, mPages[2].getListenerCount());
+
+        source.invalidate();
+        for (FakeFirestoreQuery page : mPages) {
+            assertEquals(0, page.getListenerCount());
+        }
+    }
+
+    @Test
+    public void testLoadingPagesKeepListening() {
+        FirestoreLivePagingSource source = new FirestoreLivePagingSource(
+                mQuery.getQuery(), null, 1);
+        Task<QuerySnapshot> first = source.getPage(mPages[0].getQuery());
+        load(source, mPages[1]);
+
+        // The first page hasn't received its snapshot yet, dropping it would leave it loading
+        assertEquals(1, mPages[0].getListenerCount());
+        mPages[0].flush();
+        assertTrue(first.isSuccessful());
+
+        load(source, mPages[2]);
+        assertEquals(0, mPages[0].getListenerCount());
+        assertEquals(0, mPages[1].getListenerCount());
+        assertEquals(1, mPages[2].getListenerCount());
+    }
+
+    private static void load(FirestoreLivePagingSource source, FakeFirestoreQuery page) {
+        Task<QuerySnapshot> task = source.getPage(page.getQuery());
+        page.flush();
+        assertTrue(task.isSuccessful());
+    }
+}
@@ -0,0 +1,83 @@
+package com.firebase.ui.firestore.paging;
+
+import android.content.Context;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the ordering {@link PageKey} gives backward page queries, which Firestore only runs with
+ * an explicit {@code orderBy}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PageKeyTest {
+    private static final String APP_NAME = "page-key-test";
+
+    private CollectionReference mCollection;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FirebaseApp app;
+        try {
+            app = FirebaseApp.getInstance(APP_NAME);
+        } catch (IllegalStateException e) {
+            app = FirebaseApp.initializeApp(context, new FirebaseOptions.Builder()
+                    .setApiKey("fake")
+                    .setApplicationId("fake")
+                    .setProjectId("fake")
+                    .build(), APP_NAME);
+        }
+        mCollection = FirebaseFirestore.getInstance(app).collection("messages");
+    }
+
+    @Test
+    public void testUnorderedQueryIsOrderedById() {
+        Query ordered = PageKey.withExplicitOrder(mCollection);
+
+        assertNotSame(mCollection, ordered);
+        assertEquals(mCollection.orderBy(FieldPath.documentId()), ordered);
+    }
+
+    @Test
+    public void testAscendingOrderIsKept() {
+        Query query = mCollection.orderBy("sent");
+
+        assertEquals(query, PageKey.withExplicitOrder(query));
+    }
+
+    @Test
+    public void testDescendingOrderIsNotChanged() {
+        // Ordering by ID ascending would flip the order of documents sent at the same time
+        Query query = mCollection.orderBy("sent", Query.Direction.DESCENDING);
+
+        assertSame(query, PageKey.withExplicitOrder(query));
+    }
+
+    @Test
+    public void testInequalityFilterIsNotChanged() {
+        Query query = mCollection.whereGreaterThan("sent", 0);
+
+        assertSame(query, PageKey.withExplicitOrder(query));
+    }
+
+    @Test
+    public void testForwardPageIsNotOrdered() {
+        assertEquals(mCollection.limit(20), new PageKey(null, null).getPageQuery(mCollection, 20));
+    }
+}
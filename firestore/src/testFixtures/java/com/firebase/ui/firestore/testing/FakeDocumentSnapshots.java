@@ -0,0 +1,140 @@
+package com.firebase.ui.firestore.testing;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Creates {@link DocumentSnapshot}s and {@link DocumentChange}s backed by plain Java maps instead
+ * of a database.
+ * <p>
+ * Fields are read with {@link DocumentSnapshot#getData()}, {@link DocumentSnapshot#get(String)}
+ * (dotted paths reach into nested maps) and the typed getters. Since there is no class mapper,
+ * {@link DocumentSnapshot#toObject(Class)} is not supported: parse models with a custom {@code
+ * SnapshotParser} instead.
+ */
+public final class FakeDocumentSnapshots {
+    private FakeDocumentSnapshots() {
+        throw new AssertionError("No instance for you!");
+    }
+
+    /**
+     * @return a document read from the server with the given id and fields.
+     */
+    @NonNull
+    public static QueryDocumentSnapshot create(@NonNull String id,
+                                               @NonNull Map<String, Object> fields) {
+        return create(id, fields, false);
+    }
+
+    /**
+     * @param fromCache the value of {@link SnapshotMetadata#isFromCache()}.
+     * @return a document with the given id and fields.
+     */
+    @NonNull
+    public static QueryDocumentSnapshot create(@NonNull final String id,
+                                               @NonNull Map<String, Object> fields,
+                                               boolean fromCache) {
+        final Map<String, Object> data = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+        final SnapshotMetadata metadata = createMetadata(fromCache);
+        return mock(QueryDocumentSnapshot.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getId":
+                    return id;
+                case "getData":
+                    return data;
+                case "getMetadata":
+                    return metadata;
+                case "exists":
+                    return true;
+                case "contains":
+                    return getField(data, String.valueOf(invocation.getArguments()[0])) != null;
+                case "get":
+                case "getString":
+                case "getBoolean":
+                case "getDate":
+                case "getTimestamp":
+                case "getGeoPoint":
+                case "getBlob":
+                case "getDocumentReference":
+                    return getField(data, String.valueOf(invocation.getArguments()[0]));
+                case "getLong":
+                    Number longValue =
+                            (Number) getField(data, String.valueOf(invocation.getArguments()[0]));
+                    return longValue == null ? null : longValue.longValue();
+                case "getDouble":
+                    Number doubleValue =
+                            (Number) getField(data, String.valueOf(invocation.getArguments()[0]));
+                    return doubleValue == null ? null : doubleValue.doubleValue();
+                case "toObject":
+                    throw new UnsupportedOperationException("Fake documents cannot be mapped to "
+                            + "objects, use a custom SnapshotParser instead");
+                case "toString":
+                    return "FakeDocumentSnapshot{id=" + id + ", data=" + data + "}";
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    /**
+     * @return a change to {@code document}, with indices following the conventions of {@link
+     * DocumentChange#getOldIndex()} and {@link DocumentChange#getNewIndex()}.
+     */
+    @NonNull
+    public static DocumentChange createChange(@NonNull final DocumentChange.Type type,
+                                              @NonNull final QueryDocumentSnapshot document,
+                                              final int oldIndex,
+                                              final int newIndex) {
+        return mock(DocumentChange.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getType":
+                    return type;
+                case "getDocument":
+                    return document;
+                case "getOldIndex":
+                    return oldIndex;
+                case "getNewIndex":
+                    return newIndex;
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    @NonNull
+    static SnapshotMetadata createMetadata(final boolean fromCache) {
+        return mock(SnapshotMetadata.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "isFromCache":
+                    return fromCache;
+                case "hasPendingWrites":
+                    return false;
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    @Nullable
+    private static Object getField(@NonNull Map<String, Object> data, @NonNull String path) {
+        Object current = data;
+        for (String segment : path.split("\\.")) {
+            if (!(current instanceof Map)) { return null; }
+            current = ((Map<?, ?>) current).get(segment);
+        }
+        return current;
+    }
+}
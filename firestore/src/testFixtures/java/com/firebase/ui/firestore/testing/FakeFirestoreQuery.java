@@ -0,0 +1,326 @@
+package com.firebase.ui.firestore.testing;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * An in-memory stand-in for the results of a Cloud Firestore query, so that {@code
+ * FirestoreArray} can be tested under load without a backend:
+ *
+ * <pre>
+ * FakeFirestoreQuery messages = new FakeFirestoreQuery();
+ * FirestoreArray&lt;Message&gt; array = new FirestoreArray&lt;&gt;(messages.getQuery(), parser);
+ * array.addChangeEventListener(listener);
+ *
+ * for (int i = 0; i &lt; 100000; i++) {
+ *     messages.add(id(i), fields(i));
+ * }
+ * messages.flush();
+ * </pre>
+ * <p>
+ * Documents are kept in the order they were added in, which stands in for the order of the query,
+ * and only change position through {@link #move(String, int)}.
+ * <p>
+ * Nothing is delivered until {@link #flush()} is called: like the SDK, every change made since the
+ * previous flush reaches a listener as a single {@link QuerySnapshot}, so a test decides exactly
+ * which changes arrive together. A newly added listener first receives every existing document.
+ * Listeners are always called on the thread calling {@link #flush()}, whatever executor they were
+ * registered with.
+ * <p>
+ * Not thread safe, use from the main thread only.
+ */
+public final class FakeFirestoreQuery {
+    private final Query mQuery;
+
+    private final List<String> mIds = new ArrayList<>();
+    private final List<QueryDocumentSnapshot> mDocuments = new ArrayList<>();
+    private boolean mFromCache;
+
+    private final List<Registration> mRegistrations = new ArrayList<>();
+    /** Registrations terminated by an error which hasn't been delivered yet */
+    private final List<Registration> mFailedRegistrations = new ArrayList<>();
+
+    public FakeFirestoreQuery() {
+        mQuery = mock(Query.class, invocation -> {
+            if ("addSnapshotListener".equals(invocation.getMethod().getName())) {
+                return addSnapshotListener(invocation.getArguments());
+            } else if ("toString".equals(invocation.getMethod().getName())) {
+                return "FakeFirestoreQuery";
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+
+    /**
+     * @return a query whose snapshot listeners receive the documents of this fake.
+     */
+    @NonNull
+    public Query getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * @return the ids of the documents, in order.
+     */
+    @NonNull
+    public List<String> getIds() {
+        return Collections.unmodifiableList(mIds);
+    }
+
+    @NonNull
+    public QueryDocumentSnapshot getDocument(@NonNull String id) {
+        return mDocuments.get(indexOf(id));
+    }
+
+    public int size() {
+        return mIds.size();
+    }
+
+    public int getListenerCount() {
+        return mRegistrations.size();
+    }
+
+    public boolean hasPendingEvents() {
+        if (!mFailedRegistrations.isEmpty()) { return true; }
+        for (Registration registration : mRegistrations) {
+            if (registration.mNeedsEvent) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Add a document after the last one.
+     */
+    public void add(@NonNull String id, @NonNull Map<String, Object> fields) {
+        add(mIds.size(), id, fields);
+    }
+
+    /**
+     * Add a document at the given position.
+     */
+    public void add(int index, @NonNull String id, @NonNull Map<String, Object> fields) {
+        if (mIds.contains(id)) {
+            throw new IllegalArgumentException("Document already exists: " + id);
+        }
+
+        QueryDocumentSnapshot document = FakeDocumentSnapshots.create(id, fields, mFromCache);
+        mIds.add(index, id);
+        mDocuments.add(index, document);
+        onChange(DocumentChange.Type.ADDED, document, -1, index, false);
+    }
+
+    /**
+     * Replace the fields of a document, or add it after the last one if it doesn't exist yet.
+     */
+    public void set(@NonNull String id, @NonNull Map<String, Object> fields) {
+        int index = mIds.indexOf(id);
+        if (index == -1) {
+            add(id, fields);
+            return;
+        }
+
+        QueryDocumentSnapshot document = FakeDocumentSnapshots.create(id, fields, mFromCache);
+        mDocuments.set(index, document);
+        onChange(DocumentChange.Type.MODIFIED, document, index, index, false);
+    }
+
+    public void remove(@NonNull String id) {
+        int index = indexOf(id);
+        mIds.remove(index);
+        QueryDocumentSnapshot document = mDocuments.remove(index);
+        onChange(DocumentChange.Type.REMOVED, document, index, -1, false);
+    }
+
+    /**
+     * Move a document to a new position, as happens when a field it is ordered by changes.
+     */
+    public void move(@NonNull String id, int newIndex) {
+        int index = indexOf(id);
+        mIds.add(newIndex, mIds.remove(index));
+        QueryDocumentSnapshot document = mDocuments.remove(index);
+        mDocuments.add(newIndex, document);
+        onChange(DocumentChange.Type.MODIFIED, document, index, newIndex, false);
+    }
+
+    /**
+     * Lose the connection to the backend: every document is now served from the cache. Listeners
+     * including metadata changes are told so, as a modification of every document.
+     */
+    public void disconnect() {
+        setFromCache(true);
+    }
+
+    /**
+     * Restore the connection to the backend, replaying every document to listeners including
+     * metadata changes as they are confirmed by the server.
+     */
+    public void reconnect() {
+        setFromCache(false);
+    }
+
+    /**
+     * Terminate every listener with {@code e}, as happens when access to the query is revoked.
+     * Like the SDK, terminated listeners are removed.
+     */
+    public void fail(@NonNull FirebaseFirestoreException e) {
+        for (Registration registration : mRegistrations) {
+            registration.mError = e;
+        }
+        mFailedRegistrations.addAll(mRegistrations);
+        mRegistrations.clear();
+    }
+
+    /**
+     * Deliver a snapshot with the pending changes to every listener, on the calling thread.
+     */
+    public void flush() {
+        while (hasPendingEvents()) {
+            for (Registration registration : new ArrayList<>(mRegistrations)) {
+                registration.deliver();
+            }
+
+            List<Registration> failed = new ArrayList<>(mFailedRegistrations);
+            mFailedRegistrations.clear();
+            for (Registration registration : failed) {
+                registration.deliver();
+                if (!registration.mRemoved) {
+                    registration.mListener.onEvent(null, registration.mError);
+                }
+            }
+        }
+    }
+
+    private void setFromCache(boolean fromCache) {
+        if (mFromCache == fromCache) { return; }
+        mFromCache = fromCache;
+
+        for (int i = 0; i < mDocuments.size(); i++) {
+            QueryDocumentSnapshot document = mDocuments.get(i);
+            QueryDocumentSnapshot updated =
+                    FakeDocumentSnapshots.create(mIds.get(i), document.getData(), fromCache);
+            mDocuments.set(i, updated);
+            onChange(DocumentChange.Type.MODIFIED, updated, i, i, true);
+        }
+        for (Registration registration : mRegistrations) {
+            if (registration.mChanges == MetadataChanges.INCLUDE) {
+                registration.mNeedsEvent = true;
+            }
+        }
+    }
+
+    private int indexOf(@NonNull String id) {
+        int index = mIds.indexOf(id);
+        if (index == -1) {
+            throw new IllegalArgumentException("No such document: " + id);
+        }
+        return index;
+    }
+
+    private void onChange(@NonNull DocumentChange.Type type,
+                          @NonNull QueryDocumentSnapshot document,
+                          int oldIndex,
+                          int newIndex,
+                          boolean metadataOnly) {
+        DocumentChange change =
+                FakeDocumentSnapshots.createChange(type, document, oldIndex, newIndex);
+        for (Registration registration : mRegistrations) {
+            if (!metadataOnly || registration.mChanges == MetadataChanges.INCLUDE) {
+                registration.mPendingChanges.add(change);
+                registration.mNeedsEvent = true;
+            }
+        }
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private ListenerRegistration addSnapshotListener(@NonNull Object[] args) {
+        MetadataChanges changes = MetadataChanges.EXCLUDE;
+        for (Object arg : args) {
+            if (arg instanceof MetadataChanges) { changes = (MetadataChanges) arg; }
+        }
+
+        final Registration registration = new Registration(
+                (EventListener<QuerySnapshot>) args[args.length - 1], changes);
+        for (int i = 0; i < mDocuments.size(); i++) {
+            registration.mPendingChanges.add(FakeDocumentSnapshots.createChange(
+                    DocumentChange.Type.ADDED, mDocuments.get(i), -1, i));
+        }
+        mRegistrations.add(registration);
+
+        return () -> {
+            registration.mRemoved = true;
+            mRegistrations.remove(registration);
+            mFailedRegistrations.remove(registration);
+        };
+    }
+
+    @NonNull
+    private QuerySnapshot createSnapshot(@NonNull final List<DocumentChange> changes) {
+        final List<DocumentSnapshot> documents = new ArrayList<DocumentSnapshot>(mDocuments);
+        final SnapshotMetadata metadata = FakeDocumentSnapshots.createMetadata(mFromCache);
+        return mock(QuerySnapshot.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getDocumentChanges":
+                    return changes;
+                case "getDocuments":
+                    return documents;
+                case "iterator":
+                    return documents.iterator();
+                case "size":
+                    return documents.size();
+                case "isEmpty":
+                    return documents.isEmpty();
+                case "getMetadata":
+                    return metadata;
+                case "getQuery":
+                    return mQuery;
+                default:
+                    return Mockito.RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+
+    private final class Registration {
+        final EventListener<QuerySnapshot> mListener;
+        final MetadataChanges mChanges;
+
+        List<DocumentChange> mPendingChanges = new ArrayList<>();
+        /** True until the first snapshot, and whenever there are changes to deliver */
+        boolean mNeedsEvent = true;
+        boolean mRemoved;
+        FirebaseFirestoreException mError;
+
+        Registration(EventListener<QuerySnapshot> listener, MetadataChanges changes) {
+            mListener = listener;
+            mChanges = changes;
+        }
+
+        void deliver() {
+            if (mRemoved || !mNeedsEvent) { return; }
+
+            List<DocumentChange> changes = mPendingChanges;
+            mPendingChanges = new ArrayList<>();
+            mNeedsEvent = false;
+            mListener.onEvent(createSnapshot(changes), null);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+plugins {
+  id("java-library")
+  id("com.vanniktech.maven.publish")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(Config.Libs.Test.junit)
+}
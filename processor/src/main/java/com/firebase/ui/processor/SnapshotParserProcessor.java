@@ -0,0 +1,551 @@
+package com.firebase.ui.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates snapshot parsers for model classes annotated with {@code GenerateSnapshotParser}.
+ * <p>
+ * Every model gets a {@code <Model>_ModelParser} which sets its properties from the map of values
+ * held by a snapshot. For each FirebaseUI module on the compile classpath, a public parser
+ * delegating to it is generated too: {@code <Model>_DatabaseSnapshotParser} and {@code
+ * <Model>_FirestoreSnapshotParser}. Those are the names the options builders look up at runtime.
+ * <p>
+ * Since those parsers are only found by name, a {@code META-INF/proguard/<Model>.pro} resource is
+ * generated along with them, keeping the model's name and the parsers' constructors.
+ */
+public class SnapshotParserProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "com.firebase.ui.common.GenerateSnapshotParser";
+
+    static final String MODEL_SUFFIX = "_ModelParser";
+    static final String DATABASE_SUFFIX = "_DatabaseSnapshotParser";
+    static final String FIRESTORE_SUFFIX = "_FirestoreSnapshotParser";
+    static final String PROGUARD_DIRECTORY = "META-INF/proguard/";
+
+    private static final String DATABASE_PARSER = "com.firebase.ui.database.SnapshotParser";
+    private static final String FIRESTORE_PARSER = "com.firebase.ui.firestore.SnapshotParser";
+    private static final String TIMESTAMP = "com.google.firebase.Timestamp";
+
+    private static final String DATABASE_PACKAGE = "com.google.firebase.database.";
+    private static final String FIRESTORE_PACKAGE = "com.google.firebase.firestore.";
+    private static final String EXCLUDE = "Exclude";
+    private static final String PROPERTY_NAME = "PropertyName";
+    private static final String DOCUMENT_ID = FIRESTORE_PACKAGE + "DocumentId";
+
+    private Elements mElements;
+    private Types mTypes;
+    private Messager mMessager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mMessager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = mElements.getTypeElement(ANNOTATION);
+        if (annotation == null) { return false; }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            try {
+                generate(checkModel(element));
+            } catch (ProcessingException e) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.mElement);
+            } catch (IOException e) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR,
+                        "Could not write the parsers for " + element + ": " + e, element);
+            }
+        }
+        return true;
+    }
+
+    private TypeElement checkModel(Element element) throws ProcessingException {
+        if (element.getKind() != ElementKind.CLASS) {
+            throw new ProcessingException(element, "Only classes can have snapshot parsers");
+        }
+
+        TypeElement model = (TypeElement) element;
+        if (model.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new ProcessingException(model, "Models cannot be abstract");
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            throw new ProcessingException(model, "Models cannot be generic");
+        }
+        for (Element type = model;
+             type.getKind().isClass() || type.getKind().isInterface();
+             type = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new ProcessingException(model, "Models cannot be private");
+            }
+            if (((TypeElement) type).getNestingKind() == NestingKind.MEMBER
+                    && !type.getModifiers().contains(Modifier.STATIC)) {
+                throw new ProcessingException(model, "Nested models must be static");
+            }
+        }
+
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return model;
+            }
+        }
+        throw new ProcessingException(model, "Models need a non-private no-argument constructor");
+    }
+
+    private void generate(TypeElement model) throws ProcessingException, IOException {
+        String packageName = getPackage(model).getQualifiedName().toString();
+        Map<String, String> properties = new LinkedHashMap<>();
+        String documentId = collectProperties(model, packageName, properties);
+
+        String modelName = model.getQualifiedName().toString();
+        String modelParser = getParserName(model, MODEL_SUFFIX);
+
+        try (Writer writer = createSourceFile(model, modelParser)) {
+            writeHeader(writer, packageName);
+            writer.write("public final class " + getSimpleName(modelParser) + " {\n"
+                    + "    private " + getSimpleName(modelParser) + "() {}\n"
+                    + "\n"
+                    + "    @java.lang.SuppressWarnings(\"unchecked\")\n"
+                    + "    public static " + modelName + " fromMap(\n"
+                    + "            java.util.Map<java.lang.String, java.lang.Object> data,\n"
+                    + "            java.lang.String documentId) {\n"
+                    + "        " + modelName + " model = new " + modelName + "();\n"
+                    + "        java.lang.Object value;\n");
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                writer.write("\n"
+                        + "        value = data.get(" + quote(property.getKey()) + ");\n"
+                        + "        if (value != null) {\n"
+                        + "            " + property.getValue() + ";\n"
+                        + "        }\n");
+            }
+            if (documentId != null) {
+                writer.write("\n"
+                        + "        if (documentId != null) {\n"
+                        + "            " + documentId + ";\n"
+                        + "        }\n");
+            }
+            writer.write("\n"
+                    + "        return model;\n"
+                    + "    }\n"
+                    + "}\n");
+        }
+
+        List<String> lookedUpParsers = new ArrayList<>();
+        if (mElements.getTypeElement(DATABASE_PARSER) != null) {
+            String parser = getParserName(model, DATABASE_SUFFIX);
+            lookedUpParsers.add(parser);
+            try (Writer writer = createSourceFile(model, parser)) {
+                writeHeader(writer, packageName);
+                writer.write("public final class " + getSimpleName(parser) + "\n"
+                        + "        implements " + DATABASE_PARSER + "<" + modelName + "> {\n"
+                        + "    @java.lang.Override\n"
+                        + "    @java.lang.SuppressWarnings(\"unchecked\")\n"
+                        + "    public " + modelName + " parseSnapshot(\n"
+                        + "            com.google.firebase.database.DataSnapshot snapshot) {\n"
+                        + "        java.lang.Object value = snapshot.getValue();\n"
+                        + "        if (value == null) {\n"
+                        + "            return null;\n"
+                        + "        }\n"
+                        + "        if (!(value instanceof java.util.Map)) {\n"
+                        + "            throw new java.lang.IllegalStateException(\"Expected the "
+                        + "properties of " + model.getSimpleName() + " at \"\n"
+                        + "                    + snapshot.getKey() + \", got \" + value);\n"
+                        + "        }\n"
+                        + "        return " + modelParser + ".fromMap(\n"
+                        + "                (java.util.Map<java.lang.String, java.lang.Object>) "
+                        + "value, null);\n"
+                        + "    }\n"
+                        + "}\n");
+            }
+        }
+
+        if (mElements.getTypeElement(FIRESTORE_PARSER) != null) {
+            String parser = getParserName(model, FIRESTORE_SUFFIX);
+            lookedUpParsers.add(parser);
+            try (Writer writer = createSourceFile(model, parser)) {
+                writeHeader(writer, packageName);
+                writer.write("public final class " + getSimpleName(parser) + "\n"
+                        + "        implements " + FIRESTORE_PARSER + "<" + modelName + "> {\n"
+                        + "    @java.lang.Override\n"
+                        + "    public " + modelName + " parseSnapshot(\n"
+                        + "            com.google.firebase.firestore.DocumentSnapshot snapshot) {\n"
+                        + "        java.util.Map<java.lang.String, java.lang.Object> data = "
+                        + "snapshot.getData();\n"
+                        + "        if (data == null) {\n"
+                        + "            return null;\n"
+                        + "        }\n"
+                        + "        return " + modelParser + ".fromMap(data, snapshot.getId());\n"
+                        + "    }\n"
+                        + "}\n");
+            }
+        }
+
+        if (!lookedUpParsers.isEmpty()) {
+            writeKeepRules(model, lookedUpParsers);
+        }
+    }
+
+    /**
+     * Writes the shrinker rules for the parsers looked up by name. They are explicit rather than
+     * matched by a wildcard in the libraries' consumer rules, which cannot turn the name of a
+     * parser for a nested model back into the model's binary name.
+     */
+    private void writeKeepRules(TypeElement model, List<String> parsers) throws IOException {
+        String binaryName = mElements.getBinaryName(model).toString();
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT,
+                        "",
+                        PROGUARD_DIRECTORY + binaryName + ".pro",
+                        model)
+                .openWriter()) {
+            writer.write("# Generated by the FirebaseUI snapshot parser processor, do not edit.\n"
+                    + "-keepnames class " + binaryName + "\n");
+            for (String parser : parsers) {
+                writer.write("-keep class " + parser + " { <init>(); }\n");
+            }
+        }
+    }
+
+    /**
+     * Collects the statements setting each property of the model from {@code value}, keyed by
+     * property name. Setters win over fields, and subclasses over their superclasses.
+     *
+     * @return the statement setting the document id from {@code documentId}, if any.
+     */
+    private String collectProperties(TypeElement model,
+                                     String packageName,
+                                     Map<String, String> properties)
+            throws ProcessingException {
+        String documentId = null;
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement type = model; type != null; type = getSuperclass(type)) {
+            hierarchy.add(type);
+        }
+
+        for (TypeElement type : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                String name = method.getSimpleName().toString();
+                if (!name.startsWith("set") || name.length() == 3
+                        || method.getParameters().size() != 1
+                        || !isAccessible(method, packageName)
+                        || hasAnnotation(method, EXCLUDE)) {
+                    continue;
+                }
+
+                String statement = "model." + name + "(%s)";
+                if (hasAnnotation(method, DOCUMENT_ID)) {
+                    documentId = getDocumentIdStatement(
+                            method, method.getParameters().get(0).asType(), statement, documentId);
+                    continue;
+                }
+
+                String property = getPropertyName(method, decapitalize(name.substring(3)));
+                if (!properties.containsKey(property)) {
+                    TypeMirror propertyType = method.getParameters().get(0).asType();
+                    properties.put(property,
+                            String.format(statement, convert(propertyType, method)));
+                }
+            }
+        }
+
+        for (TypeElement type : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.FINAL)
+                        || modifiers.contains(Modifier.TRANSIENT)
+                        || !isAccessible(field, packageName)
+                        || hasAnnotation(field, EXCLUDE)) {
+                    continue;
+                }
+
+                String statement = "model." + field.getSimpleName() + " = %s";
+                if (hasAnnotation(field, DOCUMENT_ID)) {
+                    documentId = getDocumentIdStatement(
+                            field, field.asType(), statement, documentId);
+                    continue;
+                }
+
+                String property = getPropertyName(field, field.getSimpleName().toString());
+                if (!properties.containsKey(property)) {
+                    properties.put(property,
+                            String.format(statement, convert(field.asType(), field)));
+                }
+            }
+        }
+
+        return documentId;
+    }
+
+    private String getDocumentIdStatement(Element element,
+                                          TypeMirror type,
+                                          String statement,
+                                          String existing) throws ProcessingException {
+        if (!isType(type, "java.lang.String")) {
+            throw new ProcessingException(element, "Generated parsers only support a String "
+                    + DOCUMENT_ID);
+        }
+        return existing != null ? existing : String.format(statement, "documentId");
+    }
+
+    /**
+     * @return an expression converting {@code value}, as found in a snapshot's map, to {@code
+     * type}.
+     */
+    private String convert(TypeMirror type, Element element) throws ProcessingException {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "(java.lang.Boolean) value";
+            case INT:
+                return "((java.lang.Number) value).intValue()";
+            case LONG:
+                return "((java.lang.Number) value).longValue()";
+            case DOUBLE:
+                return "((java.lang.Number) value).doubleValue()";
+            case FLOAT:
+                return "((java.lang.Number) value).floatValue()";
+            case DECLARED:
+                break;
+            default:
+                throw unsupported(type, element);
+        }
+
+        TypeElement typeElement = (TypeElement) mTypes.asElement(type);
+        String name = typeElement.getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.Object":
+                return "value";
+            case "java.lang.Boolean":
+            case "java.lang.String":
+            case "java.lang.Number":
+                return "(" + name + ") value";
+            case "java.lang.Integer":
+                return "((java.lang.Number) value).intValue()";
+            case "java.lang.Long":
+                return "((java.lang.Number) value).longValue()";
+            case "java.lang.Double":
+                return "((java.lang.Number) value).doubleValue()";
+            case "java.lang.Float":
+                return "((java.lang.Number) value).floatValue()";
+            case "java.util.Date":
+                if (mElements.getTypeElement(TIMESTAMP) == null) {
+                    return "(java.util.Date) value";
+                }
+                return "(value instanceof " + TIMESTAMP + " ? ((" + TIMESTAMP + ") value).toDate()"
+                        + " : (java.util.Date) value)";
+            case "java.util.List":
+            case "java.util.Map":
+                if (!isPlainValue(type)) { throw unsupported(type, element); }
+                return "(" + mTypes.erasure(type) + ") value";
+            default:
+                break;
+        }
+
+        if (typeElement.getKind() == ElementKind.ENUM) {
+            return name + ".valueOf((java.lang.String) value)";
+        } else if (hasAnnotation(typeElement, ANNOTATION)) {
+            return getParserName(typeElement, MODEL_SUFFIX) + ".fromMap("
+                    + "(java.util.Map<java.lang.String, java.lang.Object>) value, null)";
+        } else if (name.startsWith("com.google.firebase.")) {
+            return "(" + name + ") value";
+        }
+        throw unsupported(type, element);
+    }
+
+    /**
+     * @return true if the values of {@code type} can be used as they are found in a snapshot: no
+     * numbers, which may have a different type, and no models, which are still maps.
+     */
+    private boolean isPlainValue(TypeMirror type) {
+        if (type.getKind() == TypeKind.WILDCARD) {
+            WildcardType wildcard = (WildcardType) type;
+            return wildcard.getExtendsBound() == null && wildcard.getSuperBound() == null;
+        }
+        if (isType(type, "java.lang.Object")
+                || isType(type, "java.lang.String")
+                || isType(type, "java.lang.Boolean")) {
+            return true;
+        }
+
+        boolean isList = isType(type, "java.util.List");
+        if (!isList && !isType(type, "java.util.Map")) { return false; }
+
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (!isList && !arguments.isEmpty() && !isType(arguments.get(0), "java.lang.String")) {
+            return false;
+        }
+        for (int i = isList ? 0 : 1; i < arguments.size(); i++) {
+            if (!isPlainValue(arguments.get(i))) { return false; }
+        }
+        return true;
+    }
+
+    private ProcessingException unsupported(TypeMirror type, Element element) {
+        return new ProcessingException(element, "Generated parsers don't support properties of "
+                + "type " + type + ", exclude it or use a custom SnapshotParser");
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) mTypes.asElement(type)).getQualifiedName().contentEquals(name);
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED || isType(superclass, "java.lang.Object")) {
+            return null;
+        }
+        return (TypeElement) mTypes.asElement(superclass);
+    }
+
+    /**
+     * @return true if the generated parser, which lives in {@code packageName}, can use {@code
+     * member}.
+     */
+    private boolean isAccessible(Element member, String packageName) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC)
+                || getPackage(member).getQualifiedName().contentEquals(packageName);
+    }
+
+    private String getPropertyName(Element member, String defaultName) {
+        for (AnnotationMirror annotation : member.getAnnotationMirrors()) {
+            if (isAnnotation(annotation, PROPERTY_NAME)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : annotation.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return defaultName;
+    }
+
+    /**
+     * @param name the qualified name of the annotation, or the simple name of an annotation found
+     *             in both the Realtime Database and Cloud Firestore SDKs.
+     */
+    private boolean hasAnnotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (isAnnotation(annotation, name)) { return true; }
+        }
+        return false;
+    }
+
+    private boolean isAnnotation(AnnotationMirror annotation, String name) {
+        String type = ((TypeElement) annotation.getAnnotationType().asElement())
+                .getQualifiedName().toString();
+        return type.equals(name)
+                || type.equals(DATABASE_PACKAGE + name)
+                || type.equals(FIRESTORE_PACKAGE + name);
+    }
+
+    private PackageElement getPackage(Element element) {
+        return mElements.getPackageOf(element);
+    }
+
+    /**
+     * @return the qualified name of the parser generated for {@code model}, which must match the
+     * name FirebaseUI looks up at runtime: nested class names are joined by underscores.
+     */
+    private String getParserName(TypeElement model, String suffix) {
+        String packageName = getPackage(model).getQualifiedName().toString();
+        String binaryName = mElements.getBinaryName(model).toString();
+        String simpleName = packageName.isEmpty() ?
+                binaryName : binaryName.substring(packageName.length() + 1);
+        return (packageName.isEmpty() ? "" : packageName + ".")
+                + simpleName.replace('$', '_') + suffix;
+    }
+
+    private Writer createSourceFile(TypeElement model, String name) throws IOException {
+        return processingEnv.getFiler().createSourceFile(name, model).openWriter();
+    }
+
+    private static void writeHeader(Writer writer, String packageName) throws IOException {
+        if (!packageName.isEmpty()) { writer.write("package " + packageName + ";\n\n"); }
+        writer.write("// Generated by the FirebaseUI snapshot parser processor, do not edit.\n");
+    }
+
+    private static String getSimpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Lower cases the leading capitals of a setter's property, like the SDKs' class mappers do.
+     */
+    private static String decapitalize(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length && Character.isUpperCase(chars[i]); i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') { quoted.append('\\'); }
+            quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static final class ProcessingException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final Element mElement;
+
+        ProcessingException(Element element, String message) {
+            super(message);
+            mElement = element;
+        }
+    }
+}
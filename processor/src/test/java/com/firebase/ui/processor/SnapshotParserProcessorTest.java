@@ -0,0 +1,261 @@
+package com.firebase.ui.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotParserProcessorTest {
+    private static final String ANNOTATION_SOURCE = "package com.firebase.ui.common;\n"
+            + "public @interface GenerateSnapshotParser {}\n";
+    private static final String PROPERTY_NAME_SOURCE = "package com.google.firebase.database;\n"
+            + "public @interface PropertyName { String value(); }\n";
+    private static final String EXCLUDE_SOURCE = "package com.google.firebase.database;\n"
+            + "public @interface Exclude {}\n";
+    private static final String DATABASE_PARSER_SOURCE = "package com.firebase.ui.database;\n"
+            + "public interface SnapshotParser<T> {\n"
+            + "    T parseSnapshot(com.google.firebase.database.DataSnapshot snapshot);\n"
+            + "}\n";
+    private static final String DATA_SNAPSHOT_SOURCE = "package com.google.firebase.database;\n"
+            + "public class DataSnapshot {\n"
+            + "    public Object getValue() { return null; }\n"
+            + "    public String getKey() { return null; }\n"
+            + "}\n";
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mSources;
+    private File mClasses;
+    private DiagnosticCollector<JavaFileObject> mDiagnostics;
+
+    @Before
+    public void setUp() throws IOException {
+        mSources = mFolder.newFolder("sources");
+        mClasses = mFolder.newFolder("classes");
+        mDiagnostics = new DiagnosticCollector<>();
+
+        write("com/firebase/ui/common/GenerateSnapshotParser.java", ANNOTATION_SOURCE);
+        write("com/google/firebase/database/PropertyName.java", PROPERTY_NAME_SOURCE);
+        write("com/google/firebase/database/Exclude.java", EXCLUDE_SOURCE);
+    }
+
+    @Test
+    public void testFromMap() throws Exception {
+        write("com/example/Chat.java", "package com.example;\n"
+                + "import com.firebase.ui.common.GenerateSnapshotParser;\n"
+                + "import com.google.firebase.database.Exclude;\n"
+                + "import com.google.firebase.database.PropertyName;\n"
+                + "@GenerateSnapshotParser\n"
+                + "public class Chat {\n"
+                + "    public String name;\n"
+                + "    int count;\n"
+                + "    public boolean read = true;\n"
+                + "    public java.util.Date sent;\n"
+                + "    public java.util.List<String> tags;\n"
+                + "    public Kind kind;\n"
+                + "    public Author author;\n"
+                + "    @Exclude public String excluded;\n"
+                + "    public transient String local;\n"
+                + "    private String mText;\n"
+                + "    @PropertyName(\"body\") public void setText(String text) {\n"
+                + "        mText = \"set \" + text;\n"
+                + "    }\n"
+                + "    public String getText() { return mText; }\n"
+                + "    public enum Kind { TEXT, IMAGE }\n"
+                + "    @GenerateSnapshotParser\n"
+                + "    public static class Author { public String uid; public Double score; }\n"
+                + "}\n");
+        assertTrue(mDiagnostics.getDiagnostics().toString(), compile());
+
+        Map<String, Object> author = new HashMap<>();
+        author.put("uid", "u1");
+        author.put("score", 3L);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "Alice");
+        data.put("count", 42L);
+        data.put("sent", new Date(1000));
+        data.put("tags", Arrays.asList("a", "b"));
+        data.put("kind", "IMAGE");
+        data.put("author", author);
+        data.put("excluded", "x");
+        data.put("local", "x");
+        data.put("body", "hello");
+
+        ClassLoader loader = new URLClassLoader(new URL[]{mClasses.toURI().toURL()});
+        Class<?> chatClass = loader.loadClass("com.example.Chat");
+        Object chat = parse(loader, "com.example.Chat_ModelParser", data);
+
+        assertEquals("Alice", get(chatClass, chat, "name"));
+        assertEquals(42, get(chatClass, chat, "count"));
+        assertEquals(true, get(chatClass, chat, "read"));
+        assertEquals(new Date(1000), get(chatClass, chat, "sent"));
+        assertEquals(Arrays.asList("a", "b"), get(chatClass, chat, "tags"));
+        assertEquals("IMAGE", get(chatClass, chat, "kind").toString());
+        assertNull(get(chatClass, chat, "excluded"));
+        assertNull(get(chatClass, chat, "local"));
+        assertEquals("set hello", chatClass.getMethod("getText").invoke(chat));
+
+        Object parsedAuthor = get(chatClass, chat, "author");
+        assertEquals("u1", get(parsedAuthor.getClass(), parsedAuthor, "uid"));
+        assertEquals(3.0, get(parsedAuthor.getClass(), parsedAuthor, "score"));
+
+        Object empty = parse(loader, "com.example.Chat_ModelParser", Collections.emptyMap());
+        assertEquals(true, get(chatClass, empty, "read"));
+    }
+
+    @Test
+    public void testKeepRules() throws IOException {
+        write("com/firebase/ui/database/SnapshotParser.java", DATABASE_PARSER_SOURCE);
+        write("com/google/firebase/database/DataSnapshot.java", DATA_SNAPSHOT_SOURCE);
+        write("com/example/Chat.java", "package com.example;\n"
+                + "@com.firebase.ui.common.GenerateSnapshotParser\n"
+                + "public class Chat {\n"
+                + "    public String name;\n"
+                + "    @com.firebase.ui.common.GenerateSnapshotParser\n"
+                + "    public static class Author { public String uid; }\n"
+                + "}\n");
+        assertTrue(mDiagnostics.getDiagnostics().toString(), compile());
+
+        assertEquals(Arrays.asList(
+                "-keepnames class com.example.Chat",
+                "-keep class com.example.Chat_DatabaseSnapshotParser { <init>(); }"),
+                readKeepRules("com.example.Chat"));
+        // Nested models are kept by their binary name
+        assertEquals(Arrays.asList(
+                "-keepnames class com.example.Chat$Author",
+                "-keep class com.example.Chat_Author_DatabaseSnapshotParser { <init>(); }"),
+                readKeepRules("com.example.Chat$Author"));
+    }
+
+    @Test
+    public void testNoKeepRulesWithoutLookedUpParsers() throws IOException {
+        write("com/example/Chat.java", "package com.example;\n"
+                + "@com.firebase.ui.common.GenerateSnapshotParser\n"
+                + "public class Chat { public String name; }\n");
+        assertTrue(mDiagnostics.getDiagnostics().toString(), compile());
+        assertFalse(new File(mClasses,
+                SnapshotParserProcessor.PROGUARD_DIRECTORY + "com.example.Chat.pro").exists());
+    }
+
+    @Test
+    public void testUnsupportedProperty() throws IOException {
+        write("com/example/Chat.java", "package com.example;\n"
+                + "@com.firebase.ui.common.GenerateSnapshotParser\n"
+                + "public class Chat {\n"
+                + "    public java.util.List<Integer> counts;\n"
+                + "}\n");
+        assertFalse(compile());
+        assertTrue(getErrors().get(0).contains("java.util.List<java.lang.Integer>"));
+    }
+
+    @Test
+    public void testMissingConstructor() throws IOException {
+        write("com/example/Chat.java", "package com.example;\n"
+                + "@com.firebase.ui.common.GenerateSnapshotParser\n"
+                + "public class Chat {\n"
+                + "    public Chat(String name) {}\n"
+                + "}\n");
+        assertFalse(compile());
+        assertEquals(
+                Collections.singletonList("Models need a non-private no-argument constructor"),
+                getErrors());
+    }
+
+    private void write(String path, String source) throws IOException {
+        File file = new File(mSources, path);
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean compile() throws IOException {
+        List<File> files = new ArrayList<>();
+        collectSources(mSources, files);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(mDiagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null,
+                    fileManager,
+                    mDiagnostics,
+                    Arrays.asList("-d", mClasses.getPath()),
+                    null,
+                    fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new SnapshotParserProcessor()));
+            return task.call();
+        }
+    }
+
+    /**
+     * @return the rules generated for {@code model}, without comments.
+     */
+    private List<String> readKeepRules(String model) throws IOException {
+        File file = new File(mClasses, SnapshotParserProcessor.PROGUARD_DIRECTORY + model + ".pro");
+        List<String> rules = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("#")) { rules.add(line); }
+        }
+        return rules;
+    }
+
+    private List<String> getErrors() {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : mDiagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+    private static void collectSources(File directory, List<File> files) {
+        for (File file : directory.listFiles()) {
+            if (file.isDirectory()) {
+                collectSources(file, files);
+            } else {
+                files.add(file);
+            }
+        }
+    }
+
+    private static Object parse(ClassLoader loader, String parser, Map<String, Object> data)
+            throws Exception {
+        Method fromMap = loader.loadClass(parser).getMethod("fromMap", Map.class, String.class);
+        return fromMap.invoke(null, data, null);
+    }
+
+    private static Object get(Class<?> modelClass, Object model, String field) throws Exception {
+        Field declared = modelClass.getDeclaredField(field);
+        declared.setAccessible(true);
+        return declared.get(model);
+    }
+}